@@ -0,0 +1,121 @@
+package de.helmholtz.marketplace.cerebrum.benchmark;
+
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumEntityUuidGenerator;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumQueuedThreadPool;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumVirtualThreadPool;
+
+/**
+ * Bursts of requests that block on a backend, as the read endpoints block
+ * on Neo4j, run on the executors of the embedded Jetty: default is the
+ * pool Spring Boot creates without {@code cerebrum.jetty}, platform and
+ * virtual are the values of {@code cerebrum.jetty.executor}. The virtual
+ * executor needs Java 21; on older JVMs its runs fail and the others are
+ * still reported. burstGeneratingIds has every request generate an id
+ * instead, as the creating endpoints do, on threads that are new for
+ * every request with the virtual executor.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class CerebrumExecutorBenchmark
+{
+    @Param({"default", "platform", "virtual"})
+    public String executor;
+
+    /* concurrent requests per burst */
+    @Param({"100", "1000"})
+    public int requests;
+
+    /* time every request waits for its backend */
+    @Param({"1"})
+    public long blockMillis;
+
+    private ThreadPool threadPool;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception
+    {
+        switch (executor) {
+            case "default":
+                threadPool = new QueuedThreadPool(200, 8, 60000);
+                break;
+            case "platform":
+                threadPool = new CerebrumQueuedThreadPool("benchmark", 2000);
+                break;
+            case "virtual":
+                if (!CerebrumVirtualThreadPool.isSupported()) {
+                    throw new IllegalStateException("Virtual threads require Java 21 or later");
+                }
+                threadPool = new CerebrumVirtualThreadPool("benchmark");
+                break;
+            default:
+                throw new IllegalArgumentException(executor);
+        }
+        ((LifeCycle) threadPool).start();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception
+    {
+        ((LifeCycle) threadPool).stop();
+    }
+
+    @Benchmark
+    public void burst() throws InterruptedException
+    {
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            threadPool.execute(() -> {
+                try {
+                    Thread.sleep(blockMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    @Benchmark
+    public void burstGeneratingIds() throws InterruptedException
+    {
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            threadPool.execute(() -> {
+                try {
+                    CerebrumEntityUuidGenerator.generate("org");
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,77 @@
+package de.helmholtz.marketplace.cerebrum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumEntityUuidGenerator;
+
+/**
+ * Throughput of the id handling done on every request: generate on
+ * writes, isValid on every read/update. Run with the jmh profile, the gc
+ * profiler adds the allocation rate per operation to the report.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class CerebrumIdentifierBenchmark
+{
+    private static final String VALID_ID = "org-01eac6d7-0d35-1812-a3ed-24aec4231940";
+
+    @Benchmark
+    public String generate()
+    {
+        return CerebrumEntityUuidGenerator.generate("svc");
+    }
+
+    @Benchmark
+    public UUID generateType1UUID()
+    {
+        return CerebrumEntityUuidGenerator.generateType1UUID();
+    }
+
+    @Benchmark
+    public Boolean isValidOnValidId()
+    {
+        return CerebrumEntityUuidGenerator.isValid(VALID_ID);
+    }
+
+    @Benchmark
+    public Boolean isValidOnInvalidId(InvalidId id)
+    {
+        return CerebrumEntityUuidGenerator.isValid(id.invalidId);
+    }
+
+    @Benchmark
+    public String getEntityPrefix()
+    {
+        return CerebrumEntityUuidGenerator.PrefixEnum.getEntityPrefix("MarketService");
+    }
+
+    /* only isValidOnInvalidId runs once per invalid id, the other benchmarks once */
+    @State(Scope.Benchmark)
+    public static class InvalidId
+    {
+        @Param({
+                "2",
+                "abc-01eac6d7-0d35-1812-a3ed-24aec4231940",
+                "org-01eac6d7-0d35-0812-a3ed-24aec4231940",
+                "org-01eac6d7-0d35-1812-a3ed-24aec42319zz",
+                "org-../../../../etc/passwd"})
+        public String invalidId;
+    }
+}
@@ -0,0 +1,11 @@
+package de.helmholtz.marketplace.cerebrum.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Same benchmarks as {@link CerebrumIdentifierBenchmark}, run with one
+ * thread per available core to expose contention. For a 1..N scaling
+ * curve run the single threaded class with -Djmh.args="-t N" instead.
+ */
+@Threads(Threads.MAX)
+public class CerebrumIdentifierContendedBenchmark extends CerebrumIdentifierBenchmark {}
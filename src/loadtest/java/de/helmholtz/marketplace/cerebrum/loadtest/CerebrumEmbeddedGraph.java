@@ -0,0 +1,51 @@
+package de.helmholtz.marketplace.cerebrum.loadtest;
+
+import org.neo4j.configuration.GraphDatabaseSettings;
+import org.neo4j.configuration.connectors.BoltConnector;
+import org.neo4j.configuration.helpers.SocketAddress;
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.dbms.api.DatabaseManagementServiceBuilder;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+
+/**
+ * Neo4j running in the JVM of the load test in a fresh directory. Its bolt
+ * connector listens on a free local port, so the application connects to
+ * it as to a standalone server, through the same driver.
+ */
+class CerebrumEmbeddedGraph implements AutoCloseable
+{
+    private final int port;
+    private final DatabaseManagementService service;
+
+    CerebrumEmbeddedGraph(Path directory, String pageCacheMemory) throws IOException
+    {
+        this.port = freePort();
+        this.service = new DatabaseManagementServiceBuilder(directory.toFile())
+                .setConfig(BoltConnector.enabled, true)
+                .setConfig(BoltConnector.listen_address, new SocketAddress("localhost", port))
+                .setConfig(GraphDatabaseSettings.auth_enabled, false)
+                .setConfig(GraphDatabaseSettings.pagecache_memory, pageCacheMemory)
+                .build();
+    }
+
+    String getUri()
+    {
+        return "bolt://localhost:" + port;
+    }
+
+    @Override
+    public void close()
+    {
+        service.shutdown();
+    }
+
+    private static int freePort() throws IOException
+    {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
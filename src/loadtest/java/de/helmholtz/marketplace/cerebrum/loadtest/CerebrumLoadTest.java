@@ -0,0 +1,188 @@
+package de.helmholtz.marketplace.cerebrum.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.helmholtz.marketplace.cerebrum.HelmholtzCerebrumApplication;
+
+/**
+ * Runs the application end to end under a fixed load, without a Neo4j
+ * server or the Helmholtz AAI: it starts an embedded graph and a stub
+ * token issuer, boots {@link HelmholtzCerebrumApplication} on a free port
+ * against both, seeds organizations, runs the workload and writes the
+ * report as JSON, so that runs can be compared across commits.
+ *
+ * Options, as --name=value:
+ * <ul>
+ * <li>concurrency: users sending requests at the same time, 16</li>
+ * <li>warmup and duration: seconds before and of the measurement, 10 and 30</li>
+ * <li>workload: read, mixed or write, or mix, e.g. list:30,get:50,create:8,patch:8,delete:4</li>
+ * <li>organizations: seeded before the run, 1000</li>
+ * <li>page-cache: memory of the page cache of the graph, 512m</li>
+ * <li>report: file of the report, load-test-report.json</li>
+ * <li>commit: reported revision, by default the one of git in the working directory</li>
+ * </ul>
+ * Any other argument is passed to the application, e.g.
+ * --spring.profiles.active=reactive or --cerebrum.jetty.executor=virtual.
+ */
+public final class CerebrumLoadTest
+{
+    private static final Map<String, String> DEFAULTS = defaults();
+
+    private CerebrumLoadTest()
+    {
+    }
+
+    private static Map<String, String> defaults()
+    {
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("concurrency", "16");
+        defaults.put("warmup", "10");
+        defaults.put("duration", "30");
+        defaults.put("workload", "mixed");
+        defaults.put("mix", null);
+        defaults.put("organizations", "1000");
+        defaults.put("page-cache", "512m");
+        defaults.put("report", "load-test-report.json");
+        defaults.put("commit", null);
+        return defaults;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            (options.containsKey(name) ? options : properties).put(name, value);
+        }
+        String mix = options.get("mix") != null
+                ? options.get("mix")
+                : CerebrumWorkload.WORKLOADS.get(options.get("workload"));
+        if (mix == null) throw new IllegalArgumentException("Unknown workload " + options.get("workload"));
+        int concurrency = Integer.parseInt(options.get("concurrency"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.get("warmup")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.get("duration")));
+
+        Path directory = Files.createTempDirectory("cerebrum-load-test");
+        try (CerebrumEmbeddedGraph graph =
+                     new CerebrumEmbeddedGraph(directory.resolve("graph"), options.get("page-cache"));
+             CerebrumStubIssuer issuer = new CerebrumStubIssuer()) {
+            Map<String, String> application = new LinkedHashMap<>();
+            application.put("server.port", "0");
+            application.put("spring.data.neo4j.uri", graph.getUri());
+            application.put("spring.security.oauth2.resourceserver.jwt.issuer-uri", issuer.getIssuerUri());
+            application.put("spring.security.oauth2.resourceserver.jwt.jwk-set-uri", issuer.getJwkSetUri());
+            application.put("cerebrum.userinfo.uri", issuer.getUserInfoUri());
+            application.put("cerebrum.assets.directory", directory.resolve("assets").toString());
+            // progress is printed, statements slowed down by the load itself would flood the output
+            application.put("logging.level.root", "WARN");
+            application.put("logging.level.org.springframework.web", "WARN");
+            application.put("logging.level.org.springframework.security", "WARN");
+            application.put("cerebrum.queries.slow-threshold", "-1");
+            application.putAll(properties);
+            List<String> applicationArgs = new ArrayList<>();
+            application.forEach((name, value) -> applicationArgs.add("--" + name + "=" + value));
+
+            try (ConfigurableApplicationContext context = SpringApplication.run(
+                    HelmholtzCerebrumApplication.class, applicationArgs.toArray(new String[0]))) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                String basePath = context.getEnvironment().getProperty("spring.data.rest.base-path");
+                CerebrumWorkload workload = new CerebrumWorkload(URI.create("http://localhost:" + port + basePath),
+                        issuer.token("load-test", warmup.plus(duration).plusHours(1)), mix);
+                int organizations = Integer.parseInt(options.get("organizations"));
+                System.out.printf("Seeding %d organizations%n", organizations);
+                workload.seed(organizations);
+                System.out.printf("Running %s with %d users, %d s warmup and %d s measurement%n",
+                        mix, concurrency, warmup.getSeconds(), duration.getSeconds());
+                Instant started = Instant.now();
+                Map<String, Object> result = workload.run(concurrency, warmup, duration);
+
+                Map<String, Object> report = new LinkedHashMap<>();
+                report.put("commit", options.get("commit") != null ? options.get("commit") : commit());
+                report.put("started", started.toString());
+                report.put("java", System.getProperty("java.version"));
+                report.put("profiles", List.of(context.getEnvironment().getActiveProfiles()));
+                report.put("concurrency", concurrency);
+                report.put("warmupSeconds", warmup.getSeconds());
+                report.put("durationSeconds", duration.getSeconds());
+                report.put("mix", mix);
+                report.put("organizations", organizations);
+                report.put("properties", properties);
+                report.putAll(result);
+                Path file = Paths.get(options.get("report"));
+                new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+                print(report);
+                System.out.printf("Report written to %s%n", file.toAbsolutePath());
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+        // the client and the graph may leave non-daemon threads behind
+        System.exit(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report)
+    {
+        Map<String, Object> rows = new LinkedHashMap<>((Map<String, Object>) report.get("operations"));
+        rows.put("total", report.get("total"));
+        System.out.printf("%-10s %8s %7s %12s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "requests/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        rows.forEach((operation, row) -> {
+            Map<String, Object> summary = (Map<String, Object>) row;
+            Map<String, Object> latency = (Map<String, Object>) summary.get("latencyMillis");
+            System.out.printf("%-10s %8d %7d %12.1f %9.2f %9.2f %9.2f %9.2f%n", operation,
+                    summary.get("count"), summary.get("errors"), summary.get("throughput"),
+                    latency.get("p50"), latency.get("p99"), latency.get("p999"), latency.get("max"));
+        });
+    }
+
+    /* the revision of the working directory, marked if it has changes */
+    private static String commit()
+    {
+        try {
+            String revision = git("rev-parse", "--short", "HEAD");
+            if (revision.isEmpty()) return "unknown";
+            return git("status", "--porcelain", "--untracked-files=no").isEmpty() ? revision : revision + "-dirty";
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+
+    private static String git(String... args) throws IOException, InterruptedException
+    {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (InputStream output = process.getInputStream()) {
+            String text = new String(output.readAllBytes(), StandardCharsets.UTF_8).trim();
+            return process.waitFor() == 0 ? text : "";
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.helmholtz.marketplace.cerebrum.loadtest;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.minidev.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Identity provider standing in for the Helmholtz AAI: it signs RS256
+ * tokens for any subject, and serves their public key as JWK set and
+ * the user info of the subject of a token, at the paths the application
+ * is pointed to with the issuer uri.
+ */
+class CerebrumStubIssuer implements AutoCloseable
+{
+    private final RSAKey key;
+    private final HttpServer server;
+
+    CerebrumStubIssuer() throws IOException, JOSEException
+    {
+        this.key = new RSAKeyGenerator(2048).keyID("load-test").generate();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/oauth2/jwk", exchange ->
+                respond(exchange, 200, new JWKSet(key.toPublicJWK()).toString()));
+        server.createContext("/oauth2/userinfo", this::userInfo);
+        server.start();
+    }
+
+    String getIssuerUri()
+    {
+        return "http://localhost:" + server.getAddress().getPort() + "/oauth2";
+    }
+
+    String getJwkSetUri()
+    {
+        return getIssuerUri() + "/jwk";
+    }
+
+    String getUserInfoUri()
+    {
+        return getIssuerUri() + "/userinfo";
+    }
+
+    String token(String subject, Duration lifetime) throws JOSEException
+    {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(getIssuerUri())
+                .subject(subject)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(lifetime)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+    }
+
+    /* the claims of the bearer token, as the tokens of this issuer are not verified again */
+    private void userInfo(HttpExchange exchange) throws IOException
+    {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            respond(exchange, 401, "{}");
+            return;
+        }
+        try {
+            String subject = SignedJWT.parse(authorization.substring(7)).getJWTClaimsSet().getSubject();
+            JSONObject userInfo = new JSONObject();
+            userInfo.put("sub", subject);
+            userInfo.put("name", subject);
+            userInfo.put("email", subject + "@load-test.invalid");
+            respond(exchange, 200, userInfo.toJSONString());
+        } catch (ParseException e) {
+            respond(exchange, 401, "{}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException
+    {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package de.helmholtz.marketplace.cerebrum.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed workload on the organizations API: a fixed number of users, each
+ * sending its next request as soon as the previous one was answered, with
+ * the operation drawn from a weighted mix. The latencies are the response
+ * times these users see; requests are not sent on a schedule, so a slow
+ * server lowers the throughput rather than queueing requests.
+ *
+ * Reads and patches pick from the organizations seeded before the run,
+ * deletes remove the ones created during it. A delete with nothing left
+ * to remove first creates its organization, untimed.
+ */
+class CerebrumWorkload
+{
+    enum Operation
+    {
+        LIST, GET, CREATE, PATCH, DELETE;
+
+        String key()
+        {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /* named mixes of --workload, weights in percent */
+    static final Map<String, String> WORKLOADS = Map.of(
+            "read", "list:40,get:60",
+            "mixed", "list:30,get:50,create:8,patch:8,delete:4",
+            "write", "list:10,get:20,create:30,patch:30,delete:10");
+
+    private static final int PAGE_SIZE = 20;
+    private static final int BATCH_SIZE = 500;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(TIMEOUT)
+            .build();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final URI organizations;
+    private final String authorization;
+    private final Operation[] operations;
+    private final int[] weights;
+    private final List<String> seeded = new ArrayList<>();
+    private final ConcurrentLinkedQueue<String> created = new ConcurrentLinkedQueue<>();
+    private final AtomicLong names = new AtomicLong();
+    private final Map<Operation, Result> results = new EnumMap<>(Operation.class);
+
+    /**
+     * @param baseUri e.g. http://localhost:8080/api/v0
+     * @param token bearer token for the writes
+     * @param mix operations with their weights, e.g. list:40,get:60
+     */
+    CerebrumWorkload(URI baseUri, String token, String mix)
+    {
+        this.organizations = URI.create(baseUri + "/organizations");
+        this.authorization = "Bearer " + token;
+        String[] entries = mix.split(",");
+        this.operations = new Operation[entries.length];
+        this.weights = new int[entries.length];
+        int total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] entry = entries[i].trim().split(":");
+            if (entry.length != 2) throw new IllegalArgumentException("Invalid mix entry " + entries[i]);
+            operations[i] = Operation.valueOf(entry[0].trim().toUpperCase(Locale.ROOT));
+            total += Integer.parseInt(entry[1].trim());
+            weights[i] = total;
+        }
+        if (total <= 0) throw new IllegalArgumentException("The weights of the mix " + mix + " add up to 0");
+        for (Operation operation : operations) results.put(operation, new Result());
+    }
+
+    /**
+     * Create the organizations the reads and patches pick from, in batches.
+     */
+    void seed(int count) throws IOException, InterruptedException
+    {
+        for (int offset = 0; offset < count; offset += BATCH_SIZE) {
+            ArrayNode batch = mapper.createArrayNode();
+            for (int i = offset; i < Math.min(count, offset + BATCH_SIZE); i++) batch.add(organization());
+            HttpResponse<String> response = client.send(
+                    write(URI.create(organizations + "/batch"), "POST", "application/json", batch.toString()),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(
+                        "Seeding failed with " + response.statusCode() + ": " + response.body());
+            }
+            for (JsonNode item : mapper.readTree(response.body())) {
+                if (item.path("errors").size() > 0) throw new IllegalStateException("Seeding failed: " + item);
+                seeded.add(item.path("uuid").asText());
+            }
+        }
+    }
+
+    /**
+     * @return count, throughput, latency percentiles and response statuses,
+     *         per operation and in total, of the requests sent after the warmup
+     */
+    Map<String, Object> run(int concurrency, Duration warmup, Duration duration) throws Exception
+    {
+        if (seeded.isEmpty()) throw new IllegalStateException("Seed organizations before the run");
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long measureUntil = measureFrom + duration.toNanos();
+        ExecutorService users = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int user = 0; user < concurrency; user++) {
+                SplittableRandom random = new SplittableRandom(user);
+                running.add(users.submit(() -> {
+                    long now;
+                    while ((now = System.nanoTime()) < measureUntil) {
+                        perform(next(random), random, now >= measureFrom);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> user : running) user.get();
+        } finally {
+            users.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - measureFrom) / 1e9;
+
+        Map<String, Object> operationsReport = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        Map<String, Long> totalStatuses = new TreeMap<>();
+        for (Map.Entry<Operation, Result> result : results.entrySet()) {
+            Histogram histogram = result.getValue().latencies.copy();
+            Map<String, Long> statuses = result.getValue().statuses();
+            operationsReport.put(result.getKey().key(), summary(histogram, statuses, seconds));
+            total.add(histogram);
+            statuses.forEach((status, count) -> totalStatuses.merge(status, count, Long::sum));
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("seconds", round(seconds));
+        report.put("total", summary(total, totalStatuses, seconds));
+        report.put("operations", operationsReport);
+        return report;
+    }
+
+    private Operation next(SplittableRandom random)
+    {
+        int draw = random.nextInt(weights[weights.length - 1]);
+        int i = 0;
+        while (draw >= weights[i]) i++;
+        return operations[i];
+    }
+
+    private void perform(Operation operation, SplittableRandom random, boolean measured)
+            throws IOException, InterruptedException
+    {
+        HttpRequest request = request(operation, random);
+        long start = System.nanoTime();
+        String status;
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            status = String.valueOf(response.statusCode());
+            if (operation == Operation.CREATE && response.statusCode() == 201) created.add(uuid(response));
+        } catch (IOException e) {
+            status = e.getClass().getSimpleName();
+        }
+        if (measured) results.get(operation).record(System.nanoTime() - start, status);
+    }
+
+    private HttpRequest request(Operation operation, SplittableRandom random) throws IOException, InterruptedException
+    {
+        switch (operation) {
+            case LIST:
+                int pages = Math.max(1, seeded.size() / PAGE_SIZE);
+                return read(URI.create(organizations + "?page=" + random.nextInt(pages) + "&size=" + PAGE_SIZE));
+            case GET:
+                return read(URI.create(organizations + "/" + pick(random)));
+            case CREATE:
+                return write(organizations, "POST", "application/json", organization().toString());
+            case PATCH:
+                ArrayNode patch = mapper.createArrayNode();
+                patch.addObject().put("op", "replace").put("path", "/name").put("value", name());
+                return write(URI.create(organizations + "/" + pick(random)), "PATCH",
+                        "application/json-patch+json", patch.toString());
+            case DELETE:
+                String uuid = created.poll();
+                if (uuid == null) uuid = create();
+                return write(URI.create(organizations + "/" + uuid), "DELETE", null, null);
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private String create() throws IOException, InterruptedException
+    {
+        HttpResponse<String> response = client.send(
+                write(organizations, "POST", "application/json", organization().toString()),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Create failed with " + response.statusCode() + ": " + response.body());
+        }
+        return uuid(response);
+    }
+
+    private String uuid(HttpResponse<String> response) throws IOException
+    {
+        return mapper.readTree(response.body()).path("uuid").asText();
+    }
+
+    private String pick(SplittableRandom random)
+    {
+        return seeded.get(random.nextInt(seeded.size()));
+    }
+
+    private ObjectNode organization()
+    {
+        String name = name();
+        ObjectNode organization = mapper.createObjectNode();
+        organization.put("name", name);
+        organization.put("abbreviation", name.substring(name.lastIndexOf(' ') + 1));
+        organization.put("url", "https://load-test.invalid/" + names.get());
+        return organization;
+    }
+
+    private String name()
+    {
+        return "Load test organization " + names.incrementAndGet();
+    }
+
+    private HttpRequest read(URI uri)
+    {
+        return HttpRequest.newBuilder(uri).timeout(TIMEOUT).header("Accept", "application/json").GET().build();
+    }
+
+    private HttpRequest write(URI uri, String method, String contentType, String body)
+    {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(TIMEOUT)
+                .header("Accept", "application/json")
+                .header("Authorization", authorization);
+        if (body == null) return request.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return request.header("Content-Type", contentType)
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static Map<String, Object> summary(Histogram histogram, Map<String, Long> statuses, double seconds)
+    {
+        long errors = statuses.entrySet().stream()
+                .filter(status -> !status.getKey().startsWith("2"))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("mean", round(histogram.getMean() / 1e6));
+        latency.put("p50", millis(histogram, 50));
+        latency.put("p90", millis(histogram, 90));
+        latency.put("p99", millis(histogram, 99));
+        latency.put("p999", millis(histogram, 99.9));
+        latency.put("max", round(histogram.getMaxValue() / 1e6));
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("throughput", round(histogram.getTotalCount() / seconds));
+        summary.put("latencyMillis", latency);
+        summary.put("statuses", statuses);
+        return summary;
+    }
+
+    private static double millis(Histogram histogram, double percentile)
+    {
+        return histogram.getTotalCount() == 0 ? 0 : round(histogram.getValueAtPercentile(percentile) / 1e6);
+    }
+
+    private static double round(double value)
+    {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    /* nanoseconds to 3 significant digits, recorded from all users at once */
+    private static final class Result
+    {
+        private final ConcurrentHistogram latencies = new ConcurrentHistogram(3);
+        private final ConcurrentMap<String, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        private void record(long nanos, String status)
+        {
+            latencies.recordValue(nanos);
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+
+        private Map<String, Long> statuses()
+        {
+            Map<String, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+    }
+}
@@ -3,8 +3,10 @@ package de.helmholtz.marketplace.cerebrum;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.neo4j.repository.config.EnableNeo4jRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+@EnableScheduling
 @EnableTransactionManagement
 @EnableNeo4jRepositories
 @SpringBootApplication
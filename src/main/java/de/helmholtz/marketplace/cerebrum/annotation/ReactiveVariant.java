@@ -0,0 +1,21 @@
+package de.helmholtz.marketplace.cerebrum.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bean whose methods take over the request mappings of the
+ * handler methods of the same name of the given controller, so the paths,
+ * parameters and media types stay the same. The bean itself has no
+ * mappings. They are moved by CerebrumReactiveEndpoints.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReactiveVariant
+{
+    Class<?> value();
+}
@@ -2,25 +2,63 @@ package de.helmholtz.marketplace.cerebrum.config;
 
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.client.reactive.JettyClientHttpConnector;
 import org.springframework.security.oauth2.server.resource.web.reactive.function.client.ServletBearerExchangeFilterFunction;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumCurrentUserResolver;
 
 @EnableWebMvc
 @Configuration
-public class CerebrumConfig
+public class CerebrumConfig implements WebMvcConfigurer
 {
+    private final CerebrumCurrentUserResolver currentUserResolver;
+    private final ObjectProvider<AsyncTaskExecutor> taskExecutor;
     private final SslContextFactory.Client ssl = new SslContextFactory.Client();
     private final HttpClient httpClient = new HttpClient(ssl);
     ClientHttpConnector clientConnector = new JettyClientHttpConnector(httpClient);
 
+    public CerebrumConfig(CerebrumCurrentUserResolver currentUserResolver,
+                          @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                  ObjectProvider<AsyncTaskExecutor> taskExecutor)
+    {
+        this.currentUserResolver = currentUserResolver;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /*
+     * streamed and reactive bodies are written from the pool of Spring
+     * Boot rather than from a new thread per response
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer)
+    {
+        taskExecutor.ifAvailable(configurer::setTaskExecutor);
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers)
+    {
+        resolvers.add(currentUserResolver);
+    }
+
+    /* the builder of Spring Boot, which times every exchange as http.client.requests */
     @Bean
-    public WebClient authorisationServer() {
-        return WebClient.builder()
+    public WebClient authorisationServer(WebClient.Builder builder) {
+        return builder
                 .filter(new ServletBearerExchangeFilterFunction())
                 .clientConnector(clientConnector)
                 .build();
@@ -0,0 +1,117 @@
+package de.helmholtz.marketplace.cerebrum.config;
+
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.jetty.JettyServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumQueuedThreadPool;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumVirtualThreadPool;
+
+/**
+ * Execution model of the embedded Jetty: the thread pool chosen by
+ * {@code cerebrum.jetty.executor} and the limits of the pooled request
+ * and response buffers. Acceptors, selectors and the platform thread
+ * counts are the {@code server.jetty.*} properties of Spring Boot.
+ */
+@Configuration
+public class CerebrumJettyConfig implements WebServerFactoryCustomizer<JettyServletWebServerFactory>, Ordered
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CerebrumJettyConfig.class);
+    private static final String THREAD_NAME = "cerebrum-http";
+
+    private final ThreadPool threadPool;
+    private final ArrayByteBufferPool bufferPool;
+
+    public CerebrumJettyConfig(@Value("${cerebrum.jetty.executor:platform}") String executor,
+                               @Value("${cerebrum.jetty.queue-capacity:2000}") int queueCapacity,
+                               @Value("${cerebrum.jetty.buffers.max-heap-memory:-1}") long maxHeapMemory,
+                               @Value("${cerebrum.jetty.buffers.max-direct-memory:-1}") long maxDirectMemory)
+    {
+        if (queueCapacity < 1) throw new IllegalArgumentException("cerebrum.jetty.queue-capacity must be positive");
+        switch (executor) {
+            case "virtual":
+                if (CerebrumVirtualThreadPool.isSupported()) {
+                    threadPool = new CerebrumVirtualThreadPool(THREAD_NAME);
+                    break;
+                }
+                LOGGER.warn("Virtual threads require Java 21 or later, using the platform executor");
+                threadPool = new CerebrumQueuedThreadPool(THREAD_NAME, queueCapacity);
+                break;
+            case "platform":
+                threadPool = new CerebrumQueuedThreadPool(THREAD_NAME, queueCapacity);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown cerebrum.jetty.executor " + executor
+                        + ", expected platform or virtual");
+        }
+        this.bufferPool = new ArrayByteBufferPool(-1, -1, -1, -1, maxHeapMemory, maxDirectMemory);
+    }
+
+    /* after the customizers of Spring Boot, whose connector settings are carried over */
+    @Override
+    public int getOrder()
+    {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void customize(JettyServletWebServerFactory factory)
+    {
+        factory.setThreadPool(threadPool);
+        factory.addServerCustomizers(this::useBufferPool);
+    }
+
+    /*
+     * Spring Boot creates the connector before any customizer runs and a
+     * connector keeps the buffer pool it was created with, so it is
+     * created again with the same settings
+     */
+    private void useBufferPool(Server server)
+    {
+        Connector[] connectors = server.getConnectors();
+        for (int i = 0; i < connectors.length; i++) {
+            if (!(connectors[i] instanceof ServerConnector)) continue;
+            ServerConnector original = (ServerConnector) connectors[i];
+            ServerConnector connector = new ServerConnector(server, null, null, bufferPool,
+                    original.getAcceptors(), original.getSelectorManager().getSelectorCount(),
+                    original.getConnectionFactories().toArray(new ConnectionFactory[0]));
+            connector.setHost(original.getHost());
+            connector.setPort(original.getPort());
+            connector.setIdleTimeout(original.getIdleTimeout());
+            connector.setAcceptQueueSize(original.getAcceptQueueSize());
+            connector.setReuseAddress(original.getReuseAddress());
+            connectors[i] = connector;
+        }
+        server.setConnectors(connectors);
+    }
+
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        if (threadPool instanceof CerebrumVirtualThreadPool) {
+            statistics.put("threadPool", ((CerebrumVirtualThreadPool) threadPool).getStatistics());
+        } else {
+            statistics.put("threadPool", ((CerebrumQueuedThreadPool) threadPool).getStatistics());
+        }
+        Map<String, Object> buffers = new LinkedHashMap<>();
+        buffers.put("heapBuffers", bufferPool.getHeapByteBufferCount());
+        buffers.put("heapMemory", bufferPool.getHeapMemory());
+        buffers.put("directBuffers", bufferPool.getDirectByteBufferCount());
+        buffers.put("directMemory", bufferPool.getDirectMemory());
+        statistics.put("buffers", buffers);
+        return statistics;
+    }
+}
@@ -0,0 +1,130 @@
+package de.helmholtz.marketplace.cerebrum.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import de.helmholtz.marketplace.cerebrum.annotation.ReactiveVariant;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumRepositoryMetrics;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumCurrentUserResolver;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumEntityCache;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumJwtDecoder;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumUserInfoCache;
+
+/**
+ * Meters beyond the ones of Spring Boot: requests tagged with the entity
+ * and the controller method, repository calls, and the in-process caches.
+ * Patches and ids are timed where they are made.
+ */
+@Configuration
+public class CerebrumMetricsConfig
+{
+    /* static, as post processors are created before any other bean */
+    @Bean
+    public static CerebrumRepositoryMetrics repositoryMetrics(ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        return new CerebrumRepositoryMetrics(meterRegistry);
+    }
+
+    @Bean
+    public WebMvcTagsProvider webMvcTagsProvider()
+    {
+        return new EndpointTagsProvider();
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(CerebrumEntityCache entityCache,
+                                    CerebrumUserInfoCache userInfoCache,
+                                    CerebrumJwtDecoder jwtDecoder,
+                                    CerebrumCurrentUserResolver currentUserResolver)
+    {
+        return registry -> {
+            bindCache(registry, "entities", entityCache, CerebrumEntityCache::getStatistics);
+            bindCache(registry, "userinfo", userInfoCache, CerebrumUserInfoCache::getStatistics);
+            bindCache(registry, "jwt", jwtDecoder, CerebrumJwtDecoder::getStatistics);
+            bindCache(registry, "users", currentUserResolver, CerebrumCurrentUserResolver::getStatistics);
+        };
+    }
+
+    /* the meters of Micrometer's cache binders, from the statistics shown at /admin/caches */
+    private static <T> void bindCache(MeterRegistry registry, String name, T cache,
+                                      Function<T, Map<String, Object>> statistics)
+    {
+        Gauge.builder("cache.size", cache, c -> number(statistics.apply(c).get("entries")))
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> number(statistics.apply(c).get("hits")))
+                .tag("cache", name).tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> number(statistics.apply(c).get("misses")))
+                .tag("cache", name).tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", cache, c -> number(statistics.apply(c).get("evictions")))
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private static double number(Object value)
+    {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Adds the entity of the controller, e.g. organization, and the name
+     * of the controller method as operation to the tags of Spring Boot.
+     * Reactive variants count as the controller they stand in for.
+     */
+    static final class EndpointTagsProvider extends DefaultWebMvcTagsProvider
+    {
+        private static final Tags NONE = Tags.of("entity", "none", "operation", "none");
+
+        private final ConcurrentMap<Method, Tags> endpoints = new ConcurrentHashMap<>();
+
+        @Override
+        public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                     Throwable exception)
+        {
+            return endpointTags(handler).and(super.getTags(request, response, handler, exception));
+        }
+
+        @Override
+        public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler)
+        {
+            return endpointTags(handler).and(super.getLongRequestTags(request, handler));
+        }
+
+        Tags endpointTags(Object handler)
+        {
+            if (!(handler instanceof HandlerMethod)) return NONE;
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            return endpoints.computeIfAbsent(handlerMethod.getMethod(), method -> {
+                Class<?> controller = handlerMethod.getBeanType();
+                ReactiveVariant variant = AnnotatedElementUtils.findMergedAnnotation(controller, ReactiveVariant.class);
+                if (variant != null) controller = variant.value();
+                if (!AnnotatedElementUtils.hasAnnotation(controller, Controller.class)) return NONE;
+                String entity = controller.getSimpleName().replaceFirst("Controller$", "").toLowerCase(Locale.ROOT);
+                return Tags.of("entity", entity, "operation", method.getName());
+            });
+        }
+    }
+}
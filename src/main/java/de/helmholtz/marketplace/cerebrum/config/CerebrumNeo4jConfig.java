@@ -0,0 +1,73 @@
+package de.helmholtz.marketplace.cerebrum.config;
+
+import org.neo4j.ogm.config.AutoIndexMode;
+import org.neo4j.ogm.driver.Driver;
+import org.neo4j.ogm.exception.core.ConfigurationException;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.session.event.EventListener;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.boot.autoconfigure.data.neo4j.Neo4jProperties;
+import org.springframework.boot.autoconfigure.domain.EntityScanPackages;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumQueryRecorder;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumRecordingDriver;
+
+/**
+ * The session factory of Spring Boot, on a driver that records every
+ * statement OGM sends with the {@link CerebrumQueryRecorder}. Spring Boot
+ * backs off from its configuration as well, so it is made here from
+ * {@code spring.data.neo4j.*} in the same way.
+ */
+@Configuration
+public class CerebrumNeo4jConfig
+{
+    @Bean
+    public org.neo4j.ogm.config.Configuration configuration(Neo4jProperties properties)
+    {
+        return properties.createConfiguration();
+    }
+
+    @Bean
+    public SessionFactory sessionFactory(org.neo4j.ogm.config.Configuration configuration,
+                                         BeanFactory beanFactory,
+                                         ObjectProvider<EventListener> eventListeners,
+                                         CerebrumQueryRecorder recorder)
+    {
+        Driver driver = new CerebrumRecordingDriver(driver(configuration), recorder);
+        SessionFactory sessionFactory = new SessionFactory(driver,
+                configuration.mergeBasePackagesWith(packagesToScan(beanFactory)));
+        if (configuration.getAutoIndex() != AutoIndexMode.NONE) sessionFactory.runAutoIndexManager(configuration);
+        eventListeners.orderedStream().forEach(sessionFactory::register);
+        return sessionFactory;
+    }
+
+    /* the driver OGM would create for the configuration */
+    private static Driver driver(org.neo4j.ogm.config.Configuration configuration)
+    {
+        try {
+            Driver driver = (Driver) Class.forName(configuration.getDriverClassName())
+                    .getDeclaredConstructor().newInstance();
+            driver.configure(configuration);
+            return driver;
+        } catch (ReflectiveOperationException e) {
+            throw new ConfigurationException("Could not load driver class " + configuration.getDriverClassName(), e);
+        }
+    }
+
+    /* as Spring Boot: the packages of @EntityScan, else the ones of the application */
+    private static String[] packagesToScan(BeanFactory beanFactory)
+    {
+        List<String> packages = EntityScanPackages.get(beanFactory).getPackageNames();
+        if (packages.isEmpty() && AutoConfigurationPackages.has(beanFactory)) {
+            packages = AutoConfigurationPackages.get(beanFactory);
+        }
+        return StringUtils.toStringArray(packages);
+    }
+}
@@ -0,0 +1,71 @@
+package de.helmholtz.marketplace.cerebrum.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.helmholtz.marketplace.cerebrum.annotation.ReactiveVariant;
+
+/**
+ * Serves the read endpoints from the reactive controllers in profile
+ * {@code reactive}: the mappings of the blocking handler methods are moved
+ * to the methods of the same name of the {@link ReactiveVariant} beans,
+ * once all controllers are registered and before the server starts.
+ * Writes stay on the blocking controllers.
+ */
+@Component
+@Profile("reactive")
+public class CerebrumReactiveEndpoints implements SmartInitializingSingleton
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CerebrumReactiveEndpoints.class);
+
+    private final ApplicationContext context;
+    private final RequestMappingHandlerMapping handlerMapping;
+
+    public CerebrumReactiveEndpoints(
+            ApplicationContext context,
+            @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping)
+    {
+        this.context = context;
+        this.handlerMapping = handlerMapping;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated()
+    {
+        for (Object variant : context.getBeansWithAnnotation(ReactiveVariant.class).values()) {
+            Class<?> type = ClassUtils.getUserClass(variant);
+            Class<?> controller = AnnotationUtils.findAnnotation(type, ReactiveVariant.class).value();
+            Map<String, Method> methods = new HashMap<>();
+            for (Method method : type.getDeclaredMethods()) {
+                if (Modifier.isPublic(method.getModifiers()) && !method.isSynthetic()) {
+                    methods.put(method.getName(), method);
+                }
+            }
+            for (Map.Entry<RequestMappingInfo, HandlerMethod> mapping
+                    : new ArrayList<>(handlerMapping.getHandlerMethods().entrySet())) {
+                if (!mapping.getValue().getBeanType().equals(controller)) continue;
+                Method method = methods.get(mapping.getValue().getMethod().getName());
+                if (method == null) continue;
+                handlerMapping.unregisterMapping(mapping.getKey());
+                handlerMapping.registerMapping(mapping.getKey(), variant, method);
+                LOGGER.info("Serving {} from {}", mapping.getKey(), type.getSimpleName());
+            }
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class CerebrumSecurityConfig extends WebSecurityConfigurerAdapter
                 .cors(withDefaults())
                 .mvcMatcher("/**")
                 .authorizeRequests()
+                    // includes the actuator endpoints, see management.endpoints.web.base-path
                     .mvcMatchers("/api/v0/admin/**").hasRole("ADMIN")
                     .mvcMatchers("/", "/swagger-ui/**", "/api/**").permitAll()
                     .anyRequest().authenticated()
@@ -0,0 +1,112 @@
+package de.helmholtz.marketplace.cerebrum.controller;
+
+import de.helmholtz.marketplace.cerebrum.config.CerebrumJettyConfig;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumQueryRecorder;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumCurrentUserResolver;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumEntityCache;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumJwkSetSource;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumJwtDecoder;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumUserInfoCache;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Pattern;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@Validated
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE,
+        path = "${spring.data.rest.base-path}/admin")
+@Tag(name = "admin", description = "The Administration API")
+public class AdminController
+{
+    private final CerebrumEntityCache entityCache;
+    private final CerebrumUserInfoCache userInfoCache;
+    private final CerebrumJwtDecoder jwtDecoder;
+    private final CerebrumJwkSetSource jwkSetSource;
+    private final CerebrumCurrentUserResolver currentUserResolver;
+    private final CerebrumJettyConfig jettyConfig;
+    private final CerebrumQueryRecorder queryRecorder;
+
+    public AdminController(CerebrumEntityCache entityCache,
+                           CerebrumUserInfoCache userInfoCache,
+                           CerebrumJwtDecoder jwtDecoder,
+                           CerebrumJwkSetSource jwkSetSource,
+                           CerebrumCurrentUserResolver currentUserResolver,
+                           CerebrumJettyConfig jettyConfig,
+                           CerebrumQueryRecorder queryRecorder)
+    {
+        this.entityCache = entityCache;
+        this.userInfoCache = userInfoCache;
+        this.jwtDecoder = jwtDecoder;
+        this.jwkSetSource = jwkSetSource;
+        this.currentUserResolver = currentUserResolver;
+        this.jettyConfig = jettyConfig;
+        this.queryRecorder = queryRecorder;
+    }
+
+    /* get cache statistics */
+    @Operation(summary = "get the statistics of the in-process caches",
+            security = @SecurityRequirement(name = "hdf-aai"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "successful operation"),
+            @ApiResponse(responseCode = "401", description = "unauthorised"),
+            @ApiResponse(responseCode = "403", description = "not an administrator")
+    })
+    @GetMapping(path = "/caches")
+    public Map<String, Map<String, Object>> getCacheStatistics()
+    {
+        Map<String, Map<String, Object>> caches = new LinkedHashMap<>();
+        caches.put("entities", entityCache.getStatistics());
+        caches.put("userinfo", userInfoCache.getStatistics());
+        caches.put("jwt", jwtDecoder.getStatistics());
+        caches.put("jwks", jwkSetSource.getStatistics());
+        caches.put("users", currentUserResolver.getStatistics());
+        return caches;
+    }
+
+    /* get server statistics */
+    @Operation(summary = "get the statistics of the request thread pool and the I/O buffers",
+            security = @SecurityRequirement(name = "hdf-aai"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "successful operation"),
+            @ApiResponse(responseCode = "401", description = "unauthorised"),
+            @ApiResponse(responseCode = "403", description = "not an administrator")
+    })
+    @GetMapping(path = "/server")
+    public Map<String, Object> getServerStatistics()
+    {
+        return jettyConfig.getStatistics();
+    }
+
+    /* get the slowest statements */
+    @Operation(summary = "get the slowest Cypher statement shapes since startup, with literals replaced by ?",
+            security = @SecurityRequirement(name = "hdf-aai"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "successful operation"),
+            @ApiResponse(responseCode = "400", description = "invalid parameters"),
+            @ApiResponse(responseCode = "401", description = "unauthorised"),
+            @ApiResponse(responseCode = "403", description = "not an administrator")
+    })
+    @GetMapping(path = "/queries")
+    public List<Map<String, Object>> getSlowestQueries(
+            @RequestParam(value = "top", defaultValue = "20") @Min(1) @Max(1000) int top,
+            @RequestParam(value = "by", defaultValue = "mean") @Pattern(regexp = "mean|max|total") String by)
+    {
+        return queryRecorder.getSlowest(top, by);
+    }
+}
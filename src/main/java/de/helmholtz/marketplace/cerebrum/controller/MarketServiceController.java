@@ -12,12 +12,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -28,36 +29,91 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
+import de.helmholtz.marketplace.cerebrum.entities.Authentication;
+import de.helmholtz.marketplace.cerebrum.entities.LifecycleStatus;
 import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.errorhandling.CerebrumApiError;
 import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumEntityNotFoundException;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntityVersions;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFacetedPage;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFieldSet;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumKeysetSlice;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumPatchCompiler;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumPatchStatement;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumServiceFacets;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumSlice;
 import de.helmholtz.marketplace.cerebrum.repository.MarketServiceRepository;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumBatchItemResult;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumBatchProcessor;
 import de.helmholtz.marketplace.cerebrum.utils.CerebrumControllerUtilities;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumEntityCache;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumFieldSelector;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumListRequest;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumNdjsonWriter;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumPatchEngine;
 
 @RestController
+@Validated
 @RequestMapping(path = "${spring.data.rest.base-path}/services", produces = MediaType.APPLICATION_JSON_VALUE)
 @Tag(name = "services", description = "The API of the Service")
 public class MarketServiceController {
 
     private final MarketServiceRepository marketServiceRepository;
+    private final CerebrumPatchEngine patchEngine;
+    private final CerebrumPatchCompiler patchCompiler;
+    private final CerebrumBatchProcessor batchProcessor;
+    private final CerebrumNdjsonWriter ndjsonWriter;
+    private final CerebrumFieldSelector fieldSelector;
+    private final CerebrumEntityCache entityCache;
+    private final CerebrumEntityVersions entityVersions;
+    private final CerebrumEntitySchema entitySchema;
+    private final CerebrumServiceFacets serviceFacets;
 
-    public MarketServiceController(MarketServiceRepository marketServiceRepository) {
+    public MarketServiceController(MarketServiceRepository marketServiceRepository,
+                                   CerebrumPatchEngine patchEngine,
+                                   CerebrumPatchCompiler patchCompiler,
+                                   CerebrumBatchProcessor batchProcessor,
+                                   CerebrumNdjsonWriter ndjsonWriter,
+                                   CerebrumFieldSelector fieldSelector,
+                                   CerebrumEntityCache entityCache,
+                                   CerebrumEntityVersions entityVersions,
+                                   CerebrumEntitySchema entitySchema,
+                                   CerebrumServiceFacets serviceFacets) {
         this.marketServiceRepository = marketServiceRepository;
+        this.patchEngine = patchEngine;
+        this.patchCompiler = patchCompiler;
+        this.batchProcessor = batchProcessor;
+        this.ndjsonWriter = ndjsonWriter;
+        this.fieldSelector = fieldSelector;
+        this.entityCache = entityCache;
+        this.entityVersions = entityVersions;
+        this.entitySchema = entitySchema;
+        this.serviceFacets = serviceFacets;
     }
 
     /* get Services */
-    @Operation(summary = "get array list of all services")
+    @Operation(summary = "get array list of all services",
+            description = "Page based listings carry the number of services per lifecycle status " +
+                    "and authentication as facets, each counted under the other filters")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "successful operation",
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = MarketService.class)))),
             @ApiResponse(responseCode = "400", description = "invalid request")
     })
     @GetMapping(path = "")
-    public Iterable<MarketService> getMarketServices(
+    public Iterable<?> getMarketServices(
             @Parameter(description = "specify the page number")
             @RequestParam(value = "page", defaultValue = "0") Integer page,
             @Parameter(description = "limit the number of records returned in one page")
@@ -66,10 +122,89 @@ public class MarketServiceController {
                     "or descending (desc) according to one or more of the service " +
                     "properties. Eg. to sort the list in ascending order base on the " +
                     "name property; the value will be set to name.asc")
-            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts)
+            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts,
+            @Parameter(description = "set to false to skip the total count; the response then " +
+                    "only tells whether there is a next page (hasNext)")
+            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal,
+            @Parameter(description = "opaque cursor for keyset pagination: pass an empty " +
+                    "value for the first page and the next cursor of the previous response " +
+                    "afterwards. The page parameter is ignored and the sort is taken from the cursor")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "how many levels of relationships to include: 0 for " +
+                    "none, 1 for the related entities, 2 for theirs as well")
+            @RequestParam(value = "depth", defaultValue = "0") @Min(0) @Max(2) int depth,
+            @Parameter(description = "comma separated service properties to return, " +
+                    "e.g. uuid,name; all if not given. Relations are only loaded if listed")
+            @RequestParam(value = "fields", required = false) List<String> fieldNames,
+            @Parameter(description = "only services in one of these lifecycle states, e.g. TESTING,PRODUCTION")
+            @RequestParam(value = "lifecycleStatus", required = false) List<LifecycleStatus> lifecycleStatuses,
+            @Parameter(description = "only services with one of these authentications, e.g. OAUTH2")
+            @RequestParam(value = "authentication", required = false) List<Authentication> authentications,
+            @Parameter(description = "only services provided by one of these organizations, given by ID")
+            @RequestParam(value = "organization", required = false) List<String> organizations,
+            WebRequest webRequest)
     {
-        return marketServiceRepository.findAll(
-                PageRequest.of(page, size, Sort.by(CerebrumControllerUtilities.getOrders(sorts))));
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketService.class), fieldNames);
+        if (webRequest.checkNotModified(entityVersions.getListTag(MarketService.class))) return null;
+        boolean filtered = lifecycleStatuses != null || authentications != null || organizations != null;
+        CerebrumListRequest list = new CerebrumListRequest(page, size,
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), withTotal, cursor, filtered);
+        return list.<Iterable<?>>read(
+                after -> {
+                    CerebrumKeysetSlice<MarketService> services = marketServiceRepository.hydrate(
+                            marketServiceRepository.findAllAfter(after, size, fields), depth, fields);
+                    return fields.isAll() ? services
+                            : services.map(service -> fieldSelector.select(service, fields));
+                },
+                pageRequest -> {
+                    CerebrumSlice<MarketService> services = marketServiceRepository.hydrate(
+                            marketServiceRepository.findSlice(pageRequest, fields), depth, fields);
+                    return fields.isAll() ? services
+                            : services.map(service -> fieldSelector.select(service, fields));
+                },
+                pageRequest -> {
+                    // the total of a filtered page comes with the facets, so withTotal makes no difference
+                    CerebrumServiceFacets.Selection selection =
+                            serviceFacets.select(lifecycleStatuses, authentications, organizations);
+                    Page<MarketService> found = filtered
+                            ? marketServiceRepository.findAllByUuidIn(selection.getUuids(), pageRequest, fields)
+                            : marketServiceRepository.findAll(pageRequest, fields);
+                    CerebrumFacetedPage<MarketService> services = new CerebrumFacetedPage<>(
+                            marketServiceRepository.hydrate(found, depth, fields), selection.getFacets());
+                    return fields.isAll() ? services
+                            : services.map(service -> fieldSelector.select(service, fields));
+                });
+    }
+
+    /* export services */
+    @Operation(summary = "stream all services as newline delimited JSON",
+            description = "Writes one service per line without relations, " +
+                    "straight from the database cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "successful operation",
+                    content = @Content(mediaType = CerebrumNdjsonWriter.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = MarketService.class))),
+            @ApiResponse(responseCode = "400", description = "invalid sort property",
+                    content = @Content(schema = @Schema(implementation = CerebrumApiError.class)))
+    })
+    @GetMapping(path = "/export",
+            produces = {CerebrumNdjsonWriter.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportMarketServices(
+            @Parameter(description = "sort the exported data in either ascending (asc) " +
+                    "or descending (desc) order according to one or more of the service " +
+                    "properties, e.g. name.asc")
+            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts,
+            @Parameter(description = "comma separated service properties to return, " +
+                    "e.g. uuid,name; all if not given")
+            @RequestParam(value = "fields", required = false) List<String> fieldNames)
+    {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketService.class), fieldNames);
+        Stream<?> services = marketServiceRepository.streamAll(
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), fields)
+                .map(service -> fieldSelector.select(service, fields));
+        return ResponseEntity.ok()
+                .contentType(CerebrumNdjsonWriter.APPLICATION_NDJSON)
+                .body(ndjsonWriter.body(services));
     }
 
     /* get single Service */
@@ -81,12 +216,28 @@ public class MarketServiceController {
             @ApiResponse(responseCode = "400", description = "invalid service ID supplied")
     })
     @GetMapping(path = "/{uuid}")
-    public MarketService getMarketService(
+    public ResponseEntity<byte[]> getMarketService(
             @Parameter(description = "ID of the service that needs to be fetched")
-            @PathVariable() String uuid) {
-        return marketServiceRepository
-                .findByUuid(uuid)
-                .orElseThrow(() -> new CerebrumEntityNotFoundException("marketService", uuid));
+            @PathVariable() String uuid,
+            @Parameter(description = "how many levels of relationships to include: 0 for " +
+                    "none, 1 for the related entities, 2 for theirs as well")
+            @RequestParam(value = "depth", defaultValue = "1") @Min(0) @Max(2) int depth,
+            @Parameter(description = "comma separated service properties to return, " +
+                    "e.g. uuid,name; all if not given. Relations are only loaded if listed")
+            @RequestParam(value = "fields", required = false) List<String> fieldNames,
+            WebRequest webRequest) {
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketService.class);
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketService.class), fieldNames);
+        CerebrumEntityCache.Entry service = entityCache.get(MarketService.class, id,
+                "depth=" + fields.depth(depth) + ";fields=" + fields, webRequest,
+                key -> marketServiceRepository.findTagByUuid(key, fields.depth(depth)),
+                key -> marketServiceRepository.findTaggedByUuid(key, depth, fields)
+                        .map(tagged -> tagged.map(found -> fieldSelector.select(found, fields))))
+                .orElseThrow(() -> new CerebrumEntityNotFoundException("marketService", id));
+        if (service.getJson() == null) return null;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service.getJson());
     }
 
     /* create Service */
@@ -102,7 +253,41 @@ public class MarketServiceController {
             @Parameter(description = "Service object that needs to be added to the marketplace",
                     required = true, schema = @Schema(implementation = MarketService.class))
             @Valid @RequestBody MarketService marketService) {
-        return marketServiceRepository.save(marketService);
+        MarketService createdService = marketServiceRepository.save(marketService);
+        entityCache.evict(MarketService.class);
+        serviceFacets.changed(createdService.getUuid());
+        return createdService;
+    }
+
+    /* create Services in batch */
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "add or update several services at once",
+            description = "Items without an ID are created, items with an ID are created " +
+                    "or have their properties replaced. Relations are not modified. " +
+                    "Each item is reported with its own status",
+            security = @SecurityRequirement(name = "hdf-aai"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "batch processed, see the status of each item",
+                    content = @Content(array = @ArraySchema(
+                            schema = @Schema(implementation = CerebrumBatchItemResult.class)))),
+            @ApiResponse(responseCode = "401", description = "unauthorised", content = @Content()),
+            @ApiResponse(responseCode = "413", description = "too many items in the batch", content = @Content())
+    })
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<CerebrumBatchItemResult> createMarketServices(
+            @Parameter(description = "array of services that need to be added to or updated in the marketplace",
+                    required = true, array = @ArraySchema(schema = @Schema(implementation = MarketService.class)))
+            @RequestBody List<MarketService> services)
+    {
+        List<CerebrumBatchItemResult> results =
+                batchProcessor.upsert(services, MarketService.class, marketServiceRepository);
+        entityCache.evictAll();
+        List<String> stored = new ArrayList<>(results.size());
+        for (CerebrumBatchItemResult result : results) {
+            if (result.getStatus().is2xxSuccessful()) stored.add(result.getUuid());
+        }
+        serviceFacets.changed(stored);
+        return results;
     }
 
     /* update Service */
@@ -123,8 +308,12 @@ public class MarketServiceController {
             @Parameter(description = "ID of the service that needs to be updated")
             @PathVariable() String uuid)
     {
-        marketService.setUuid(uuid);
-        return this.marketServiceRepository.save(marketService);
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketService.class);
+        marketService.setUuid(id);
+        MarketService updatedService = this.marketServiceRepository.save(marketService);
+        entityCache.evict(MarketService.class);
+        serviceFacets.changed(id);
+        return updatedService;
     }
 
     /* JSON PATCH Service */
@@ -147,11 +336,24 @@ public class MarketServiceController {
             @Parameter(description = "ID of the service that needs to be partially updated")
             @PathVariable() String uuid)
     {
-        return marketServiceRepository.findByUuid(uuid)
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketService.class);
+        CerebrumPatchStatement statement = patchCompiler.compile(patch, MarketService.class);
+        if (statement != null) {
+            try {
+                MarketService patchedService = marketServiceRepository.patchByUuid(id, statement)
+                        .orElseThrow(() -> new CerebrumEntityNotFoundException("marketService", id));
+                entityCache.evict(MarketService.class);
+                serviceFacets.changed(id);
+                return patchedService;
+            } catch (JsonPatchException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid id or json patch body", e);
+            }
+        }
+        MarketService patchedService = marketServiceRepository.findByUuid(id)
                 .map(marketService -> {
                     try {
                         MarketService marketServicePatched =
-                                CerebrumControllerUtilities.applyPatch(patch, marketService, MarketService.class);
+                                patchEngine.applyPatch(patch, marketService, MarketService.class);
                         return marketServiceRepository.save(marketServicePatched);
                     } catch (JsonPatchException e) {
                         throw new ResponseStatusException(
@@ -161,7 +363,10 @@ public class MarketServiceController {
                                 HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", e);
                     }
                 })
-                .orElseThrow(() -> new CerebrumEntityNotFoundException("marketService", uuid));
+                .orElseThrow(() -> new CerebrumEntityNotFoundException("marketService", id));
+        entityCache.evict(MarketService.class);
+        serviceFacets.changed(id);
+        return patchedService;
     }
 
     /* delete Service */
@@ -178,7 +383,10 @@ public class MarketServiceController {
     @DeleteMapping(path = "/{uuid}")
     public ResponseEntity<MarketService> deleteMarketService(@PathVariable("uuid") String uuid)
     {
-        marketServiceRepository.deleteByUuid(uuid);
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketService.class);
+        marketServiceRepository.deleteByUuid(id);
+        entityCache.evict(MarketService.class);
+        serviceFacets.changed(id);
         return ResponseEntity.noContent().build();
     }
 }
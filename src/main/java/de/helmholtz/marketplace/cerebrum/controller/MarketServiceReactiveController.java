@@ -0,0 +1,122 @@
+package de.helmholtz.marketplace.cerebrum.controller;
+
+import de.helmholtz.marketplace.cerebrum.annotation.ReactiveVariant;
+import de.helmholtz.marketplace.cerebrum.entities.Authentication;
+import de.helmholtz.marketplace.cerebrum.entities.LifecycleStatus;
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumEntityNotFoundException;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFacetedPage;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFieldSet;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumServiceFacets;
+import de.helmholtz.marketplace.cerebrum.repository.MarketServiceReactiveRepository;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumControllerUtilities;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumFieldSelector;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumListRequest;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumNdjsonWriter;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.List;
+
+/**
+ * Read endpoints of {@link MarketServiceController} on the reactive driver,
+ * serving its mappings in profile {@code reactive}. Single services are
+ * read from the database on every request, not from the entity cache.
+ */
+@Component
+@ResponseBody
+@Validated
+@Profile("reactive")
+@ReactiveVariant(MarketServiceController.class)
+public class MarketServiceReactiveController
+{
+    private final MarketServiceReactiveRepository marketServiceRepository;
+    private final CerebrumServiceFacets serviceFacets;
+    private final CerebrumNdjsonWriter ndjsonWriter;
+    private final CerebrumFieldSelector fieldSelector;
+    private final CerebrumEntitySchema entitySchema;
+
+    public MarketServiceReactiveController(MarketServiceReactiveRepository marketServiceRepository,
+                                           CerebrumServiceFacets serviceFacets,
+                                           CerebrumNdjsonWriter ndjsonWriter,
+                                           CerebrumFieldSelector fieldSelector,
+                                           CerebrumEntitySchema entitySchema)
+    {
+        this.marketServiceRepository = marketServiceRepository;
+        this.serviceFacets = serviceFacets;
+        this.ndjsonWriter = ndjsonWriter;
+        this.fieldSelector = fieldSelector;
+        this.entitySchema = entitySchema;
+    }
+
+    public Mono<? extends Iterable<?>> getMarketServices(
+            @RequestParam(value = "page", defaultValue = "0") Integer page,
+            @RequestParam(value = "size", defaultValue = "20") Integer size,
+            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts,
+            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "depth", defaultValue = "0") @Min(0) @Max(2) int depth,
+            @RequestParam(value = "fields", required = false) List<String> fieldNames,
+            @RequestParam(value = "lifecycleStatus", required = false) List<LifecycleStatus> lifecycleStatuses,
+            @RequestParam(value = "authentication", required = false) List<Authentication> authentications,
+            @RequestParam(value = "organization", required = false) List<String> organizations,
+            WebRequest webRequest)
+    {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketService.class), fieldNames);
+        boolean filtered = lifecycleStatuses != null || authentications != null || organizations != null;
+        CerebrumListRequest list = new CerebrumListRequest(page, size,
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), withTotal, cursor, filtered);
+        Mono<? extends Iterable<?>> services = list.<Mono<? extends Iterable<?>>>read(
+                after -> marketServiceRepository.findAllAfter(after, size, depth, fields)
+                        .map(found -> found.map(service -> fieldSelector.select(service, fields))),
+                pageRequest -> marketServiceRepository.findSlice(pageRequest, depth, fields)
+                        .map(found -> found.map(service -> fieldSelector.select(service, fields))),
+                // the facets are in memory, but read from the database on first use
+                pageRequest -> marketServiceRepository.withRequest(Mono.fromCallable(
+                        () -> serviceFacets.select(lifecycleStatuses, authentications, organizations))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(selection -> (filtered
+                                ? marketServiceRepository.findAllByUuidIn(
+                                        selection.getUuids(), pageRequest, depth, fields)
+                                : marketServiceRepository.findAll(pageRequest, depth, fields))
+                                .map(found -> new CerebrumFacetedPage<>(found, selection.getFacets())
+                                        .map(service -> fieldSelector.select(service, fields))))));
+        return CerebrumControllerUtilities.unlessNotModified(
+                webRequest, marketServiceRepository.findListTag(), services);
+    }
+
+    public Flux<String> exportMarketServices(
+            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts,
+            @RequestParam(value = "fields", required = false) List<String> fieldNames)
+    {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketService.class), fieldNames);
+        return ndjsonWriter.chunks(marketServiceRepository.streamAll(
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), fields)
+                .map(service -> fieldSelector.select(service, fields)));
+    }
+
+    public Mono<Object> getMarketService(
+            @PathVariable() String uuid,
+            @RequestParam(value = "depth", defaultValue = "1") @Min(0) @Max(2) int depth,
+            @RequestParam(value = "fields", required = false) List<String> fieldNames)
+    {
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketService.class);
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketService.class), fieldNames);
+        return marketServiceRepository.findByUuid(id, depth, fields)
+                .map(service -> fieldSelector.select(service, fields))
+                .switchIfEmpty(Mono.error(() -> new CerebrumEntityNotFoundException("marketService", id)));
+    }
+}
@@ -6,8 +6,24 @@ import com.fasterxml.jackson.databind.JsonNode;
 import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
 import de.helmholtz.marketplace.cerebrum.errorhandling.CerebrumApiError;
 import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumEntityNotFoundException;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntityVersions;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFieldSet;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumKeysetSlice;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumPatchCompiler;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumPatchStatement;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumSlice;
 import de.helmholtz.marketplace.cerebrum.repository.MarketUserRepository;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumBatchItemResult;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumBatchProcessor;
 import de.helmholtz.marketplace.cerebrum.utils.CerebrumControllerUtilities;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumCurrentUserResolver;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumEntityCache;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumFieldSelector;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumListRequest;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumNdjsonWriter;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumPatchEngine;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumUserInfoCache;
 
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchException;
@@ -21,11 +37,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -37,25 +56,57 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE,
         path = "${spring.data.rest.base-path}/users")
 @Tag(name = "users", description = "The User API")
 public class MarketUserController {
-    private final WebClient authorisationServer;
+    private final CerebrumUserInfoCache userInfoCache;
     private final MarketUserRepository marketUserRepository;
+    private final CerebrumPatchEngine patchEngine;
+    private final CerebrumPatchCompiler patchCompiler;
+    private final CerebrumBatchProcessor batchProcessor;
+    private final CerebrumNdjsonWriter ndjsonWriter;
+    private final CerebrumFieldSelector fieldSelector;
+    private final CerebrumEntityCache entityCache;
+    private final CerebrumEntityVersions entityVersions;
+    private final CerebrumCurrentUserResolver currentUserResolver;
+    private final CerebrumEntitySchema entitySchema;
 
     @Autowired
-    public MarketUserController(WebClient authorisationServer, MarketUserRepository marketUserRepository) {
-        this.authorisationServer = authorisationServer;
+    public MarketUserController(CerebrumUserInfoCache userInfoCache,
+                                MarketUserRepository marketUserRepository,
+                                CerebrumPatchEngine patchEngine,
+                                CerebrumPatchCompiler patchCompiler,
+                                CerebrumBatchProcessor batchProcessor,
+                                CerebrumNdjsonWriter ndjsonWriter,
+                                CerebrumFieldSelector fieldSelector,
+                                CerebrumEntityCache entityCache,
+                                CerebrumEntityVersions entityVersions,
+                                CerebrumCurrentUserResolver currentUserResolver,
+                                CerebrumEntitySchema entitySchema) {
+        this.userInfoCache = userInfoCache;
         this.marketUserRepository = marketUserRepository;
+        this.patchEngine = patchEngine;
+        this.patchCompiler = patchCompiler;
+        this.batchProcessor = batchProcessor;
+        this.ndjsonWriter = ndjsonWriter;
+        this.fieldSelector = fieldSelector;
+        this.entityCache = entityCache;
+        this.entityVersions = entityVersions;
+        this.currentUserResolver = currentUserResolver;
+        this.entitySchema = entitySchema;
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -77,19 +128,14 @@ public class MarketUserController {
                                     implementation = CerebrumApiError.class)))
             }
     )
-    public JsonNode whoami() {
-        return this.authorisationServer
-                .get()
-                .uri("https://login.helmholtz.de/oauth2/userinfo")
-                .retrieve()
-                .bodyToMono(JsonNode.class)
-                .block();
+    public Mono<JsonNode> whoami(@Parameter(hidden = true) @AuthenticationPrincipal Jwt token) {
+        return userInfoCache.get(token);
     }
 
     @SuppressWarnings("unused")
     public boolean isSomebody(JwtAuthenticationToken token) {
         if (Objects.isNull(token)) return false;
-        String name = marketUserRepository.findBySub((String) token.getTokenAttributes().get("sub")).getFirstName();
+        String name = currentUserResolver.resolve(token).map(MarketUser::getFirstName).orElse(null);
         if (Objects.isNull(name)) return false;
         return name.trim().isEmpty();
     }
@@ -104,12 +150,72 @@ public class MarketUserController {
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = CerebrumApiError.class))))
     })
     @GetMapping(path = "")
-    public Iterable<MarketUser> getMarketUsers(
+    public Iterable<?> getMarketUsers(
             @Parameter(description = "specify the page number")
             @RequestParam(value = "page", defaultValue = "0") Integer page,
             @Parameter(description = "limit the number of records returned in one page")
-            @RequestParam(value = "size", defaultValue = "20") Integer size) {
-        return marketUserRepository.findAll(PageRequest.of(page, size));
+            @RequestParam(value = "size", defaultValue = "20") Integer size,
+            @Parameter(description = "set to false to skip the total count; the response then " +
+                    "only tells whether there is a next page (hasNext)")
+            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal,
+            @Parameter(description = "opaque cursor for keyset pagination in uuid order: pass " +
+                    "an empty value for the first page and the next cursor of the previous " +
+                    "response afterwards. The page parameter is ignored")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "comma separated user properties to return, " +
+                    "e.g. uuid,lastName; all if not given")
+            @RequestParam(value = "fields", required = false) List<String> fieldNames,
+            WebRequest webRequest) {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketUser.class), fieldNames);
+        if (webRequest.checkNotModified(entityVersions.getListTag(MarketUser.class))) return null;
+        CerebrumListRequest list = new CerebrumListRequest(page, size, Sort.unsorted(), withTotal, cursor, false);
+        return list.<Iterable<?>>read(
+                after -> {
+                    CerebrumKeysetSlice<MarketUser> users = marketUserRepository.findAllAfter(after, size, fields);
+                    return fields.isAll() ? users
+                            : users.map(user -> fieldSelector.select(user, fields));
+                },
+                pageRequest -> {
+                    CerebrumSlice<MarketUser> users = marketUserRepository.findSlice(pageRequest, fields);
+                    return fields.isAll() ? users
+                            : users.map(user -> fieldSelector.select(user, fields));
+                },
+                pageRequest -> {
+                    Page<MarketUser> users = marketUserRepository.findAll(pageRequest, fields);
+                    return fields.isAll() ? users
+                            : users.map(user -> fieldSelector.select(user, fields));
+                });
+    }
+
+    /* export users */
+    @Operation(summary = "stream all users as newline delimited JSON",
+            description = "Writes one user per line without relations, " +
+                    "straight from the database cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "successful operation",
+                    content = @Content(mediaType = CerebrumNdjsonWriter.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = MarketUser.class))),
+            @ApiResponse(responseCode = "400", description = "invalid sort property",
+                    content = @Content(schema = @Schema(implementation = CerebrumApiError.class)))
+    })
+    @GetMapping(path = "/export",
+            produces = {CerebrumNdjsonWriter.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportMarketUsers(
+            @Parameter(description = "sort the exported data in either ascending (asc) " +
+                    "or descending (desc) order according to one or more of the user " +
+                    "properties, e.g. lastName.asc")
+            @RequestParam(value = "sort", defaultValue = "lastName.asc") List<String> sorts,
+            @Parameter(description = "comma separated user properties to return, " +
+                    "e.g. uuid,lastName; all if not given")
+            @RequestParam(value = "fields", required = false) List<String> fieldNames)
+    {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketUser.class), fieldNames);
+        Stream<?> users = marketUserRepository.streamAll(
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), fields)
+                .map(user -> fieldSelector.select(user, fields));
+        return ResponseEntity.ok()
+                .contentType(CerebrumNdjsonWriter.APPLICATION_NDJSON)
+                .body(ndjsonWriter.body(users));
     }
 
     /* get user */
@@ -124,11 +230,24 @@ public class MarketUserController {
                     content = @Content(schema = @Schema(implementation = CerebrumApiError.class)))
     })
     @GetMapping(path = "/{uuid}")
-    public MarketUser getMarketUser(
+    public ResponseEntity<byte[]> getMarketUser(
             @Parameter(description = "UUID of the user that needs to be fetched")
-            @PathVariable() String uuid) {
-        return marketUserRepository.findByUuid(uuid)
-                .orElseThrow(() -> new CerebrumEntityNotFoundException("user", uuid));
+            @PathVariable() String uuid,
+            @Parameter(description = "comma separated user properties to return, " +
+                    "e.g. uuid,lastName; all if not given")
+            @RequestParam(value = "fields", required = false) List<String> fieldNames,
+            WebRequest webRequest) {
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketUser.class);
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketUser.class), fieldNames);
+        CerebrumEntityCache.Entry user = entityCache.get(MarketUser.class, id,
+                "fields=" + fields, webRequest, key -> marketUserRepository.findTagByUuid(key, 0),
+                key -> marketUserRepository.findTaggedByUuid(key, 0, fields)
+                        .map(tagged -> tagged.map(found -> fieldSelector.select(found, fields))))
+                .orElseThrow(() -> new CerebrumEntityNotFoundException("user", id));
+        if (user.getJson() == null) return null;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(user.getJson());
     }
 
     /* create user */
@@ -147,7 +266,37 @@ public class MarketUserController {
             @Parameter(description = "user object that needs to be added to the marketplace",
                     required = true, schema = @Schema(implementation = MarketUser.class))
             @Valid @RequestBody MarketUser marketUser) {
-        return marketUserRepository.save(marketUser);
+        MarketUser createdUser = marketUserRepository.save(marketUser);
+        entityCache.evict(MarketUser.class);
+        currentUserResolver.evict(createdUser);
+        return createdUser;
+    }
+
+    /* create users in batch */
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "add or update several users at once",
+            description = "Items without an ID are created, items with an ID are created " +
+                    "or have their properties replaced. Relations are not modified. " +
+                    "Each item is reported with its own status",
+            security = @SecurityRequirement(name = "hdf-aai"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "batch processed, see the status of each item",
+                    content = @Content(array = @ArraySchema(
+                            schema = @Schema(implementation = CerebrumBatchItemResult.class)))),
+            @ApiResponse(responseCode = "401", description = "unauthorised", content = @Content()),
+            @ApiResponse(responseCode = "413", description = "too many items in the batch", content = @Content())
+    })
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<CerebrumBatchItemResult> createMarketUsers(
+            @Parameter(description = "array of users that need to be added to or updated in the marketplace",
+                    required = true, array = @ArraySchema(schema = @Schema(implementation = MarketUser.class)))
+            @RequestBody List<MarketUser> users)
+    {
+        List<CerebrumBatchItemResult> results =
+                batchProcessor.upsert(users, MarketUser.class, marketUserRepository);
+        entityCache.evictAll();
+        currentUserResolver.evictAll();
+        return results;
     }
 
     /* update user */
@@ -172,8 +321,9 @@ public class MarketUserController {
                     required = true) @Valid @RequestBody MarketUser newMarketUser,
             @Parameter(description = "UUID of the user that needs to be updated")
             @PathVariable() String uuid) {
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketUser.class);
 
-        return marketUserRepository.findByUuid(uuid)
+        MarketUser updatedUser = marketUserRepository.findByUuid(id)
                 .map(marketUser -> {
                     marketUser.setEmail(newMarketUser.getEmail());
                     marketUser.setFirstName(newMarketUser.getFirstName());
@@ -183,9 +333,12 @@ public class MarketUserController {
                     return marketUserRepository.save(marketUser);
                 })
                 .orElseGet(() -> {
-                    newMarketUser.setUuid(uuid);
+                    newMarketUser.setUuid(id);
                     return marketUserRepository.save(newMarketUser);
                 });
+        entityCache.evict(MarketUser.class);
+        currentUserResolver.evict(updatedUser);
+        return updatedUser;
     }
 
     /* JSON PATCH user */
@@ -212,11 +365,24 @@ public class MarketUserController {
                     required = true) @Valid @RequestBody JsonPatch patch,
             @Parameter(description = "UUID of the user that needs to be partially updated")
             @PathVariable() String uuid) {
-        return marketUserRepository.findByUuid(uuid)
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketUser.class);
+        CerebrumPatchStatement statement = patchCompiler.compile(patch, MarketUser.class);
+        if (statement != null) {
+            try {
+                MarketUser patchedUser = marketUserRepository.patchByUuid(id, statement)
+                        .orElseThrow(() -> new CerebrumEntityNotFoundException("user", id));
+                entityCache.evict(MarketUser.class);
+                currentUserResolver.evict(patchedUser);
+                return patchedUser;
+            } catch (JsonPatchException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid UUID or json patch body", e);
+            }
+        }
+        MarketUser patchedUser = marketUserRepository.findByUuid(id)
                 .map(marketUser -> {
                     try {
                         MarketUser marketUserPatched =
-                                CerebrumControllerUtilities.applyPatch(patch, marketUser, MarketUser.class);
+                                patchEngine.applyPatch(patch, marketUser, MarketUser.class);
                         marketUser.setEmail(marketUserPatched.getEmail());
                         marketUser.setFirstName(marketUserPatched.getFirstName());
                         marketUser.setLastName(marketUserPatched.getLastName());
@@ -231,7 +397,10 @@ public class MarketUserController {
                                 HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", e);
                     }
                 })
-                .orElseThrow(() -> new CerebrumEntityNotFoundException("user", uuid));
+                .orElseThrow(() -> new CerebrumEntityNotFoundException("user", id));
+        entityCache.evict(MarketUser.class);
+        currentUserResolver.evict(patchedUser);
+        return patchedUser;
     }
 
     /* delete user */
@@ -249,12 +418,15 @@ public class MarketUserController {
     public ResponseEntity<MarketUser> deleteMarketUser(
             @Parameter(description = "user UUID to delete", required = true)
             @PathVariable(name = "uuid") String uuid) {
-        Optional<MarketUser> marketUser = marketUserRepository.findByUuid(uuid);
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketUser.class);
+        Optional<MarketUser> marketUser = marketUserRepository.findByUuid(id);
         if (marketUser.isPresent()) {
-            marketUserRepository.deleteByUuid(uuid);
+            marketUserRepository.deleteByUuid(id);
+            entityCache.evict(MarketUser.class);
+            currentUserResolver.evict(marketUser.get());
             return ResponseEntity.noContent().build();
         } else {
-            throw new CerebrumEntityNotFoundException("user", uuid);
+            throw new CerebrumEntityNotFoundException("user", id);
         }
     }
 }
\ No newline at end of file
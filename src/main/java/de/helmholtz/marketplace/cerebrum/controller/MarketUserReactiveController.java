@@ -0,0 +1,95 @@
+package de.helmholtz.marketplace.cerebrum.controller;
+
+import de.helmholtz.marketplace.cerebrum.annotation.ReactiveVariant;
+import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumEntityNotFoundException;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFieldSet;
+import de.helmholtz.marketplace.cerebrum.repository.MarketUserReactiveRepository;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumControllerUtilities;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumFieldSelector;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumListRequest;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumNdjsonWriter;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Read endpoints of {@link MarketUserController} on the reactive driver,
+ * serving its mappings in profile {@code reactive}. Single users are read
+ * from the database on every request, not from the entity cache.
+ */
+@Component
+@ResponseBody
+@Validated
+@Profile("reactive")
+@ReactiveVariant(MarketUserController.class)
+public class MarketUserReactiveController
+{
+    private final MarketUserReactiveRepository marketUserRepository;
+    private final CerebrumNdjsonWriter ndjsonWriter;
+    private final CerebrumFieldSelector fieldSelector;
+    private final CerebrumEntitySchema entitySchema;
+
+    public MarketUserReactiveController(MarketUserReactiveRepository marketUserRepository,
+                                        CerebrumNdjsonWriter ndjsonWriter,
+                                        CerebrumFieldSelector fieldSelector,
+                                        CerebrumEntitySchema entitySchema)
+    {
+        this.marketUserRepository = marketUserRepository;
+        this.ndjsonWriter = ndjsonWriter;
+        this.fieldSelector = fieldSelector;
+        this.entitySchema = entitySchema;
+    }
+
+    public Mono<? extends Iterable<?>> getMarketUsers(
+            @RequestParam(value = "page", defaultValue = "0") Integer page,
+            @RequestParam(value = "size", defaultValue = "20") Integer size,
+            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "fields", required = false) List<String> fieldNames,
+            WebRequest webRequest)
+    {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketUser.class), fieldNames);
+        CerebrumListRequest list = new CerebrumListRequest(page, size, Sort.unsorted(), withTotal, cursor, false);
+        Mono<? extends Iterable<?>> users = list.<Mono<? extends Iterable<?>>>read(
+                after -> marketUserRepository.findAllAfter(after, size, 0, fields)
+                        .map(found -> found.map(user -> fieldSelector.select(user, fields))),
+                pageRequest -> marketUserRepository.findSlice(pageRequest, 0, fields)
+                        .map(found -> found.map(user -> fieldSelector.select(user, fields))),
+                pageRequest -> marketUserRepository.findAll(pageRequest, 0, fields)
+                        .map(found -> found.map(user -> fieldSelector.select(user, fields))));
+        return CerebrumControllerUtilities.unlessNotModified(webRequest, marketUserRepository.findListTag(), users);
+    }
+
+    public Flux<String> exportMarketUsers(
+            @RequestParam(value = "sort", defaultValue = "lastName.asc") List<String> sorts,
+            @RequestParam(value = "fields", required = false) List<String> fieldNames)
+    {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketUser.class), fieldNames);
+        return ndjsonWriter.chunks(marketUserRepository.streamAll(
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), fields)
+                .map(user -> fieldSelector.select(user, fields)));
+    }
+
+    public Mono<Object> getMarketUser(
+            @PathVariable() String uuid,
+            @RequestParam(value = "fields", required = false) List<String> fieldNames)
+    {
+        String id = CerebrumControllerUtilities.parseUuid(uuid, MarketUser.class);
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(MarketUser.class), fieldNames);
+        return marketUserRepository.findByUuid(id, 0, fields)
+                .map(user -> fieldSelector.select(user, fields))
+                .switchIfEmpty(Mono.error(() -> new CerebrumEntityNotFoundException("user", id)));
+    }
+}
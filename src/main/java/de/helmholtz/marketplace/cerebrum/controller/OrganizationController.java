@@ -3,10 +3,25 @@ package de.helmholtz.marketplace.cerebrum.controller;
 import de.helmholtz.marketplace.cerebrum.entities.Organization;
 import de.helmholtz.marketplace.cerebrum.errorhandling.CerebrumApiError;
 import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumEntityNotFoundException;
-import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidUuidException;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntityVersions;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFieldSet;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumKeysetSlice;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumPatchCompiler;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumPatchStatement;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumServiceFacets;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumSlice;
 import de.helmholtz.marketplace.cerebrum.repository.OrganizationRepository;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumAssetStore;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumBatchItemResult;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumBatchProcessor;
 import de.helmholtz.marketplace.cerebrum.utils.CerebrumControllerUtilities;
-import de.helmholtz.marketplace.cerebrum.utils.CerebrumEntityUuidGenerator;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumEntityCache;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumFieldSelector;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumListRequest;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumNdjsonWriter;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumLogoStore;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumPatchEngine;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -20,7 +35,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchException;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -32,19 +47,28 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
@@ -54,9 +78,38 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Tag(name = "organizations", description = "The Organization API")
 public class OrganizationController {
     private final OrganizationRepository organizationRepository;
+    private final CerebrumPatchEngine patchEngine;
+    private final CerebrumPatchCompiler patchCompiler;
+    private final CerebrumBatchProcessor batchProcessor;
+    private final CerebrumNdjsonWriter ndjsonWriter;
+    private final CerebrumFieldSelector fieldSelector;
+    private final CerebrumEntityCache entityCache;
+    private final CerebrumEntityVersions entityVersions;
+    private final CerebrumEntitySchema entitySchema;
+    private final CerebrumAssetStore assetStore;
+    private final CerebrumServiceFacets serviceFacets;
 
-    public OrganizationController(OrganizationRepository organizationRepository) {
+    public OrganizationController(OrganizationRepository organizationRepository, CerebrumPatchEngine patchEngine,
+                                  CerebrumPatchCompiler patchCompiler,
+                                  CerebrumBatchProcessor batchProcessor,
+                                  CerebrumNdjsonWriter ndjsonWriter,
+                                  CerebrumFieldSelector fieldSelector,
+                                  CerebrumEntityCache entityCache,
+                                  CerebrumEntityVersions entityVersions,
+                                  CerebrumEntitySchema entitySchema,
+                                  CerebrumAssetStore assetStore,
+                                  CerebrumServiceFacets serviceFacets) {
         this.organizationRepository = organizationRepository;
+        this.patchEngine = patchEngine;
+        this.patchCompiler = patchCompiler;
+        this.batchProcessor = batchProcessor;
+        this.ndjsonWriter = ndjsonWriter;
+        this.fieldSelector = fieldSelector;
+        this.entityCache = entityCache;
+        this.entityVersions = entityVersions;
+        this.entitySchema = entitySchema;
+        this.assetStore = assetStore;
+        this.serviceFacets = serviceFacets;
     }
 
     /* get Organizations */
@@ -71,7 +124,7 @@ public class OrganizationController {
                             schema = @Schema(implementation = CerebrumApiError.class))))
     })
     @GetMapping(path = "")
-    public Iterable<Organization> getOrganizations(
+    public Iterable<?> getOrganizations(
             @Parameter(description = "specify the page number")
             @RequestParam(value = "page", defaultValue = "0") @Min(0) Integer page,
             @Parameter(description = "limit the number of records returned in one page")
@@ -80,10 +133,76 @@ public class OrganizationController {
                     "or descending (desc) according to one or more of the organisation " +
                     "properties. Eg. to sort the list in ascending order base on the " +
                     "name property; the value will be set to name.asc")
-            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts)
+            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts,
+            @Parameter(description = "set to false to skip the total count; the response then " +
+                    "only tells whether there is a next page (hasNext)")
+            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal,
+            @Parameter(description = "opaque cursor for keyset pagination: pass an empty " +
+                    "value for the first page and the next cursor of the previous response " +
+                    "afterwards. The page parameter is ignored and the sort is taken from the cursor")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "how many levels of relationships to include: 0 for " +
+                    "none, 1 for the related entities, 2 for theirs as well")
+            @RequestParam(value = "depth", defaultValue = "0") @Min(0) @Max(2) int depth,
+            @Parameter(description = "comma separated organisation properties to return, " +
+                    "e.g. uuid,name; all if not given. Relations are only loaded if listed")
+            @RequestParam(value = "fields", required = false) List<String> fieldNames,
+            WebRequest webRequest)
     {
-        return organizationRepository.findAll(
-                PageRequest.of(page, size, Sort.by(CerebrumControllerUtilities.getOrders(sorts))));
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(Organization.class), fieldNames);
+        if (webRequest.checkNotModified(entityVersions.getListTag(Organization.class))) return null;
+        CerebrumListRequest list = new CerebrumListRequest(page, size,
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), withTotal, cursor, false);
+        return list.<Iterable<?>>read(
+                after -> {
+                    CerebrumKeysetSlice<Organization> organizations = organizationRepository.hydrate(
+                            organizationRepository.findAllAfter(after, size, fields), depth, fields);
+                    return fields.isAll() ? organizations : organizations.map(
+                            organization -> fieldSelector.select(organization, fields));
+                },
+                pageRequest -> {
+                    CerebrumSlice<Organization> organizations = organizationRepository.hydrate(
+                            organizationRepository.findSlice(pageRequest, fields), depth, fields);
+                    return fields.isAll() ? organizations : organizations.map(
+                            organization -> fieldSelector.select(organization, fields));
+                },
+                pageRequest -> {
+                    Page<Organization> organizations = organizationRepository.hydrate(
+                            organizationRepository.findAll(pageRequest, fields), depth, fields);
+                    return fields.isAll() ? organizations : organizations.map(
+                            organization -> fieldSelector.select(organization, fields));
+                });
+    }
+
+    /* export organizations */
+    @Operation(summary = "stream all organizations as newline delimited JSON",
+            description = "Writes one organisation per line without relations, " +
+                    "straight from the database cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "successful operation",
+                    content = @Content(mediaType = CerebrumNdjsonWriter.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = Organization.class))),
+            @ApiResponse(responseCode = "400", description = "invalid sort property",
+                    content = @Content(schema = @Schema(implementation = CerebrumApiError.class)))
+    })
+    @GetMapping(path = "/export",
+            produces = {CerebrumNdjsonWriter.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportOrganizations(
+            @Parameter(description = "sort the exported data in either ascending (asc) " +
+                    "or descending (desc) order according to one or more of the organisation " +
+                    "properties, e.g. name.asc")
+            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts,
+            @Parameter(description = "comma separated organisation properties to return, " +
+                    "e.g. uuid,name; all if not given")
+            @RequestParam(value = "fields", required = false) List<String> fieldNames)
+    {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(Organization.class), fieldNames);
+        Stream<?> organizations = organizationRepository.streamAll(
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), fields)
+                .map(organization -> fieldSelector.select(organization, fields));
+        return ResponseEntity.ok()
+                .contentType(CerebrumNdjsonWriter.APPLICATION_NDJSON)
+                .body(ndjsonWriter.body(organizations));
     }
 
     /* get Organization */
@@ -100,15 +219,70 @@ public class OrganizationController {
                     content = @Content(schema = @Schema(implementation = CerebrumApiError.class)))
     })
     @GetMapping(path = "/{uuid}")
-    public Organization getOrganization(
+    public ResponseEntity<byte[]> getOrganization(
             @Parameter(description = "ID of the organization that needs to be fetched")
-            @PathVariable(name = "uuid") String uuid)
+            @PathVariable(name = "uuid") String uuid,
+            @Parameter(description = "how many levels of relationships to include: 0 for " +
+                    "none, 1 for the related entities, 2 for theirs as well")
+            @RequestParam(value = "depth", defaultValue = "1") @Min(0) @Max(2) int depth,
+            @Parameter(description = "comma separated organisation properties to return, " +
+                    "e.g. uuid,name; all if not given. Relations are only loaded if listed")
+            @RequestParam(value = "fields", required = false) List<String> fieldNames,
+            WebRequest webRequest)
     {
-        if (Boolean.TRUE.equals(CerebrumEntityUuidGenerator.isValid(uuid))) {
-            return organizationRepository.findByUuid(uuid)
-                    .orElseThrow(() -> new CerebrumEntityNotFoundException("organization", uuid));
+        String id = CerebrumControllerUtilities.parseUuid(uuid, Organization.class);
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(Organization.class), fieldNames);
+        CerebrumEntityCache.Entry organization = entityCache.get(Organization.class, id,
+                "depth=" + fields.depth(depth) + ";fields=" + fields, webRequest,
+                key -> organizationRepository.findTagByUuid(key, fields.depth(depth)),
+                key -> organizationRepository.findTaggedByUuid(key, depth, fields)
+                        .map(tagged -> tagged.map(found -> fieldSelector.select(found, fields))))
+                .orElseThrow(() -> new CerebrumEntityNotFoundException("organization", id));
+        if (organization.getJson() == null) return null;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(organization.getJson());
+    }
+
+    /* get Organization logo */
+    @Operation(summary = "get the logo of an organization",
+            description = "Sends a logo stored by the marketplace, or redirects to the web address " +
+                    "of the logo. Byte ranges and conditional requests are supported")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "successful operation", content = @Content()),
+            @ApiResponse(responseCode = "206", description = "requested byte range", content = @Content()),
+            @ApiResponse(responseCode = "302", description = "logo is hosted elsewhere", content = @Content()),
+            @ApiResponse(responseCode = "304", description = "logo not modified", content = @Content()),
+            @ApiResponse(responseCode = "400", description = "invalid organization ID supplied",
+                    content = @Content(schema = @Schema(implementation = CerebrumApiError.class))),
+            @ApiResponse(responseCode = "404", description = "organization or logo not found",
+                    content = @Content(schema = @Schema(implementation = CerebrumApiError.class))),
+            @ApiResponse(responseCode = "416", description = "requested byte range not satisfiable",
+                    content = @Content())
+    })
+    @GetMapping(path = "/{uuid}/logo", produces = MediaType.ALL_VALUE)
+    public void getOrganizationLogo(
+            @Parameter(description = "ID of the organization whose logo needs to be fetched")
+            @PathVariable(name = "uuid") String uuid,
+            @Parameter(description = "content hash of the logo as in its img reference; " +
+                    "if it matches, the response may be cached for good")
+            @RequestParam(value = "v", required = false) String version,
+            HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        String id = CerebrumControllerUtilities.parseUuid(uuid, Organization.class);
+        CerebrumFieldSet fields = CerebrumFieldSet.of(
+                entitySchema.of(Organization.class), Collections.singletonList("img"));
+        String img = organizationRepository.findByUuid(id, 0, fields)
+                .orElseThrow(() -> new CerebrumEntityNotFoundException("organization", id))
+                .getImg();
+        if (img != null && (img.startsWith("http://") || img.startsWith("https://"))) {
+            response.sendRedirect(img);
+            return;
         }
-        else throw new CerebrumInvalidUuidException(uuid);
+        String name = CerebrumLogoStore.assetName(img)
+                .filter(asset -> assetStore.find(asset).isPresent())
+                .orElseThrow(() -> new CerebrumEntityNotFoundException("logo", id));
+        assetStore.serve(name, name.substring(0, name.indexOf('.')).equals(version), request, response);
     }
 
     /* create Organization */
@@ -129,6 +303,8 @@ public class OrganizationController {
             @Valid @RequestBody Organization organization, UriComponentsBuilder uriComponentsBuilder)
     {
         Organization createdOrg = organizationRepository.save(organization);
+        entityCache.evict(Organization.class);
+        serviceFacets.organizationChanged(createdOrg.getUuid());
         UriComponents uriComponents =
                 uriComponentsBuilder.path("/api/v0/organizations/{id}").buildAndExpand(createdOrg.getUuid());
         URI location = uriComponents.toUri();
@@ -138,6 +314,37 @@ public class OrganizationController {
                 .body(createdOrg);
     }
 
+    /* create Organizations in batch */
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "add or update several organizations at once",
+            description = "Items without an ID are created, items with an ID are created " +
+                    "or have their properties replaced. Relations are not modified. " +
+                    "Each item is reported with its own status",
+            security = @SecurityRequirement(name = "hdf-aai"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "batch processed, see the status of each item",
+                    content = @Content(array = @ArraySchema(
+                            schema = @Schema(implementation = CerebrumBatchItemResult.class)))),
+            @ApiResponse(responseCode = "401", description = "unauthorised", content = @Content()),
+            @ApiResponse(responseCode = "413", description = "too many items in the batch", content = @Content())
+    })
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<CerebrumBatchItemResult> createOrganizations(
+            @Parameter(description = "array of organizations that need to be added to or updated in the marketplace",
+                    required = true, array = @ArraySchema(schema = @Schema(implementation = Organization.class)))
+            @RequestBody List<Organization> organizations)
+    {
+        List<CerebrumBatchItemResult> results =
+                batchProcessor.upsert(organizations, Organization.class, organizationRepository);
+        entityCache.evictAll();
+        List<String> stored = new ArrayList<>(results.size());
+        for (CerebrumBatchItemResult result : results) {
+            if (result.getStatus().is2xxSuccessful()) stored.add(result.getUuid());
+        }
+        serviceFacets.organizationsChanged(stored);
+        return results;
+    }
+
     /* update Organization */
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "update an existing organization",
@@ -160,31 +367,31 @@ public class OrganizationController {
             @Parameter(description = "Unique identifier of the organization that needs to be updated")
             @PathVariable(name = "uuid") String uuid, UriComponentsBuilder uriComponentsBuilder)
     {
-        if (Boolean.TRUE.equals(CerebrumEntityUuidGenerator.isValid(uuid))) {
-            AtomicBoolean isCreated = new AtomicBoolean(false);
-            Organization org = organizationRepository.findByUuid(uuid)
-                    .map(organization -> {
-                        organization.setAbbreviation(newOrganization.getAbbreviation());
-                        organization.setName(newOrganization.getName());
-                        organization.setImg(newOrganization.getImg());
-                        organization.setUrl(newOrganization.getUrl());
-                        return organizationRepository.save(organization);
-                    })
-                    .orElseGet(() -> {
-                        newOrganization.setUuid(uuid);
-                        isCreated.set(true);
-                        return organizationRepository.save(newOrganization);
-                    });
-
-            if (isCreated.get()) {
-                UriComponents uriComponents =
-                        uriComponentsBuilder.path("/api/v0/organizations/{id}").buildAndExpand(org.getUuid());
-                URI location = uriComponents.toUri();
-                return ResponseEntity.created(location).body(org);
-            }
-            return ResponseEntity.ok().body(org);
+        String id = CerebrumControllerUtilities.parseUuid(uuid, Organization.class);
+        AtomicBoolean isCreated = new AtomicBoolean(false);
+        Organization org = organizationRepository.findByUuid(id)
+                .map(organization -> {
+                    organization.setAbbreviation(newOrganization.getAbbreviation());
+                    organization.setName(newOrganization.getName());
+                    organization.setImg(newOrganization.getImg());
+                    organization.setUrl(newOrganization.getUrl());
+                    return organizationRepository.save(organization);
+                })
+                .orElseGet(() -> {
+                    newOrganization.setUuid(id);
+                    isCreated.set(true);
+                    return organizationRepository.save(newOrganization);
+                });
+        entityCache.evict(Organization.class);
+        serviceFacets.organizationChanged(id);
+
+        if (isCreated.get()) {
+            UriComponents uriComponents =
+                    uriComponentsBuilder.path("/api/v0/organizations/{id}").buildAndExpand(org.getUuid());
+            URI location = uriComponents.toUri();
+            return ResponseEntity.created(location).body(org);
         }
-        else throw new CerebrumInvalidUuidException(uuid);
+        return ResponseEntity.ok().body(org);
     }
 
     /* JSON PATCH Organization */
@@ -212,25 +419,37 @@ public class OrganizationController {
             @Parameter(description = "ID of the organization that needs to be partially updated")
             @PathVariable(name = "uuid") String uuid)
     {
-        if (Boolean.TRUE.equals(CerebrumEntityUuidGenerator.isValid(uuid))) {
-            Organization partialUpdateOrganisation = organizationRepository.findByUuid(uuid)
-                    .map(organization -> {
-                        try {
-                            Organization organizationPatched =
-                                    CerebrumControllerUtilities.applyPatch(patch, organization, Organization.class);
-                            return organizationRepository.save(organizationPatched);
-                        } catch (JsonPatchException e) {
-                            throw new ResponseStatusException(
-                                    HttpStatus.BAD_REQUEST, "json patch body", e);
-                        } catch (JsonProcessingException e) {
-                            throw new ResponseStatusException(
-                                    HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", e);
-                        }
-                    })
-                    .orElseThrow(() -> new CerebrumEntityNotFoundException("organization", uuid));
-            return ResponseEntity.ok().body(partialUpdateOrganisation);
+        String id = CerebrumControllerUtilities.parseUuid(uuid, Organization.class);
+        CerebrumPatchStatement statement = patchCompiler.compile(patch, Organization.class);
+        if (statement != null) {
+            try {
+                Organization patched = organizationRepository.patchByUuid(id, statement)
+                        .orElseThrow(() -> new CerebrumEntityNotFoundException("organization", id));
+                entityCache.evict(Organization.class);
+                serviceFacets.organizationChanged(id);
+                return ResponseEntity.ok().body(patched);
+            } catch (JsonPatchException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "json patch body", e);
+            }
         }
-        else throw new CerebrumInvalidUuidException(uuid);
+        Organization partialUpdateOrganisation = organizationRepository.findByUuid(id)
+                .map(organization -> {
+                    try {
+                        Organization organizationPatched =
+                                patchEngine.applyPatch(patch, organization, Organization.class);
+                        return organizationRepository.save(organizationPatched);
+                    } catch (JsonPatchException e) {
+                        throw new ResponseStatusException(
+                                HttpStatus.BAD_REQUEST, "json patch body", e);
+                    } catch (JsonProcessingException e) {
+                        throw new ResponseStatusException(
+                                HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", e);
+                    }
+                })
+                .orElseThrow(() -> new CerebrumEntityNotFoundException("organization", id));
+        entityCache.evict(Organization.class);
+        serviceFacets.organizationChanged(id);
+        return ResponseEntity.ok().body(partialUpdateOrganisation);
     }
 
     /* delete Organization */
@@ -249,7 +468,10 @@ public class OrganizationController {
             @Parameter(description="organization id to delete", required=true)
             @PathVariable(name = "uuid") String uuid)
     {
-        organizationRepository.deleteByUuid(uuid);
+        String id = CerebrumControllerUtilities.parseUuid(uuid, Organization.class);
+        organizationRepository.deleteByUuid(id);
+        entityCache.evict(Organization.class);
+        serviceFacets.organizationRemoved(id);
         return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,105 @@
+package de.helmholtz.marketplace.cerebrum.controller;
+
+import de.helmholtz.marketplace.cerebrum.annotation.ReactiveVariant;
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumEntityNotFoundException;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFieldSet;
+import de.helmholtz.marketplace.cerebrum.repository.OrganizationReactiveRepository;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumControllerUtilities;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumFieldSelector;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumListRequest;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumNdjsonWriter;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.List;
+
+/**
+ * Read endpoints of {@link OrganizationController} on the reactive driver,
+ * serving its mappings in profile {@code reactive}. Single organizations
+ * are read from the database on every request, not from the entity cache.
+ */
+@Component
+@ResponseBody
+@Validated
+@Profile("reactive")
+@ReactiveVariant(OrganizationController.class)
+public class OrganizationReactiveController
+{
+    private final OrganizationReactiveRepository organizationRepository;
+    private final CerebrumNdjsonWriter ndjsonWriter;
+    private final CerebrumFieldSelector fieldSelector;
+    private final CerebrumEntitySchema entitySchema;
+
+    public OrganizationReactiveController(OrganizationReactiveRepository organizationRepository,
+                                          CerebrumNdjsonWriter ndjsonWriter,
+                                          CerebrumFieldSelector fieldSelector,
+                                          CerebrumEntitySchema entitySchema)
+    {
+        this.organizationRepository = organizationRepository;
+        this.ndjsonWriter = ndjsonWriter;
+        this.fieldSelector = fieldSelector;
+        this.entitySchema = entitySchema;
+    }
+
+    public Mono<? extends Iterable<?>> getOrganizations(
+            @RequestParam(value = "page", defaultValue = "0") @Min(0) Integer page,
+            @RequestParam(value = "size", defaultValue = "20") @Min(1) Integer size,
+            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts,
+            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "depth", defaultValue = "0") @Min(0) @Max(2) int depth,
+            @RequestParam(value = "fields", required = false) List<String> fieldNames,
+            WebRequest webRequest)
+    {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(Organization.class), fieldNames);
+        CerebrumListRequest list = new CerebrumListRequest(page, size,
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), withTotal, cursor, false);
+        Mono<? extends Iterable<?>> organizations = list.<Mono<? extends Iterable<?>>>read(
+                after -> organizationRepository.findAllAfter(after, size, depth, fields)
+                        .map(found -> found.map(
+                                organization -> fieldSelector.select(organization, fields))),
+                pageRequest -> organizationRepository.findSlice(pageRequest, depth, fields)
+                        .map(found -> found.map(
+                                organization -> fieldSelector.select(organization, fields))),
+                pageRequest -> organizationRepository.findAll(pageRequest, depth, fields)
+                        .map(found -> found.map(
+                                organization -> fieldSelector.select(organization, fields))));
+        return CerebrumControllerUtilities.unlessNotModified(
+                webRequest, organizationRepository.findListTag(), organizations);
+    }
+
+    public Flux<String> exportOrganizations(
+            @RequestParam(value = "sort", defaultValue = "name.asc") List<String> sorts,
+            @RequestParam(value = "fields", required = false) List<String> fieldNames)
+    {
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(Organization.class), fieldNames);
+        return ndjsonWriter.chunks(organizationRepository.streamAll(
+                Sort.by(CerebrumControllerUtilities.getOrders(sorts)), fields)
+                .map(organization -> fieldSelector.select(organization, fields)));
+    }
+
+    public Mono<Object> getOrganization(
+            @PathVariable(name = "uuid") String uuid,
+            @RequestParam(value = "depth", defaultValue = "1") @Min(0) @Max(2) int depth,
+            @RequestParam(value = "fields", required = false) List<String> fieldNames)
+    {
+        String id = CerebrumControllerUtilities.parseUuid(uuid, Organization.class);
+        CerebrumFieldSet fields = CerebrumFieldSet.of(entitySchema.of(Organization.class), fieldNames);
+        return organizationRepository.findByUuid(id, depth, fields)
+                .map(organization -> fieldSelector.select(organization, fields))
+                .switchIfEmpty(Mono.error(() -> new CerebrumEntityNotFoundException("organization", id)));
+    }
+}
@@ -0,0 +1,76 @@
+package de.helmholtz.marketplace.cerebrum.controller;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+import de.helmholtz.marketplace.cerebrum.errorhandling.CerebrumApiError;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntityVersions;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumSearchHit;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumSearchRepository;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
+
+@RestController
+@Validated
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE,
+        path = "${spring.data.rest.base-path}/search")
+@Tag(name = "search", description = "The Search API")
+public class SearchController
+{
+    private final CerebrumSearchRepository searchRepository;
+    private final CerebrumEntityVersions entityVersions;
+
+    public SearchController(CerebrumSearchRepository searchRepository, CerebrumEntityVersions entityVersions)
+    {
+        this.searchRepository = searchRepository;
+        this.entityVersions = entityVersions;
+    }
+
+    /* search Services and Organizations */
+    @Operation(summary = "search services and organizations",
+            description = "Finds services by name and description and organizations by name and " +
+                    "abbreviation, best matches first. Every word of the query matches whole words " +
+                    "and word prefixes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "successful operation",
+                    content = @Content(array = @ArraySchema(
+                            schema = @Schema(implementation = CerebrumSearchHit.class)))),
+            @ApiResponse(responseCode = "400", description = "invalid request",
+                    content = @Content(schema = @Schema(implementation = CerebrumApiError.class)))
+    })
+    @GetMapping(path = "")
+    public Page<CerebrumSearchHit> search(
+            @Parameter(description = "words to search for, e.g. cloud storage")
+            @RequestParam(value = "q") @Size(min = 1, max = 256) String query,
+            @Parameter(description = "specify the page number")
+            @RequestParam(value = "page", defaultValue = "0") @Min(0) Integer page,
+            @Parameter(description = "limit the number of records returned in one page")
+            @RequestParam(value = "size", defaultValue = "20") @Min(1) @Max(100) Integer size,
+            WebRequest webRequest)
+    {
+        if (webRequest.checkNotModified(entityVersions.getListTag(MarketService.class, Organization.class))) {
+            return null;
+        }
+        return searchRepository.search(query, PageRequest.of(page, size));
+    }
+}
@@ -32,6 +32,8 @@ public class MarketService {
     private LifecycleStatus lifecycleStatus;
     @Schema(description = "Specifies the authentication which a user can use to log in to a service")
     private Authentication authentication;
+    /* token changed on every write, not part of the JSON representation */
+    private String version;
     @Schema(description = "Indicates who is providing the service")
     private List<Organization> organizations;
 
@@ -49,6 +49,9 @@ public class MarketUser
     @NotBlank
     private String sub;
 
+    /* token changed on every write, not part of the JSON representation */
+    private String version;
+
     public String getUuid()
     {
         return uuid;
@@ -31,7 +31,9 @@ public class Organization {
     private String abbreviation;
 
     @Schema(description = "Valid web address link to the organisation logo " +
-            "or base64 encoded string of the organisation logo",
+            "or base64 encoded string of the organisation logo; an encoded logo is " +
+            "stored by the marketplace and replaced by a reference asset:<sha-256>.<extension>, " +
+            "served at /organizations/{uuid}/logo",
             example = "https://www.desy.de/++resource++desy/images/desy_logo_3c_web.svg")
     private String img;
 
@@ -40,6 +42,8 @@ public class Organization {
     @URL(message = "Web address")
     @NotNull
     private String url;
+    /* token changed on every write, not part of the JSON representation */
+    private String version;
     @Schema(description = "A list of Services which are provided by the organization")
     private Iterable<MarketService> serviceList;
     @Schema(description = "A list with users, to have a contact in case of trouble")
@@ -19,6 +19,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.multipart.support.MissingServletRequestPartException;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.NoHandlerFoundException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
@@ -30,6 +31,9 @@ import java.util.Objects;
 import java.util.Set;
 
 import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumEntityNotFoundException;
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidCursorException;
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidFieldException;
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidSortException;
 import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidUuidException;
 
 @ControllerAdvice
@@ -203,6 +207,48 @@ public class CerebrumExceptionHandler extends ResponseEntityExceptionHandler
                 cerebrumApiError, new HttpHeaders(), cerebrumApiError.getStatus());
     }
 
+    // 400
+    @ExceptionHandler({CerebrumInvalidCursorException.class})
+    private ResponseEntity<Object> handleInvalidCursor(
+            final CerebrumInvalidCursorException ex,
+            WebRequest request)
+    {
+        final String error = "Invalid cursor";
+
+        final CerebrumApiError cerebrumApiError =
+                new CerebrumApiError(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage(), error);
+        return new ResponseEntity<>(
+                cerebrumApiError, new HttpHeaders(), cerebrumApiError.getStatus());
+    }
+
+    // 400
+    @ExceptionHandler({CerebrumInvalidSortException.class})
+    private ResponseEntity<Object> handleInvalidSort(
+            final CerebrumInvalidSortException ex,
+            WebRequest request)
+    {
+        final String error = "Invalid sort";
+
+        final CerebrumApiError cerebrumApiError =
+                new CerebrumApiError(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage(), error);
+        return new ResponseEntity<>(
+                cerebrumApiError, new HttpHeaders(), cerebrumApiError.getStatus());
+    }
+
+    // 400
+    @ExceptionHandler({CerebrumInvalidFieldException.class})
+    private ResponseEntity<Object> handleInvalidField(
+            final CerebrumInvalidFieldException ex,
+            WebRequest request)
+    {
+        final String error = "Invalid field";
+
+        final CerebrumApiError cerebrumApiError =
+                new CerebrumApiError(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage(), error);
+        return new ResponseEntity<>(
+                cerebrumApiError, new HttpHeaders(), cerebrumApiError.getStatus());
+    }
+
     // 404
     @ExceptionHandler({CerebrumEntityNotFoundException.class})
     private ResponseEntity<Object> handleEntityNotFound(
@@ -216,6 +262,21 @@ public class CerebrumExceptionHandler extends ResponseEntityExceptionHandler
                 cerebrumApiError, new HttpHeaders(), cerebrumApiError.getStatus());
     }
 
+    /**
+     * ResponseStatusException: thrown by the controllers with the status
+     * that should be sent, e.g. 413 for oversized batches
+     */
+    @ExceptionHandler({ResponseStatusException.class})
+    public ResponseEntity<Object> handleResponseStatus(
+            final ResponseStatusException ex,
+            WebRequest request)
+    {
+        final CerebrumApiError cerebrumApiError =
+                new CerebrumApiError(ex.getStatus(), ex.getReason(), ex.getStatus().getReasonPhrase());
+        return new ResponseEntity<>(
+                cerebrumApiError, ex.getResponseHeaders(), cerebrumApiError.getStatus());
+    }
+
     /**
      * code: 404
      * Handle NoHandlerFoundException - we can customize our servlet
@@ -0,0 +1,9 @@
+package de.helmholtz.marketplace.cerebrum.errorhandling.exception;
+
+public class CerebrumInvalidCursorException extends RuntimeException
+{
+    public CerebrumInvalidCursorException(String cursor)
+    {
+        super(cursor + " is an invalid cursor");
+    }
+}
@@ -0,0 +1,9 @@
+package de.helmholtz.marketplace.cerebrum.errorhandling.exception;
+
+public class CerebrumInvalidFieldException extends RuntimeException
+{
+    public CerebrumInvalidFieldException(String field)
+    {
+        super(field + " is not a selectable field");
+    }
+}
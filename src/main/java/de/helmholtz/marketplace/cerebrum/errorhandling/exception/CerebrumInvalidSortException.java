@@ -0,0 +1,9 @@
+package de.helmholtz.marketplace.cerebrum.errorhandling.exception;
+
+public class CerebrumInvalidSortException extends RuntimeException
+{
+    public CerebrumInvalidSortException(String property)
+    {
+        super(property + " is not a sortable property");
+    }
+}
@@ -0,0 +1,66 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.neo4j.transaction.SharedSessionCreator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+
+/**
+ * Approximate number of nodes per entity label for the totals of paged
+ * listings. A label is counted when it is first asked for and then
+ * refreshed every {@code cerebrum.count.refresh-interval} milliseconds,
+ * so page requests never wait for a count query.
+ */
+@Component
+public class CerebrumEntityCounter
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CerebrumEntityCounter.class);
+
+    private final Session session;
+    private final CerebrumEntitySchema schema;
+    private final ConcurrentMap<Class<?>, Long> counts = new ConcurrentHashMap<>();
+
+    public CerebrumEntityCounter(SessionFactory sessionFactory, CerebrumEntitySchema schema)
+    {
+        this.session = SharedSessionCreator.createSharedSession(sessionFactory);
+        this.schema = schema;
+    }
+
+    public long count(Class<?> entityClass)
+    {
+        return counts.computeIfAbsent(entityClass, this::load);
+    }
+
+    @Scheduled(fixedDelayString = "${cerebrum.count.refresh-interval:60000}",
+            initialDelayString = "${cerebrum.count.refresh-interval:60000}")
+    public void refresh()
+    {
+        for (Class<?> entityClass : counts.keySet()) {
+            try {
+                counts.put(entityClass, load(entityClass));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not refresh the count of {}, keeping the previous one",
+                        entityClass.getSimpleName(), e);
+            }
+        }
+    }
+
+    private long load(Class<?> entityClass)
+    {
+        Entity entity = schema.of(entityClass);
+        Map<String, Object> row = session.query(
+                "MATCH (n:" + entity.label() + ") RETURN count(n) AS count",
+                Collections.emptyMap(), true).queryResults().iterator().next();
+        return ((Number) row.get("count")).longValue();
+    }
+}
@@ -0,0 +1,354 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.metadata.ClassInfo;
+import org.neo4j.ogm.metadata.FieldInfo;
+import org.neo4j.ogm.metadata.MetaData;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.typeconversion.AttributeConverter;
+import org.springframework.core.ResolvableType;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Whitelist of the graph properties of the cerebrum entities, taken from
+ * the OGM mapping metadata. Hand written Cypher only ever references
+ * labels and properties listed here, never raw user input.
+ */
+@Component
+public class CerebrumEntitySchema
+{
+    private final MetaData metaData;
+    private final ConcurrentMap<Class<?>, Entity> entities = new ConcurrentHashMap<>();
+
+    public CerebrumEntitySchema(SessionFactory sessionFactory)
+    {
+        this.metaData = sessionFactory.metaData();
+    }
+
+    public Entity of(Class<?> entityClass)
+    {
+        return entities.computeIfAbsent(entityClass, this::describe);
+    }
+
+    private Entity describe(Class<?> entityClass)
+    {
+        ClassInfo classInfo = metaData.classInfo(entityClass);
+        if (classInfo == null) throw new IllegalArgumentException(
+                entityClass.getName() + " is not a mapped entity");
+        FieldInfo identity = classInfo.primaryIndexField();
+        Map<String, Property> properties = new LinkedHashMap<>();
+        for (FieldInfo field : classInfo.propertyFields()) {
+            if (!field.persistableAsProperty() || field.isComposite()) continue;
+            boolean id = identity != null && identity.getName().equals(field.getName());
+            properties.put(field.getName(), new Property(field, id));
+        }
+        List<Relationship> relationships = new ArrayList<>();
+        for (FieldInfo field : classInfo.relationshipFields()) {
+            ResolvableType type = ResolvableType.forField(field.getField());
+            Class<?> related = Iterable.class.isAssignableFrom(type.toClass())
+                    ? type.as(Iterable.class).resolveGeneric(0) : type.resolve();
+            if (related != null) relationships.add(new Relationship(field, related));
+        }
+        return new Entity(classInfo.neo4jName(), entityClass, properties, relationships);
+    }
+
+    public static final class Entity
+    {
+        private final String label;
+        private final Class<?> type;
+        private final Map<String, Property> properties;
+        private final List<Relationship> relationships;
+        private final Set<Class<?>> relatedTypes = new LinkedHashSet<>();
+
+        private Entity(String label, Class<?> type, Map<String, Property> properties,
+                       List<Relationship> relationships)
+        {
+            this.label = label;
+            this.type = type;
+            this.properties = Collections.unmodifiableMap(properties);
+            this.relationships = Collections.unmodifiableList(relationships);
+            for (Relationship relationship : relationships) relatedTypes.add(relationship.getTargetType());
+        }
+
+        public String getLabel()
+        {
+            return label;
+        }
+
+        public Class<?> getType()
+        {
+            return type;
+        }
+
+        /**
+         * @param name java property name
+         * @return the scalar property, or null if there is none with that
+         *         name (relationships are never returned)
+         */
+        public Property getProperty(String name)
+        {
+            return properties.get(name);
+        }
+
+        public Collection<Property> getProperties()
+        {
+            return properties.values();
+        }
+
+        /**
+         * @return the property holding the prefixed entity uuid
+         */
+        public Property getId()
+        {
+            return properties.values().stream()
+                    .filter(Property::isId).findFirst()
+                    .orElseThrow(() -> new IllegalStateException(label + " has no id property"));
+        }
+
+        /**
+         * @return the property holding the version token, or null if the
+         *         entity is not versioned, see {@link CerebrumEntityVersions}
+         */
+        public Property getVersion()
+        {
+            return properties.get(CerebrumEntityVersions.PROPERTY);
+        }
+
+        /**
+         * @return the entity types referenced by relationship fields
+         */
+        public Set<Class<?>> getRelatedTypes()
+        {
+            return Collections.unmodifiableSet(relatedTypes);
+        }
+
+        /**
+         * @return the relationship fields
+         */
+        public List<Relationship> getRelationships()
+        {
+            return relationships;
+        }
+
+        /**
+         * @param name java name of the field
+         * @return the relationship field, or null if there is none with
+         *         that name
+         */
+        public Relationship getRelationship(String name)
+        {
+            for (Relationship relationship : relationships) {
+                if (relationship.getName().equals(name)) return relationship;
+            }
+            return null;
+        }
+
+        /**
+         * @param type relationship type as stored
+         * @param outgoing whether the relationship starts at this entity's node
+         * @return the field mapping such a relationship, or null if none does
+         */
+        public Relationship getRelationship(String type, boolean outgoing)
+        {
+            for (Relationship relationship : relationships) {
+                if (relationship.type.equals(type) && relationship.outgoing == outgoing) return relationship;
+            }
+            return null;
+        }
+
+        /**
+         * Create an entity from the stored properties of a node; relationships
+         * are not loaded.
+         */
+        public Object instantiate(Map<String, Object> graphProperties)
+        {
+            Object instance;
+            try {
+                instance = type.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot instantiate " + type.getName(), e);
+            }
+            for (Property property : properties.values()) {
+                Object value = property.fromGraph(graphProperties.get(property.getGraphName()));
+                if (value != null || !property.getType().isPrimitive()) property.write(instance, value);
+            }
+            return instance;
+        }
+
+        /**
+         * @return the label, quoted for use in Cypher
+         */
+        public String label()
+        {
+            return quote(label);
+        }
+    }
+
+    public static final class Property
+    {
+        private final Field field;
+        private final String name;
+        private final String graphName;
+        private final Class<?> type;
+        private final boolean id;
+        @SuppressWarnings("rawtypes")
+        private final AttributeConverter converter;
+
+        private Property(FieldInfo field, boolean id)
+        {
+            this.field = field.getField();
+            this.name = field.getName();
+            this.graphName = field.property();
+            this.type = field.getField().getType();
+            this.id = id;
+            this.converter = field.hasPropertyConverter() ? field.getPropertyConverter() : null;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getGraphName()
+        {
+            return graphName;
+        }
+
+        public Class<?> getType()
+        {
+            return type;
+        }
+
+        public boolean isId()
+        {
+            return id;
+        }
+
+        public boolean isVersion()
+        {
+            return CerebrumEntityVersions.PROPERTY.equals(name);
+        }
+
+        /**
+         * Convert an entity attribute the way the OGM stores it, e.g. enums
+         * and dates become strings.
+         */
+        @SuppressWarnings("unchecked")
+        public Object toGraph(Object value)
+        {
+            if (value == null || converter == null) return value;
+            return converter.toGraphProperty(value);
+        }
+
+        /**
+         * Convert a stored graph value back to the entity attribute type.
+         */
+        @SuppressWarnings("unchecked")
+        public Object fromGraph(Object value)
+        {
+            if (value == null) return null;
+            if (converter != null) return converter.toEntityAttribute(value);
+            if (value instanceof Number && type != value.getClass()) return convertNumber((Number) value);
+            return value;
+        }
+
+        private Object convertNumber(Number value)
+        {
+            if (type == int.class || type == Integer.class) return value.intValue();
+            if (type == long.class || type == Long.class) return value.longValue();
+            if (type == double.class || type == Double.class) return value.doubleValue();
+            if (type == float.class || type == Float.class) return value.floatValue();
+            if (type == short.class || type == Short.class) return value.shortValue();
+            if (type == byte.class || type == Byte.class) return value.byteValue();
+            return value;
+        }
+
+        /**
+         * @return the attribute value of the given entity
+         */
+        public Object read(Object entity)
+        {
+            return FieldInfo.read(field, entity);
+        }
+
+        public void write(Object entity, Object value)
+        {
+            FieldInfo.write(field, entity, value);
+        }
+
+        /**
+         * @param variable node variable
+         * @return property access expression for use in Cypher, e.g. n.`name`
+         */
+        public String on(String variable)
+        {
+            return variable + "." + quote(graphName);
+        }
+    }
+
+    public static final class Relationship
+    {
+        private final Field field;
+        private final String type;
+        private final boolean outgoing;
+        private final Class<?> targetType;
+
+        private Relationship(FieldInfo field, Class<?> targetType)
+        {
+            this.field = field.getField();
+            this.type = field.relationship();
+            this.outgoing = !org.neo4j.ogm.annotation.Relationship.INCOMING.equals(field.relationshipDirection());
+            this.targetType = targetType;
+        }
+
+        /**
+         * @return java name of the field
+         */
+        public String getName()
+        {
+            return field.getName();
+        }
+
+        public String getType()
+        {
+            return type;
+        }
+
+        public boolean isOutgoing()
+        {
+            return outgoing;
+        }
+
+        public Class<?> getTargetType()
+        {
+            return targetType;
+        }
+
+        /**
+         * Set the related entities, as a list for collection fields or as
+         * the first one for single ones.
+         */
+        public void write(Object entity, List<?> related)
+        {
+            Object value = field.getType().isAssignableFrom(List.class) ? related
+                    : related.isEmpty() ? null : related.get(0);
+            FieldInfo.write(field, entity, value);
+        }
+    }
+
+    static String quote(String name)
+    {
+        return "`" + name.replace("`", "``") + "`";
+    }
+}
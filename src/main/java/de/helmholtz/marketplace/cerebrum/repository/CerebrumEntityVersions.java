@@ -0,0 +1,208 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.session.event.Event;
+import org.neo4j.ogm.session.event.EventListenerAdapter;
+import org.springframework.data.neo4j.transaction.SharedSessionCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Property;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumGraphRepositorySupport.Statement;
+
+/**
+ * Version tokens of the cerebrum entities for conditional requests.
+ *
+ * Every write of a node stores a new random token in its version
+ * property: saves through the OGM get it from an event listener, the hand
+ * written statements of the repository fragments set it themselves. The
+ * entity tag of a node hashes its own token and the tokens of its direct
+ * neighbours, since those are part of its representation.
+ *
+ * Listings get weak tags from change counters per label, stored in the
+ * graph as {@code (:CerebrumChanges {label, epoch, count})} nodes, so all
+ * instances and restarts see the same tags. A write moves the counters of
+ * its labels on in its own transaction, once before it commits, so a tag
+ * never changes before the data it covers is visible. The epoch is set
+ * when a counter node is created and keeps the tags of a recreated graph
+ * apart. Nodes created twice by concurrent first writes are added up.
+ */
+@Component
+public class CerebrumEntityVersions
+{
+    public static final String PROPERTY = "version";
+    public static final String CHANGES = "CerebrumChanges";
+
+    private final CerebrumEntitySchema schema;
+    /* joins the transaction of the write, if there is one */
+    private final Session session;
+
+    public CerebrumEntityVersions(SessionFactory sessionFactory, CerebrumEntitySchema schema)
+    {
+        this.schema = schema;
+        this.session = SharedSessionCreator.createSharedSession(sessionFactory);
+        sessionFactory.register(new EventListenerAdapter()
+        {
+            @Override
+            public void onPreSave(Event event)
+            {
+                Property version = versionOf(event.getObject());
+                if (version != null) version.write(event.getObject(), newVersion());
+            }
+
+            @Override
+            public void onPostSave(Event event)
+            {
+                changed(event.getObject().getClass());
+            }
+
+            @Override
+            public void onPostDelete(Event event)
+            {
+                changed(event.getObject().getClass());
+            }
+        });
+    }
+
+    /**
+     * @return a fresh version token, the same kind Cypher's randomUUID() creates
+     */
+    public static String newVersion()
+    {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Count a write to nodes of the given type, when the transaction of the
+     * write commits or at once outside of transactions.
+     */
+    public void changed(Class<?> entityClass)
+    {
+        String label = schema.of(entityClass).getLabel();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            count(Collections.singleton(label));
+            return;
+        }
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            changes = new Changes();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(changes);
+        }
+        changes.labels.add(label);
+    }
+
+    /**
+     * @return weak entity tag of a listing of the given types; it changes
+     *         with every write to the types or to a type they embed
+     */
+    public String getListTag(Class<?>... entityClasses)
+    {
+        Statement statement = listTagStatement(entityClasses);
+        return listTag(session.query(statement.cypher, statement.parameters, true));
+    }
+
+    /* the counters a list tag hashes, read here or on the reactive driver */
+    Statement listTagStatement(Class<?>... entityClasses)
+    {
+        Set<String> labels = new LinkedHashSet<>();
+        for (Class<?> entityClass : entityClasses) {
+            labels.add(schema.of(entityClass).getLabel());
+            for (Class<?> related : schema.of(entityClass).getRelatedTypes()) {
+                labels.add(schema.of(related).getLabel());
+            }
+        }
+        return new Statement("MATCH (c:" + CHANGES + ") WHERE c.label IN $labels "
+                + "RETURN c.label AS label, c.epoch AS epoch, c.count AS count ORDER BY label, epoch",
+                Collections.singletonMap("labels", new ArrayList<>(labels)));
+    }
+
+    String listTag(Iterable<Map<String, Object>> rows)
+    {
+        StringBuilder state = new StringBuilder();
+        for (Map<String, Object> row : rows) {
+            state.append(row.get("label")).append(':').append(row.get("epoch")).append(':')
+                    .append(row.get("count")).append('|');
+        }
+        return "W/\"" + hash(state.toString()) + "\"";
+    }
+
+    /**
+     * @param version token of the node, may be null for nodes written
+     *        before versioning
+     * @param related ids and tokens of the neighbours in a stable order
+     * @return strong entity tag of the node
+     */
+    public String getTag(String version, List<String> related)
+    {
+        StringBuilder state = new StringBuilder(String.valueOf(version));
+        for (String neighbour : related) state.append('|').append(neighbour);
+        return "\"" + hash(state.toString()) + "\"";
+    }
+
+    private void count(Collection<String> labels)
+    {
+        session.query("UNWIND $labels AS label "
+                        + "MERGE (c:" + CHANGES + " {label: label}) "
+                        + "ON CREATE SET c.epoch = randomUUID(), c.count = 0 "
+                        + "SET c.count = c.count + 1",
+                Collections.singletonMap("labels", new ArrayList<>(labels)), false);
+    }
+
+    private Property versionOf(Object object)
+    {
+        Entity entity;
+        try {
+            entity = schema.of(object.getClass());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return entity.getVersion();
+    }
+
+    private static String hash(String state)
+    {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(state.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hex = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) hex.append(String.format("%02x", digest[i]));
+        return hex.toString();
+    }
+
+    /* the labels written in a transaction, counted once before it commits */
+    private final class Changes implements TransactionSynchronization
+    {
+        private final Set<String> labels = new LinkedHashSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly)
+        {
+            count(labels);
+        }
+
+        @Override
+        public void afterCompletion(int status)
+        {
+            TransactionSynchronizationManager.unbindResource(CerebrumEntityVersions.this);
+        }
+    }
+}
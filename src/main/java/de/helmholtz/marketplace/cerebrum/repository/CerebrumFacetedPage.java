@@ -0,0 +1,43 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Page of a listing together with the facet counts of
+ * {@link CerebrumServiceFacets}.
+ *
+ * @param <T> entity type
+ */
+public class CerebrumFacetedPage<T> extends PageImpl<T>
+{
+    private final Map<String, Map<String, Integer>> facets;
+
+    public CerebrumFacetedPage(Page<T> page, Map<String, Map<String, Integer>> facets)
+    {
+        this(page.getContent(), page, facets);
+    }
+
+    private CerebrumFacetedPage(List<T> content, Page<?> page, Map<String, Map<String, Integer>> facets)
+    {
+        super(content, page.getPageable(), page.getTotalElements());
+        this.facets = facets;
+    }
+
+    @Override
+    public <U> CerebrumFacetedPage<U> map(Function<? super T, ? extends U> converter)
+    {
+        return new CerebrumFacetedPage<>(getContent().stream().map(converter).collect(Collectors.toList()),
+                this, facets);
+    }
+
+    public Map<String, Map<String, Integer>> getFacets()
+    {
+        return facets;
+    }
+}
@@ -0,0 +1,150 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidFieldException;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Property;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Relationship;
+
+/**
+ * Sparse fieldset of a read: the properties and relationships a client
+ * asked for with {@code fields=}. The repositories read the requested
+ * properties with a map projection instead of the whole node, so the
+ * others are neither read from the store nor sent over Bolt, and
+ * relationships are only loaded when one is requested.
+ */
+public final class CerebrumFieldSet
+{
+    /**
+     * No restriction, whole entities are read.
+     */
+    public static final CerebrumFieldSet ALL = new CerebrumFieldSet(
+            null, Collections.emptyList(), Collections.emptyList());
+
+    private final Set<String> names;
+    private final Collection<Property> properties;
+    private final Collection<Relationship> relationships;
+
+    private CerebrumFieldSet(Set<String> names, Collection<Property> properties,
+                             Collection<Relationship> relationships)
+    {
+        this.names = names;
+        this.properties = properties;
+        this.relationships = relationships;
+    }
+
+    /**
+     * @param entity entity the fields belong to
+     * @param fields java names of scalar properties or relationship fields,
+     *        {@link #ALL} if null or empty
+     * @throws CerebrumInvalidFieldException if a field is not part of the
+     *         entity's JSON representation
+     */
+    public static CerebrumFieldSet of(Entity entity, List<String> fields)
+    {
+        if (fields == null) return ALL;
+        Set<String> names = new LinkedHashSet<>();
+        Map<String, Property> properties = new LinkedHashMap<>();
+        Map<String, Relationship> relationships = new LinkedHashMap<>();
+        for (String field : fields) {
+            String name = field.trim();
+            if (name.isEmpty()) continue;
+            Property property = entity.getProperty(name);
+            Relationship relationship = entity.getRelationship(name);
+            if (property != null && !property.isVersion()) properties.put(name, property);
+            else if (relationship != null) relationships.put(name, relationship);
+            else throw new CerebrumInvalidFieldException(name);
+            names.add(name);
+        }
+        if (names.isEmpty()) return ALL;
+        return new CerebrumFieldSet(Collections.unmodifiableSet(names),
+                Collections.unmodifiableCollection(properties.values()),
+                Collections.unmodifiableCollection(relationships.values()));
+    }
+
+    public boolean isAll()
+    {
+        return names == null;
+    }
+
+    /**
+     * @return the requested java names in request order, null for
+     *         {@link #ALL}
+     */
+    public Set<String> getNames()
+    {
+        return names;
+    }
+
+    /**
+     * @return whether the given relationship field is to be loaded
+     */
+    public boolean includes(Relationship relationship)
+    {
+        return isAll() || relationships.contains(relationship);
+    }
+
+    /**
+     * @param depth requested relationship depth
+     * @return the depth to load, 0 if no relationship field is requested
+     */
+    public int depth(int depth)
+    {
+        return isAll() || !relationships.isEmpty() ? depth : 0;
+    }
+
+    /**
+     * @param variable node variable
+     * @param required properties read in addition to the requested ones,
+     *        e.g. sort keys; the id is always read
+     * @return the node itself, or a map projection of the properties to
+     *         read keyed by their graph names, e.g. n{.`uuid`, .`name`}
+     */
+    String projection(String variable, Entity entity, Collection<Property> required)
+    {
+        if (isAll()) return variable;
+        Set<Property> read = new LinkedHashSet<>();
+        read.add(entity.getId());
+        read.addAll(required);
+        read.addAll(properties);
+        StringBuilder projection = new StringBuilder(variable).append('{');
+        for (Property property : read) {
+            projection.append('.').append(CerebrumEntitySchema.quote(property.getGraphName())).append(", ");
+        }
+        projection.setLength(projection.length() - 2);
+        return projection.append('}').toString();
+    }
+
+    /**
+     * @return the requested names sorted, "*" for {@link #ALL}; equal for
+     *         equal field sets, e.g. for cache keys
+     */
+    @Override
+    public String toString()
+    {
+        return isAll() ? "*" : String.join(",", new TreeSet<>(names));
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof CerebrumFieldSet)) return false;
+        CerebrumFieldSet other = (CerebrumFieldSet) o;
+        return isAll() ? other.isAll() : !other.isAll() && names.equals(other.names);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return isAll() ? 0 : names.hashCode();
+    }
+}
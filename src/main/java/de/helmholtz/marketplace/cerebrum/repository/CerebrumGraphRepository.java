@@ -0,0 +1,186 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import com.github.fge.jsonpatch.JsonPatchException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Hand written Cypher operations shared by the cerebrum repositories, see
+ * {@link CerebrumGraphRepositorySupport}.
+ *
+ * @param <T> entity type
+ */
+public interface CerebrumGraphRepository<T>
+{
+    /**
+     * Run a compiled JSON Patch against the node with the given id.
+     *
+     * @return the patched entity, or empty if there is no such node
+     * @throws JsonPatchException if the node exists but a test operation
+     *         of the patch failed
+     */
+    Optional<T> patchByUuid(String uuid, CerebrumPatchStatement statement) throws JsonPatchException;
+
+    /**
+     * Create or update the scalar properties of the given entities, keyed
+     * by their id, with a single UNWIND statement in one transaction.
+     * Relationships are left untouched. Every entity must carry an id and
+     * ids must be unique within the collection.
+     *
+     * @return the ids of the entities that did not exist before
+     */
+    Set<String> upsertAll(Collection<T> entities);
+
+    /**
+     * Entity tag of the node with the given id as loaded with the given
+     * relationship depth, computed from the version tokens of the node and
+     * the nodes up to that many hops away without loading either.
+     *
+     * @return the strong tag, or empty if there is no such node
+     */
+    Optional<String> findTagByUuid(String uuid, int depth);
+
+    /**
+     * The node with the given id as {@link #findByUuid(String, int, CerebrumFieldSet)}
+     * loads it, together with the tag {@link #findTagByUuid(String, int)}
+     * gives for the relationship depth loaded, read in the same statement.
+     *
+     * @return the entity and its tag, or empty if there is no such node
+     */
+    Optional<CerebrumTagged<T>> findTaggedByUuid(String uuid, int depth, CerebrumFieldSet fields);
+
+    /**
+     * The node with the given id and its relationships up to the given
+     * depth, see {@link #hydrate(Iterable, int)}.
+     *
+     * @return the entity, or empty if there is no such node
+     */
+    default Optional<T> findByUuid(String uuid, int depth)
+    {
+        return findByUuid(uuid, depth, CerebrumFieldSet.ALL);
+    }
+
+    /**
+     * The node with the given id, with only the requested properties read,
+     * and the requested relationships up to the given depth.
+     *
+     * @return the entity, or empty if there is no such node
+     */
+    Optional<T> findByUuid(String uuid, int depth, CerebrumFieldSet fields);
+
+    /**
+     * Load the relationships of the given entities, which carry their
+     * scalar properties only, up to the given depth: 0 loads nothing, 1
+     * the direct neighbours and 2 their neighbours as well. Each level is
+     * read with one query per label for all entities at once. Related
+     * entities are fresh instances per level, so the result is a tree
+     * without cycles and safe to serialize.
+     *
+     * @return the given entities
+     */
+    default <C extends Iterable<T>> C hydrate(C entities, int depth)
+    {
+        return hydrate(entities, depth, CerebrumFieldSet.ALL);
+    }
+
+    /**
+     * Like {@link #hydrate(Iterable, int)}, but only the requested
+     * relationship fields of the given entities are loaded; nothing at all
+     * if the fields name no relationship.
+     *
+     * @return the given entities
+     */
+    <C extends Iterable<T>> C hydrate(C entities, int depth, CerebrumFieldSet fields);
+
+    /**
+     * Delete the node with the given id together with its relationships.
+     * Replaces the derived delete query, which bypasses the OGM events and
+     * so would not count as a change for {@link CerebrumEntityVersions}.
+     *
+     * @return the number of deleted nodes
+     */
+    Long deleteByUuid(String uuid);
+
+    /**
+     * Stream all entities of the label straight from the result cursor, so
+     * that memory use does not depend on the number of nodes. Entities
+     * carry their scalar properties only. The stream holds a database
+     * session and has to be closed.
+     *
+     * @param sort order by java property names, the id is always added as
+     *        the last sort key
+     * @throws de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidSortException
+     *         if the sort refers to an unknown property
+     */
+    default Stream<T> streamAll(Sort sort)
+    {
+        return streamAll(sort, CerebrumFieldSet.ALL);
+    }
+
+    /**
+     * Like {@link #streamAll(Sort)}, reading only the requested properties.
+     */
+    Stream<T> streamAll(Sort sort, CerebrumFieldSet fields);
+
+    /**
+     * Keyset pagination: the entities following the cursor position in
+     * cursor order, found by comparing sort keys instead of skipping
+     * rows, so deep pages cost the same as the first one. Entities carry
+     * their scalar properties only.
+     *
+     * @throws de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidCursorException
+     *         if the cursor does not fit the sort keys of the entity
+     */
+    default CerebrumKeysetSlice<T> findAllAfter(CerebrumKeysetCursor cursor, int size)
+    {
+        return findAllAfter(cursor, size, CerebrumFieldSet.ALL);
+    }
+
+    /**
+     * Like {@link #findAllAfter(CerebrumKeysetCursor, int)}, reading only
+     * the requested properties and the sort keys.
+     */
+    CerebrumKeysetSlice<T> findAllAfter(CerebrumKeysetCursor cursor, int size, CerebrumFieldSet fields);
+
+    /**
+     * Offset page without a count query: reads one row more than the page
+     * size to find out whether there is a next page. Entities carry their
+     * scalar properties only.
+     */
+    default CerebrumSlice<T> findSlice(Pageable pageable)
+    {
+        return findSlice(pageable, CerebrumFieldSet.ALL);
+    }
+
+    /**
+     * Like {@link #findSlice(Pageable)}, reading only the requested
+     * properties and the sort keys.
+     */
+    CerebrumSlice<T> findSlice(Pageable pageable, CerebrumFieldSet fields);
+
+    /**
+     * Offset page whose total is the approximate count kept by
+     * {@link CerebrumEntityCounter} instead of a count query per request.
+     * Entities carry their scalar properties only.
+     */
+    Page<T> findAll(Pageable pageable);
+
+    /**
+     * Like {@link #findAll(Pageable)}, reading only the requested
+     * properties and the sort keys.
+     */
+    Page<T> findAll(Pageable pageable, CerebrumFieldSet fields);
+
+    /**
+     * Offset page of the entities with the given ids, e.g. the matches of
+     * an in-memory filter. The total is the number of ids, so there is no
+     * count query either; ids without a node are skipped.
+     */
+    Page<T> findAllByUuidIn(Collection<String> uuids, Pageable pageable, CerebrumFieldSet fields);
+}
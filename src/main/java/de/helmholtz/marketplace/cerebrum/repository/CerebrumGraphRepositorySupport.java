@@ -0,0 +1,604 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import com.github.fge.jsonpatch.JsonPatchException;
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.session.event.Event;
+import org.neo4j.ogm.session.event.PersistenceEvent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.neo4j.transaction.SharedSessionCreator;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidCursorException;
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidSortException;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Property;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Relationship;
+
+/**
+ * Base class of the repository fragments implementing
+ * {@link CerebrumGraphRepository}. Statements run on the shared,
+ * transaction aware OGM session, so results are mapped and registered
+ * exactly like the ones of the derived finders.
+ *
+ * @param <T> entity type
+ */
+public abstract class CerebrumGraphRepositorySupport<T> implements CerebrumGraphRepository<T>
+{
+    /**
+     * Return clause the OGM needs to hydrate node {@code n} together with
+     * its direct relationships.
+     */
+    static final String RETURN_WITH_RELATIONSHIPS = "RETURN n, [[(n)-[r]-(m) | [r, m]]]";
+
+    private final SessionFactory sessionFactory;
+    private final CerebrumEntitySchema schema;
+    private final CerebrumEntityCounter counter;
+    private final CerebrumEntityVersions versions;
+    private final CerebrumQueryRecorder recorder;
+    private volatile Driver driver;
+    protected final Session session;
+    protected final Entity entity;
+
+    protected CerebrumGraphRepositorySupport(
+            SessionFactory sessionFactory, CerebrumEntitySchema schema,
+            CerebrumEntityCounter counter, CerebrumEntityVersions versions, CerebrumQueryRecorder recorder,
+            Class<T> entityClass)
+    {
+        this.sessionFactory = sessionFactory;
+        this.schema = schema;
+        this.counter = counter;
+        this.versions = versions;
+        this.recorder = recorder;
+        this.session = SharedSessionCreator.createSharedSession(sessionFactory);
+        this.entity = schema.of(entityClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Class<T> type()
+    {
+        return (Class<T>) entity.getType();
+    }
+
+    @Override
+    @Transactional
+    public Optional<T> patchByUuid(String uuid, CerebrumPatchStatement statement) throws JsonPatchException
+    {
+        Map<String, Object> parameters = new HashMap<>(statement.getParameters());
+        parameters.put("uuid", uuid);
+        Iterator<T> patched = session.query(type(), statement.getCypher(), parameters).iterator();
+        if (patched.hasNext()) {
+            versions.changed(type());
+            return Optional.of(patched.next());
+        }
+        if (statement.isConditional() && exists(uuid)) throw new JsonPatchException("test operation failed");
+        return Optional.empty();
+    }
+
+    @Override
+    @Transactional
+    public Set<String> upsertAll(Collection<T> entities)
+    {
+        Property id = entity.getId();
+        List<Map<String, Object>> rows = new ArrayList<>(entities.size());
+        for (T item : entities) {
+            // the statement bypasses the OGM, so the listeners see the entities as a save would show them
+            if (session.eventsEnabled()) session.notifyListeners(new PersistenceEvent(item, Event.TYPE.PRE_SAVE));
+            Map<String, Object> properties = new HashMap<>();
+            for (Property property : entity.getProperties()) {
+                if (!property.isId() && !property.isVersion()) {
+                    properties.put(property.getGraphName(), property.toGraph(property.read(item)));
+                }
+            }
+            Map<String, Object> row = new HashMap<>(2);
+            row.put("uuid", id.read(item));
+            row.put("properties", properties);
+            rows.add(row);
+        }
+        String key = "{" + CerebrumEntitySchema.quote(id.getGraphName()) + ": row.uuid}";
+        String version = entity.getVersion() == null ? "" : ", " + entity.getVersion().on("n") + " = randomUUID()";
+        Set<String> created = new HashSet<>();
+        session.query("UNWIND $rows AS row "
+                        + "OPTIONAL MATCH (e:" + entity.label() + " " + key + ") "
+                        + "WITH row, e IS NULL AS created "
+                        + "MERGE (n:" + entity.label() + " " + key + ") "
+                        + "SET n += row.properties" + version + " "
+                        + "RETURN row.uuid AS uuid, created",
+                Collections.singletonMap("rows", rows), false)
+                .queryResults()
+                .forEach(result -> {
+                    if (Boolean.TRUE.equals(result.get("created"))) created.add((String) result.get("uuid"));
+                });
+        versions.changed(type());
+        return created;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> findTagByUuid(String uuid, int depth)
+    {
+        Iterator<Map<String, Object>> rows = session.query(tagged(uuid, depth, null).cypher,
+                Collections.singletonMap("uuid", uuid), true).queryResults().iterator();
+        if (!rows.hasNext()) return Optional.empty();
+        return Optional.of(tag(rows.next()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public Optional<CerebrumTagged<T>> findTaggedByUuid(String uuid, int depth, CerebrumFieldSet fields)
+    {
+        Statement statement = tagged(uuid, fields.depth(depth), fields);
+        Iterator<Map<String, Object>> rows = session.query(statement.cypher, statement.parameters, true)
+                .queryResults().iterator();
+        if (!rows.hasNext()) return Optional.empty();
+        Map<String, Object> row = rows.next();
+        T found = type().cast(entity.instantiate((Map<String, Object>) row.get("n")));
+        hydrate(Collections.singletonList(found), depth, fields);
+        return Optional.of(new CerebrumTagged<>(found, tag(row)));
+    }
+
+    /*
+     * the version of node n and the ids and versions of the nodes up to
+     * depth hops away, sorted, and with fields the properties of n to load
+     */
+    Statement tagged(String uuid, int depth, CerebrumFieldSet fields)
+    {
+        Property id = entity.getId();
+        String version = entity.getVersion() == null ? "null" : entity.getVersion().on("n");
+        String related = entity.getVersion() == null ? id.on("m")
+                : id.on("m") + " + ':' + coalesce(" + entity.getVersion().on("m") + ", '')";
+        String neighbourhood = depth <= 0 ? "WITH n, null AS related "
+                : "OPTIONAL MATCH (n)-[*1.." + depth + "]-(m) WHERE m <> n "
+                        + "WITH DISTINCT n, " + related + " AS related ORDER BY related ";
+        String node = fields == null ? ""
+                : (fields.isAll() ? "n{.*}" : fields.projection("n", entity, Collections.emptyList())) + " AS n, ";
+        return new Statement("MATCH (n:" + entity.label() + ") WHERE " + id.on("n") + " = $uuid "
+                + neighbourhood
+                + "RETURN " + node + version + " AS version, collect(related) AS related",
+                Collections.singletonMap("uuid", uuid));
+    }
+
+    private String tag(Map<String, Object> row)
+    {
+        List<String> neighbours = new ArrayList<>();
+        for (Object neighbour : toIterable(row.get("related"))) neighbours.add(String.valueOf(neighbour));
+        return versions.getTag((String) row.get("version"), neighbours);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<T> findByUuid(String uuid, int depth, CerebrumFieldSet fields)
+    {
+        List<T> found = load(byUuid(uuid, fields), fields);
+        if (found.isEmpty()) return Optional.empty();
+        return Optional.of(hydrate(found, depth, fields).get(0));
+    }
+
+    Statement byUuid(String uuid, CerebrumFieldSet fields)
+    {
+        return new Statement("MATCH (n:" + entity.label() + ") WHERE " + entity.getId().on("n") + " = $uuid "
+                + "RETURN " + fields.projection("n", entity, Collections.emptyList()) + " AS n",
+                Collections.singletonMap("uuid", uuid));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public <C extends Iterable<T>> C hydrate(C entities, int depth, CerebrumFieldSet fields)
+    {
+        List<Object> nodes = new ArrayList<>();
+        entities.forEach(nodes::add);
+        hydrate(entity, nodes, fields.depth(depth), fields);
+        return entities;
+    }
+
+    /*
+     * one query for the relationships of all nodes of a level, then the
+     * next level; the field set only restricts the first one
+     */
+    private void hydrate(Entity source, List<Object> nodes, int depth, CerebrumFieldSet fields)
+    {
+        if (depth <= 0 || nodes.isEmpty() || source.getRelationships().isEmpty()) return;
+        Statement statement = relationships(source, nodes, fields);
+        Map<Entity, List<Object>> nextLevel = link(source, nodes,
+                session.query(statement.cypher, statement.parameters, true).queryResults(), fields);
+        for (Map.Entry<Entity, List<Object>> level : nextLevel.entrySet()) {
+            hydrate(level.getKey(), level.getValue(), depth - 1, CerebrumFieldSet.ALL);
+        }
+    }
+
+    /* relationships of the given nodes of entity source, one row each */
+    Statement relationships(Entity source, List<Object> nodes, CerebrumFieldSet fields)
+    {
+        Property id = source.getId();
+        Set<Object> ids = new LinkedHashSet<>();
+        for (Object node : nodes) ids.add(id.read(node));
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("ids", new ArrayList<>(ids));
+        String types = "";
+        if (!fields.isAll()) {
+            Set<String> included = new HashSet<>();
+            for (Relationship relationship : source.getRelationships()) {
+                if (fields.includes(relationship)) included.add(relationship.getType());
+            }
+            parameters.put("types", new ArrayList<>(included));
+            types = "AND type(r) IN $types ";
+        }
+
+        return new Statement(
+                "MATCH (n:" + source.label() + ")-[r]-(m) WHERE " + id.on("n") + " IN $ids " + types
+                        + "RETURN " + id.on("n") + " AS source, type(r) AS type, startNode(r) = n AS outgoing, "
+                        + "labels(m) AS labels, properties(m) AS properties ORDER BY id(r)",
+                parameters);
+    }
+
+    /*
+     * sets the relationships of the nodes from the rows of their
+     * statement and returns the related entities by type
+     */
+    @SuppressWarnings("unchecked")
+    Map<Entity, List<Object>> link(Entity source, List<Object> nodes, Iterable<Map<String, Object>> rows,
+                                   CerebrumFieldSet fields)
+    {
+        Property id = source.getId();
+        Map<Object, List<Object>> byId = new LinkedHashMap<>();
+        for (Object node : nodes) byId.computeIfAbsent(id.read(node), key -> new ArrayList<>()).add(node);
+        Map<Object, Map<Relationship, List<Object>>> related = new HashMap<>();
+        Map<Entity, List<Object>> nextLevel = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            Relationship relationship = source.getRelationship(
+                    (String) row.get("type"), Boolean.TRUE.equals(row.get("outgoing")));
+            if (relationship == null || !fields.includes(relationship)) continue;
+            Entity target = schema.of(relationship.getTargetType());
+            if (!contains(toIterable(row.get("labels")), target.getLabel())) continue;
+            Object neighbour = target.instantiate((Map<String, Object>) row.get("properties"));
+            related.computeIfAbsent(row.get("source"), key -> new HashMap<>())
+                    .computeIfAbsent(relationship, key -> new ArrayList<>()).add(neighbour);
+            nextLevel.computeIfAbsent(target, key -> new ArrayList<>()).add(neighbour);
+        }
+
+        for (Map.Entry<Object, List<Object>> group : byId.entrySet()) {
+            Map<Relationship, List<Object>> links = related.getOrDefault(group.getKey(), Collections.emptyMap());
+            for (Object node : group.getValue()) {
+                for (Relationship relationship : source.getRelationships()) {
+                    if (!fields.includes(relationship)) continue;
+                    relationship.write(node, links.getOrDefault(relationship, Collections.emptyList()));
+                }
+            }
+        }
+        return nextLevel;
+    }
+
+    /*
+     * entities from a statement returning node n, or a map projection of
+     * it as n, which the OGM cannot map
+     */
+    @SuppressWarnings("unchecked")
+    private List<T> load(Statement statement, CerebrumFieldSet fields)
+    {
+        List<T> content = new ArrayList<>();
+        if (fields.isAll()) {
+            session.query(type(), statement.cypher, statement.parameters).forEach(content::add);
+            return content;
+        }
+        for (Map<String, Object> row : session.query(statement.cypher, statement.parameters, true)) {
+            content.add(type().cast(entity.instantiate((Map<String, Object>) row.get("n"))));
+        }
+        return content;
+    }
+
+    private static boolean contains(Iterable<?> values, Object value)
+    {
+        for (Object candidate : values) if (value.equals(candidate)) return true;
+        return false;
+    }
+
+    @Override
+    @Transactional
+    public Long deleteByUuid(String uuid)
+    {
+        Object deleted = session.query(
+                "MATCH (n:" + entity.label() + ") WHERE " + entity.getId().on("n") + " = $uuid "
+                        + "DETACH DELETE n RETURN count(n) AS deleted",
+                Collections.singletonMap("uuid", uuid), false)
+                .queryResults().iterator().next().get("deleted");
+        versions.changed(type());
+        return ((Number) deleted).longValue();
+    }
+
+    /* the OGM returns collected lists as arrays */
+    private static Iterable<?> toIterable(Object value)
+    {
+        if (value instanceof Object[]) return Arrays.asList((Object[]) value);
+        if (value instanceof Iterable) return (Iterable<?>) value;
+        return Collections.emptyList();
+    }
+
+    /*
+     * the OGM session materializes whole results, so the export reads
+     * through the bolt driver underneath it, recording the statement itself
+     */
+    @Override
+    public Stream<T> streamAll(Sort sort, CerebrumFieldSet fields)
+    {
+        Statement statement = all(sort, fields);
+        CerebrumQueryRecorder.Execution execution = recorder.start(statement.cypher, statement.parameters, 1);
+        org.neo4j.driver.Session driverSession = driver().session(SessionConfig.builder().withDefaultAccessMode(AccessMode.READ).build());
+        try {
+            return driverSession.run(statement.cypher).stream()
+                    .peek(record -> execution.row())
+                    .map(record -> type().cast(entity.instantiate(record.get(0).asMap())))
+                    .onClose(execution::finish)
+                    .onClose(driverSession::close);
+        } catch (RuntimeException e) {
+            execution.finish();
+            driverSession.close();
+            throw e;
+        }
+    }
+
+    Statement all(Sort sort, CerebrumFieldSet fields)
+    {
+        List<SortKey> keys = sortKeys(sort);
+        return new Statement("MATCH (n:" + entity.label() + ") RETURN " + projection(fields, keys) + orderBy(keys),
+                Collections.emptyMap());
+    }
+
+    CerebrumQueryRecorder recorder()
+    {
+        return recorder;
+    }
+
+    CerebrumEntityVersions versions()
+    {
+        return versions;
+    }
+
+    Driver driver()
+    {
+        if (driver == null) {
+            Driver unwrapped = sessionFactory.unwrap(Driver.class);
+            if (unwrapped == null) {
+                // the OGM connects on first use only
+                session.query("RETURN 1", Collections.emptyMap(), true);
+                unwrapped = sessionFactory.unwrap(Driver.class);
+            }
+            if (unwrapped == null) throw new IllegalStateException("Streaming requires the bolt driver");
+            driver = unwrapped;
+        }
+        return driver;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CerebrumKeysetSlice<T> findAllAfter(CerebrumKeysetCursor cursor, int size, CerebrumFieldSet fields)
+    {
+        return keysetSlice(cursor, size, load(after(cursor, size, fields), fields));
+    }
+
+    /* one more than size, which tells whether there is a next page */
+    Statement after(CerebrumKeysetCursor cursor, int size, CerebrumFieldSet fields)
+    {
+        List<SortKey> keys = sortKeys(cursor.getSort());
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder cypher = new StringBuilder("MATCH (n:").append(entity.label()).append(')');
+        if (cursor.getKeys() != null) {
+            if (cursor.getKeys().size() != keys.size()) throw new CerebrumInvalidCursorException(cursor.encode());
+            cypher.append(" WHERE ").append(after(keys, cursor.getKeys(), 0, parameters));
+        }
+        String orderBy = orderBy(keys);
+        parameters.put("limit", size + 1);
+        cypher.append(" WITH n").append(orderBy).append(" LIMIT $limit RETURN ").append(projection(fields, keys))
+                .append(" AS n").append(orderBy);
+        return new Statement(cypher.toString(), parameters);
+    }
+
+    CerebrumKeysetSlice<T> keysetSlice(CerebrumKeysetCursor cursor, int size, List<T> content)
+    {
+        if (content.size() <= size) return new CerebrumKeysetSlice<>(content, null);
+
+        List<SortKey> keys = sortKeys(cursor.getSort());
+        content = content.subList(0, size);
+        T last = content.get(size - 1);
+        List<Object> lastKeys = new ArrayList<>(keys.size());
+        for (SortKey key : keys) lastKeys.add(key.property.toGraph(key.property.read(last)));
+        return new CerebrumKeysetSlice<>(content, new CerebrumKeysetCursor(cursor.getSort(), lastKeys).encode());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CerebrumSlice<T> findSlice(Pageable pageable, CerebrumFieldSet fields)
+    {
+        List<T> content = findRange(pageable.getSort(), pageable.getOffset(), pageable.getPageSize() + 1, fields);
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) content = content.subList(0, pageable.getPageSize());
+        return new CerebrumSlice<>(content, pageable, hasNext);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<T> findAll(Pageable pageable)
+    {
+        return findAll(pageable, CerebrumFieldSet.ALL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<T> findAll(Pageable pageable, CerebrumFieldSet fields)
+    {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findRange(pageable.getSort(), 0, Integer.MAX_VALUE, fields));
+        }
+        List<T> content = findRange(pageable.getSort(), pageable.getOffset(), pageable.getPageSize(), fields);
+        return new PageImpl<>(content, pageable, count());
+    }
+
+    long count()
+    {
+        return counter.count(entity.getType());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<T> findAllByUuidIn(Collection<String> uuids, Pageable pageable, CerebrumFieldSet fields)
+    {
+        if (uuids.isEmpty()) return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findRange(pageable.getSort(), 0, Integer.MAX_VALUE, fields, uuids));
+        }
+        List<T> content = findRange(pageable.getSort(), pageable.getOffset(), pageable.getPageSize(), fields, uuids);
+        return new PageImpl<>(content, pageable, uuids.size());
+    }
+
+    private List<T> findRange(Sort sort, long skip, int limit, CerebrumFieldSet fields)
+    {
+        return findRange(sort, skip, limit, fields, null);
+    }
+
+    private List<T> findRange(Sort sort, long skip, int limit, CerebrumFieldSet fields, Collection<String> uuids)
+    {
+        return load(range(sort, skip, limit, fields, uuids), fields);
+    }
+
+    /* optionally restricted to the given ids, looked up in the id index */
+    Statement range(Sort sort, long skip, int limit, CerebrumFieldSet fields, Collection<String> uuids)
+    {
+        List<SortKey> keys = sortKeys(sort);
+        String orderBy = orderBy(keys);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("skip", skip);
+        parameters.put("limit", limit);
+        String filter = "";
+        if (uuids != null) {
+            parameters.put("uuids", new ArrayList<>(uuids));
+            filter = " WHERE " + entity.getId().on("n") + " IN $uuids";
+        }
+        return new Statement("MATCH (n:" + entity.label() + ")" + filter + " WITH n" + orderBy
+                + " SKIP $skip LIMIT $limit RETURN " + projection(fields, keys) + " AS n" + orderBy, parameters);
+    }
+
+    /* sort keys are read with the requested fields, to order and for the cursor */
+    private String projection(CerebrumFieldSet fields, List<SortKey> keys)
+    {
+        List<Property> required = new ArrayList<>(keys.size());
+        for (SortKey key : keys) required.add(key.property);
+        return fields.projection("n", entity, required);
+    }
+
+    /*
+     * nodes strictly after the given key values: beyond the first key, or
+     * equal on it and after on the remaining ones. Cypher sorts null after
+     * every value, i.e. last ascending and first descending.
+     */
+    private String after(List<SortKey> keys, List<Object> values, int index, Map<String, Object> parameters)
+    {
+        SortKey key = keys.get(index);
+        Object value = values.get(index);
+        String field = key.property.on("n");
+        String parameter = "$key" + index;
+        if (value != null) parameters.put("key" + index, value);
+
+        String beyond;
+        if (key.ascending) beyond = value == null ? null : "(" + field + " > " + parameter + " OR " + field + " IS NULL)";
+        else beyond = value == null ? field + " IS NOT NULL" : field + " < " + parameter;
+        if (index == keys.size() - 1) return beyond == null ? "false" : beyond;
+
+        String equal = value == null ? field + " IS NULL" : field + " = " + parameter;
+        String rest = equal + " AND (" + after(keys, values, index + 1, parameters) + ")";
+        return beyond == null ? rest : beyond + " OR (" + rest + ")";
+    }
+
+    /**
+     * @return ORDER BY clause for node {@code n}, with the id as the final
+     *         tie-breaker
+     */
+    protected String orderBy(Sort sort)
+    {
+        return orderBy(sortKeys(sort));
+    }
+
+    private String orderBy(List<SortKey> keys)
+    {
+        StringBuilder clause = new StringBuilder(" ORDER BY ");
+        for (SortKey key : keys) {
+            clause.append(key.property.on("n")).append(key.ascending ? " ASC, " : " DESC, ");
+        }
+        clause.setLength(clause.length() - 2);
+        return clause.toString();
+    }
+
+    private List<SortKey> sortKeys(Sort sort)
+    {
+        List<SortKey> keys = new ArrayList<>();
+        boolean byId = false;
+        for (Sort.Order order : sort) {
+            Property property = entity.getProperty(order.getProperty());
+            if (property == null || property.isVersion()) throw new CerebrumInvalidSortException(order.getProperty());
+            keys.add(new SortKey(property, order.isAscending()));
+            if (property.isId()) {
+                byId = true;
+                break;
+            }
+        }
+        if (!byId) keys.add(new SortKey(entity.getId(), true));
+        return keys;
+    }
+
+    private static final class SortKey
+    {
+        private final Property property;
+        private final boolean ascending;
+
+        private SortKey(Property property, boolean ascending)
+        {
+            this.property = property;
+            this.ascending = ascending;
+        }
+    }
+
+    /**
+     * Cypher and parameters of a read, shared with
+     * {@link CerebrumReactiveGraphRepository} so both run the same queries.
+     */
+    static final class Statement
+    {
+        final String cypher;
+        final Map<String, Object> parameters;
+
+        Statement(String cypher, Map<String, Object> parameters)
+        {
+            this.cypher = cypher;
+            this.parameters = parameters;
+        }
+    }
+
+    protected boolean exists(String uuid)
+    {
+        return session.query(
+                "MATCH (n:" + entity.label() + ") WHERE " + entity.getId().on("n")
+                        + " = $uuid RETURN count(n) > 0 AS found",
+                Collections.singletonMap("uuid", uuid), true)
+                .queryResults().iterator().next().get("found") == Boolean.TRUE;
+    }
+}
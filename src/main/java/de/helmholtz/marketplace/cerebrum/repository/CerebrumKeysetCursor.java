@@ -0,0 +1,91 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidCursorException;
+
+/**
+ * Position in a keyset paginated listing: the sort plus the sort key
+ * values of the last entity returned, the uuid being the final key.
+ * Clients only ever see the opaque, url safe encoding.
+ */
+public final class CerebrumKeysetCursor
+{
+    private static final ObjectMapper CODEC = new ObjectMapper();
+
+    private final Sort sort;
+    private final List<Object> keys;
+
+    CerebrumKeysetCursor(Sort sort, List<Object> keys)
+    {
+        this.sort = sort;
+        this.keys = keys == null ? null : Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * @param cursor encoded cursor, or an empty string for the first page
+     * @param sort sort of the first page, an encoded cursor carries its own
+     * @throws CerebrumInvalidCursorException if the cursor cannot be decoded
+     */
+    public static CerebrumKeysetCursor of(String cursor, Sort sort)
+    {
+        if (cursor.isEmpty()) return new CerebrumKeysetCursor(sort, null);
+        try {
+            JsonNode decoded = CODEC.readTree(Base64.getUrlDecoder().decode(cursor));
+            List<Sort.Order> orders = new ArrayList<>();
+            for (JsonNode order : decoded.path("s")) {
+                String property = order.textValue();
+                if (property == null || property.length() < 2) throw new CerebrumInvalidCursorException(cursor);
+                orders.add(new Sort.Order(property.charAt(0) == '-' ? Sort.Direction.DESC : Sort.Direction.ASC,
+                        property.substring(1)));
+            }
+            JsonNode values = decoded.path("k");
+            if (!values.isArray() || values.size() == 0) throw new CerebrumInvalidCursorException(cursor);
+            List<Object> keys = new ArrayList<>(values.size());
+            for (JsonNode value : values) keys.add(CODEC.treeToValue(value, Object.class));
+            return new CerebrumKeysetCursor(Sort.by(orders), keys);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new CerebrumInvalidCursorException(cursor);
+        }
+    }
+
+    public Sort getSort()
+    {
+        return sort;
+    }
+
+    /**
+     * @return the sort key values of the last entity seen, or null for
+     *         the first page
+     */
+    public List<Object> getKeys()
+    {
+        return keys;
+    }
+
+    public String encode()
+    {
+        ObjectNode node = CODEC.createObjectNode();
+        ArrayNode orders = node.putArray("s");
+        for (Sort.Order order : sort) orders.add((order.isAscending() ? "+" : "-") + order.getProperty());
+        node.set("k", CODEC.valueToTree(keys));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    CODEC.writeValueAsString(node).getBytes(StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode cursor", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a keyset paginated listing.
+ *
+ * @param <T> entity type
+ */
+@Schema(name = "CerebrumKeysetSlice", description = "a page of a cursor based listing")
+public class CerebrumKeysetSlice<T> implements Iterable<T>
+{
+    @Schema(description = "entities of this page")
+    private final List<T> content;
+
+    @Schema(description = "cursor of the following page, null on the last page")
+    private final String next;
+
+    public CerebrumKeysetSlice(List<T> content, String next)
+    {
+        this.content = content;
+        this.next = next;
+    }
+
+    public List<T> getContent()
+    {
+        return content;
+    }
+
+    public int getSize()
+    {
+        return content.size();
+    }
+
+    public String getNext()
+    {
+        return next;
+    }
+
+    public boolean isHasNext()
+    {
+        return next != null;
+    }
+
+    /**
+     * @return a slice with the converted entities and the same cursor
+     */
+    public <U> CerebrumKeysetSlice<U> map(Function<? super T, ? extends U> converter)
+    {
+        return new CerebrumKeysetSlice<>(content.stream().map(converter).collect(Collectors.toList()), next);
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return content.iterator();
+    }
+}
@@ -0,0 +1,163 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.session.event.Event;
+import org.neo4j.ogm.session.event.PersistenceEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Property;
+
+/**
+ * Compiles JSON Patch documents into one MATCH ... SET/REMOVE ... RETURN
+ * statement, so that a PATCH costs a single round trip and only writes
+ * the properties it touches.
+ *
+ * Only replace, add, remove and test operations on top-level scalar
+ * properties of the entity schema are supported; the id and the version
+ * cannot be patched and a test may not follow a change of the same
+ * property. The statement also renews the version token. Assigned
+ * values pass the pre-save listeners of the OGM first, like the ones of
+ * a saved entity, e.g. inline logos are replaced by asset references. For
+ * everything else {@link #compile} returns null and the caller has to
+ * patch the loaded entity instead.
+ */
+@Component
+public class CerebrumPatchCompiler
+{
+    static final String NODE = "n";
+
+    private final CerebrumEntitySchema schema;
+    private final ObjectMapper objectMapper;
+    private final SessionFactory sessionFactory;
+    private final boolean enabled;
+
+    public CerebrumPatchCompiler(
+            CerebrumEntitySchema schema,
+            ObjectMapper objectMapper,
+            SessionFactory sessionFactory,
+            @Value("${cerebrum.patch.cypher-enabled:true}") boolean enabled)
+    {
+        this.schema = schema;
+        this.objectMapper = objectMapper;
+        this.sessionFactory = sessionFactory;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the compiled statement, or null if the patch cannot be
+     *         expressed as a single statement
+     */
+    public CerebrumPatchStatement compile(JsonPatch patch, Class<?> entityClass)
+    {
+        if (!enabled) return null;
+        Entity entity = schema.of(entityClass);
+        JsonNode operations = objectMapper.valueToTree(patch);
+        if (!operations.isArray()) return null;
+
+        Map<String, Object> parameters = new HashMap<>();
+        List<String> conditions = new ArrayList<>();
+        /* final value per property, null means remove */
+        Map<Property, String> assignments = new LinkedHashMap<>();
+        Map<Property, Object> values = new HashMap<>();
+
+        for (JsonNode operation : operations) {
+            String op = operation.path("op").asText();
+            Property property = entity.getProperty(propertyName(operation.path("path").asText()));
+            if (property == null || property.isId() || property.isVersion()) return null;
+
+            if ("remove".equals(op)) {
+                assignments.put(property, null);
+                values.remove(property);
+                continue;
+            }
+            JsonNode valueNode = operation.get("value");
+            if (valueNode == null) return null;
+            Object attribute;
+            Object value;
+            try {
+                attribute = valueNode.isNull() ? null
+                        : objectMapper.readerFor(property.getType()).readValue(valueNode);
+                value = property.toGraph(attribute);
+            } catch (IOException | RuntimeException e) {
+                // let the regular path report the conversion error
+                return null;
+            }
+
+            if ("test".equals(op)) {
+                if (assignments.containsKey(property)) return null;
+                if (value == null) {
+                    conditions.add(property.on(NODE) + " IS NULL");
+                } else {
+                    String parameter = "test" + conditions.size();
+                    parameters.put(parameter, value);
+                    conditions.add(property.on(NODE) + " = $" + parameter);
+                }
+            } else if ("replace".equals(op) || "add".equals(op)) {
+                String parameter = "value" + parameters.size();
+                parameters.put(parameter, value);
+                assignments.put(property, parameter);
+                values.put(property, attribute);
+            } else {
+                return null;
+            }
+        }
+
+        /* a session of its own only runs the listeners registered with the factory */
+        Session session = values.isEmpty() ? null : sessionFactory.openSession();
+        if (session != null && session.eventsEnabled()) {
+            Object probe = entity.instantiate(Collections.emptyMap());
+            values.forEach((property, attribute) -> {
+                if (attribute != null) property.write(probe, attribute);
+            });
+            session.notifyListeners(new PersistenceEvent(probe, Event.TYPE.PRE_SAVE));
+            assignments.forEach((property, parameter) -> {
+                if (values.get(property) == null) return;
+                parameters.put(parameter, property.toGraph(property.read(probe)));
+            });
+        }
+
+        StringBuilder cypher = new StringBuilder()
+                .append("MATCH (").append(NODE).append(':').append(entity.label()).append(") WHERE ")
+                .append(entity.getId().on(NODE)).append(" = $uuid");
+        for (String condition : conditions) cypher.append(" AND ").append(condition);
+
+        List<String> sets = new ArrayList<>();
+        List<String> removes = new ArrayList<>();
+        assignments.forEach((property, parameter) -> {
+            if (parameter == null || parameters.get(parameter) == null) removes.add(property.on(NODE));
+            else sets.add(property.on(NODE) + " = $" + parameter);
+        });
+        if (entity.getVersion() != null) sets.add(entity.getVersion().on(NODE) + " = randomUUID()");
+        if (!sets.isEmpty()) cypher.append(" SET ").append(String.join(", ", sets));
+        if (!removes.isEmpty()) cypher.append(" REMOVE ").append(String.join(", ", removes));
+        cypher.append(" WITH ").append(NODE).append(' ').append(CerebrumGraphRepositorySupport.RETURN_WITH_RELATIONSHIPS);
+
+        parameters.values().removeIf(Objects::isNull);
+        return new CerebrumPatchStatement(cypher.toString(), parameters, !conditions.isEmpty());
+    }
+
+    /**
+     * @return the top-level member a JSON pointer refers to, or null for
+     *         the root and nested pointers
+     */
+    private static String propertyName(String path)
+    {
+        if (path.length() < 2 || path.charAt(0) != '/' || path.indexOf('/', 1) >= 0) return null;
+        return path.substring(1).replace("~1", "/").replace("~0", "~");
+    }
+}
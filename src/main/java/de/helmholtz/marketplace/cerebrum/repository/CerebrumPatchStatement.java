@@ -0,0 +1,42 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A JSON Patch document compiled to a single parameterized Cypher
+ * statement, see {@link CerebrumPatchCompiler}. The statement expects the
+ * id of the node to patch in the $uuid parameter.
+ */
+public final class CerebrumPatchStatement
+{
+    private final String cypher;
+    private final Map<String, Object> parameters;
+    private final boolean conditional;
+
+    CerebrumPatchStatement(String cypher, Map<String, Object> parameters, boolean conditional)
+    {
+        this.cypher = cypher;
+        this.parameters = Collections.unmodifiableMap(parameters);
+        this.conditional = conditional;
+    }
+
+    public String getCypher()
+    {
+        return cypher;
+    }
+
+    public Map<String, Object> getParameters()
+    {
+        return parameters;
+    }
+
+    /**
+     * @return true if the patch contains test operations, i.e. an empty
+     *         result does not necessarily mean that the node is missing
+     */
+    public boolean isConditional()
+    {
+        return conditional;
+    }
+}
@@ -0,0 +1,298 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Records every Cypher statement sent to the database: its duration from
+ * being sent until its last row was read, and the number of rows.
+ *
+ * Statements are added up per request while one is open on the thread
+ * sending them, logged when slower than {@code cerebrum.queries.slow-threshold}
+ * milliseconds, and aggregated per shape, the text with literals replaced,
+ * for the slowest shapes at /admin/queries. Parameter values are never
+ * kept, only their types.
+ */
+@Component
+public class CerebrumQueryRecorder
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CerebrumQueryRecorder.class);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\"");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern LIST_OF_LITERALS = Pattern.compile("\\[\\s*\\?(?:\\s*,\\s*\\?)*\\s*]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ThreadLocal<RequestQueries> requestQueries = new ThreadLocal<>();
+    private final ConcurrentMap<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final LongAdder untracked = new LongAdder();
+    private final long slowThresholdNanos;
+    private final int maxShapes;
+
+    public CerebrumQueryRecorder(@Value("${cerebrum.queries.slow-threshold:500}") long slowThreshold,
+                                 @Value("${cerebrum.queries.max-shapes:1000}") int maxShapes)
+    {
+        this.slowThresholdNanos = slowThreshold < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(slowThreshold);
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * Add up the statements sent by the current thread until
+     * {@link #end(RequestQueries)}.
+     */
+    public RequestQueries begin()
+    {
+        RequestQueries queries = new RequestQueries();
+        requestQueries.set(queries);
+        return queries;
+    }
+
+    public void end(RequestQueries queries)
+    {
+        if (requestQueries.get() == queries) requestQueries.remove();
+    }
+
+    /**
+     * @return statements of the request open on this thread, or null
+     */
+    public RequestQueries current()
+    {
+        return requestQueries.get();
+    }
+
+    /**
+     * Record a statement sent by the current thread.
+     *
+     * @param cypher statement text, several statements sent together are
+     *        separated by semicolons
+     * @param parameters a map, or a list of maps for several statements,
+     *        only their types are kept
+     * @param statements number of statements sent together
+     */
+    public Execution start(String cypher, Object parameters, int statements)
+    {
+        return start(cypher, parameters, statements, requestQueries.get());
+    }
+
+    /**
+     * Record a statement on behalf of a request, for statements sent from
+     * another thread than the one serving it.
+     */
+    public Execution start(String cypher, Object parameters, int statements, RequestQueries queries)
+    {
+        return new Execution(cypher, parameters, statements, queries);
+    }
+
+    /**
+     * @param top number of shapes
+     * @param by mean, max or total duration
+     * @return the slowest statement shapes, slowest first
+     */
+    public List<Map<String, Object>> getSlowest(int top, String by)
+    {
+        Comparator<Shape> order;
+        switch (by) {
+            case "mean":
+                order = Comparator.comparingDouble(Shape::meanNanos);
+                break;
+            case "max":
+                order = Comparator.comparingLong(shape -> shape.maxNanos.get());
+                break;
+            case "total":
+                order = Comparator.comparingLong(shape -> shape.totalNanos.sum());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown order " + by + ", expected mean, max or total");
+        }
+        List<Shape> slowest = new ArrayList<>(shapes.values());
+        slowest.sort(order.reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Shape shape : slowest.subList(0, Math.min(top, slowest.size()))) result.add(shape.toMap());
+        return result;
+    }
+
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("shapes", shapes.size());
+        statistics.put("maxShapes", maxShapes);
+        statistics.put("untrackedStatements", untracked.sum());
+        return statistics;
+    }
+
+    static String shape(String cypher)
+    {
+        String shape = STRING_LITERAL.matcher(cypher).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = LIST_OF_LITERALS.matcher(shape).replaceAll("[?]");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /* the types of the values, e.g. {uuid=String, rows=List[100]} */
+    static Object redact(Object value)
+    {
+        if (value == null) return "null";
+        if (value instanceof Map) {
+            Map<Object, Object> redacted = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                redacted.put(entry.getKey(), redact(entry.getValue()));
+            }
+            return redacted;
+        }
+        if (value instanceof Collection) return "List[" + ((Collection<?>) value).size() + "]";
+        if (value instanceof Object[]) return "List[" + ((Object[]) value).length + "]";
+        return value.getClass().getSimpleName();
+    }
+
+    private void record(Execution execution, long nanos)
+    {
+        if (nanos >= slowThresholdNanos) {
+            LOGGER.warn("Slow statement took {} ms for {} rows: {} with parameters {}",
+                    TimeUnit.NANOSECONDS.toMillis(nanos), execution.rows.sum(), execution.cypher,
+                    redact(execution.parameters));
+        }
+        String key = shape(execution.cypher);
+        Shape shape = shapes.get(key);
+        if (shape == null) {
+            if (shapes.size() >= maxShapes) {
+                untracked.add(execution.statements);
+                return;
+            }
+            shape = shapes.computeIfAbsent(key, Shape::new);
+        }
+        shape.add(execution, nanos, nanos >= slowThresholdNanos);
+    }
+
+    /**
+     * A statement in flight. Rows are counted as they are read, the
+     * statement is finished once, when its result is exhausted or closed.
+     */
+    public final class Execution
+    {
+        private final String cypher;
+        private final Object parameters;
+        private final int statements;
+        private final RequestQueries queries;
+        private final long start = System.nanoTime();
+        private final LongAdder rows = new LongAdder();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Execution(String cypher, Object parameters, int statements, RequestQueries queries)
+        {
+            this.cypher = cypher;
+            this.parameters = parameters;
+            this.statements = statements;
+            this.queries = queries;
+        }
+
+        public void row()
+        {
+            rows.increment();
+        }
+
+        public void finish()
+        {
+            if (!finished.compareAndSet(false, true)) return;
+            long nanos = System.nanoTime() - start;
+            if (queries != null) queries.add(statements, nanos, rows.sum());
+            record(this, nanos);
+        }
+    }
+
+    /**
+     * Statements of a single request.
+     */
+    public static final class RequestQueries
+    {
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        private void add(int statements, long nanos, long rows)
+        {
+            this.statements.add(statements);
+            this.nanos.add(nanos);
+            this.rows.add(rows);
+        }
+
+        public long getStatements()
+        {
+            return statements.sum();
+        }
+
+        /**
+         * @return time of the finished statements in milliseconds
+         */
+        public double getMillis()
+        {
+            return nanos.sum() / 1e6;
+        }
+
+        public long getRows()
+        {
+            return rows.sum();
+        }
+    }
+
+    private static final class Shape
+    {
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private volatile Object parameters;
+
+        private Shape(String shape)
+        {
+            this.shape = shape;
+        }
+
+        private void add(Execution execution, long nanos, boolean isSlow)
+        {
+            count.add(execution.statements);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            rows.add(execution.rows.sum());
+            if (isSlow) slow.increment();
+            if (parameters == null) parameters = redact(execution.parameters);
+        }
+
+        private double meanNanos()
+        {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) totalNanos.sum() / n;
+        }
+
+        private Map<String, Object> toMap()
+        {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("shape", shape);
+            map.put("count", count.sum());
+            map.put("meanMillis", meanNanos() / 1e6);
+            map.put("maxMillis", maxNanos.get() / 1e6);
+            map.put("totalMillis", totalNanos.sum() / 1e6);
+            map.put("rows", rows.sum());
+            map.put("slow", slow.sum());
+            map.put("parameters", parameters);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.reactive.RxSession;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumQueryRecorder.RequestQueries;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumGraphRepositorySupport.Statement;
+
+/**
+ * Reads of {@link CerebrumGraphRepository} on the reactive sessions of the
+ * bolt driver: the statements are the ones of the blocking fragment, but
+ * records are pulled as the subscriber requests them and no thread waits
+ * for the database. Entities are always mapped by the schema, never by the
+ * OGM, so they are not attached to any session.
+ *
+ * The statements of a read are recorded for the request that called it,
+ * which is carried in the subscriber context to the threads of the driver.
+ *
+ * Requires Neo4j 4.0 or later.
+ *
+ * @param <T> entity type
+ */
+public class CerebrumReactiveGraphRepository<T>
+{
+    private static final SessionConfig READ = SessionConfig.builder().withDefaultAccessMode(AccessMode.READ).build();
+
+    private final CerebrumGraphRepositorySupport<T> support;
+
+    CerebrumReactiveGraphRepository(CerebrumGraphRepositorySupport<T> support)
+    {
+        this.support = support;
+    }
+
+    public Mono<T> findByUuid(String uuid, int depth, CerebrumFieldSet fields)
+    {
+        return load(support.byUuid(uuid, fields))
+                .collectList()
+                .flatMap(found -> hydrate(found, depth, fields))
+                .flatMap(found -> found.isEmpty() ? Mono.empty() : Mono.just(found.get(0)))
+                .subscriberContext(request());
+    }
+
+    /**
+     * @see CerebrumGraphRepository#findAll(Pageable, CerebrumFieldSet)
+     */
+    public Mono<Page<T>> findAll(Pageable pageable, int depth, CerebrumFieldSet fields)
+    {
+        if (pageable.isUnpaged()) {
+            return findRange(pageable.getSort(), 0, Integer.MAX_VALUE, depth, fields, null).<Page<T>>map(PageImpl::new)
+                    .subscriberContext(request());
+        }
+        // the counter only queries the first time, but then it blocks
+        Mono<Long> total = Mono.fromCallable(support::count).subscribeOn(Schedulers.boundedElastic());
+        return findRange(pageable.getSort(), pageable.getOffset(), pageable.getPageSize(), depth, fields, null)
+                .zipWith(total, (content, count) -> (Page<T>) new PageImpl<>(content, pageable, count))
+                .subscriberContext(request());
+    }
+
+    /**
+     * @see CerebrumGraphRepository#findAllByUuidIn(Collection, Pageable, CerebrumFieldSet)
+     */
+    public Mono<Page<T>> findAllByUuidIn(Collection<String> uuids, Pageable pageable, int depth,
+                                         CerebrumFieldSet fields)
+    {
+        if (uuids.isEmpty()) return Mono.just(new PageImpl<>(Collections.emptyList(), pageable, 0));
+        if (pageable.isUnpaged()) {
+            return findRange(pageable.getSort(), 0, Integer.MAX_VALUE, depth, fields, uuids).<Page<T>>map(PageImpl::new)
+                    .subscriberContext(request());
+        }
+        return findRange(pageable.getSort(), pageable.getOffset(), pageable.getPageSize(), depth, fields, uuids)
+                .<Page<T>>map(content -> new PageImpl<>(content, pageable, uuids.size()))
+                .subscriberContext(request());
+    }
+
+    /**
+     * @see CerebrumGraphRepository#findSlice(Pageable, CerebrumFieldSet)
+     */
+    public Mono<CerebrumSlice<T>> findSlice(Pageable pageable, int depth, CerebrumFieldSet fields)
+    {
+        int size = pageable.getPageSize();
+        return load(support.range(pageable.getSort(), pageable.getOffset(), size + 1, fields, null))
+                .collectList()
+                .flatMap(content -> {
+                    boolean hasNext = content.size() > size;
+                    List<T> page = hasNext ? content.subList(0, size) : content;
+                    return hydrate(page, depth, fields).map(found -> new CerebrumSlice<>(found, pageable, hasNext));
+                })
+                .subscriberContext(request());
+    }
+
+    /**
+     * @see CerebrumGraphRepository#findAllAfter(CerebrumKeysetCursor, int, CerebrumFieldSet)
+     */
+    public Mono<CerebrumKeysetSlice<T>> findAllAfter(CerebrumKeysetCursor cursor, int size, int depth,
+                                                     CerebrumFieldSet fields)
+    {
+        return Mono.fromSupplier(() -> support.after(cursor, size, fields))
+                .flatMapMany(this::load)
+                .collectList()
+                .map(content -> support.keysetSlice(cursor, size, content))
+                .flatMap(slice -> hydrate(slice.getContent(), depth, fields).thenReturn(slice))
+                .subscriberContext(request());
+    }
+
+    /**
+     * @see CerebrumEntityVersions#getListTag(Class[])
+     */
+    public Mono<String> findListTag()
+    {
+        CerebrumEntityVersions versions = support.versions();
+        return run(versions.listTagStatement(support.type()))
+                .map(Record::asMap)
+                .collectList()
+                .map(versions::listTag)
+                .subscriberContext(request());
+    }
+
+    /**
+     * @return the given reads, recorded for the calling request also if
+     *         they are only assembled later on another thread, e.g. after
+     *         a blocking step
+     */
+    public <R> Mono<R> withRequest(Mono<R> reads)
+    {
+        return reads.subscriberContext(request());
+    }
+
+    /**
+     * All entities without relationships, as fast as the subscriber
+     * requests them.
+     *
+     * @see CerebrumGraphRepository#streamAll(Sort, CerebrumFieldSet)
+     */
+    public Flux<T> streamAll(Sort sort, CerebrumFieldSet fields)
+    {
+        return Mono.fromSupplier(() -> support.all(sort, fields))
+                .flatMapMany(statement -> run(statement)
+                        .map(record -> support.type().cast(support.entity.instantiate(record.get(0).asMap()))))
+                .subscriberContext(request());
+    }
+
+    private Mono<List<T>> findRange(Sort sort, long skip, int limit, int depth, CerebrumFieldSet fields,
+                                    Collection<String> uuids)
+    {
+        return Mono.fromSupplier(() -> support.range(sort, skip, limit, fields, uuids))
+                .flatMapMany(this::load)
+                .collectList()
+                .flatMap(content -> hydrate(content, depth, fields));
+    }
+
+    /* statements returning node n or a map projection of it as n */
+    private Flux<T> load(Statement statement)
+    {
+        return run(statement).map(record -> support.type().cast(support.entity.instantiate(record.get("n").asMap())));
+    }
+
+    private Mono<List<T>> hydrate(List<T> entities, int depth, CerebrumFieldSet fields)
+    {
+        return hydrate(support.entity, new ArrayList<>(entities), fields.depth(depth), fields).thenReturn(entities);
+    }
+
+    /* like the blocking fragment: one statement per level */
+    private Mono<Void> hydrate(Entity source, List<Object> nodes, int depth, CerebrumFieldSet fields)
+    {
+        if (depth <= 0 || nodes.isEmpty() || source.getRelationships().isEmpty()) return Mono.empty();
+        return run(support.relationships(source, nodes, fields))
+                .map(Record::asMap)
+                .collectList()
+                .flatMapMany(rows -> Flux.fromIterable(support.link(source, nodes, rows, fields).entrySet()))
+                .concatMap(level -> hydrate(level.getKey(), level.getValue(), depth - 1, CerebrumFieldSet.ALL))
+                .then();
+    }
+
+    /* the session is closed when the records are consumed, fail or are cancelled */
+    private Flux<Record> run(Statement statement)
+    {
+        return Flux.deferWithContext(context -> {
+            CerebrumQueryRecorder.Execution execution = support.recorder().start(statement.cypher,
+                    statement.parameters, 1, context.getOrDefault(RequestQueries.class, null));
+            return Flux.usingWhen(
+                    Mono.fromSupplier(() -> support.driver().rxSession(READ)),
+                    session -> session.readTransaction(transaction -> transaction
+                            .run(statement.cypher, statement.parameters).records()),
+                    RxSession::close)
+                    .doOnNext(record -> execution.row())
+                    .doFinally(signal -> execution.finish());
+        });
+    }
+
+    /* the request open on the calling thread, reads are called while it is served */
+    private Context request()
+    {
+        RequestQueries queries = support.recorder().current();
+        return queries == null ? Context.empty() : Context.of(RequestQueries.class, queries);
+    }
+}
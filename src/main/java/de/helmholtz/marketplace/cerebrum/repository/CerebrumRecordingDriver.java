@@ -0,0 +1,213 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.driver.Driver;
+import org.neo4j.ogm.driver.ExceptionTranslator;
+import org.neo4j.ogm.driver.TypeSystem;
+import org.neo4j.ogm.model.GraphModel;
+import org.neo4j.ogm.model.GraphRowListModel;
+import org.neo4j.ogm.model.QueryStatistics;
+import org.neo4j.ogm.model.RestModel;
+import org.neo4j.ogm.model.RowModel;
+import org.neo4j.ogm.request.DefaultRequest;
+import org.neo4j.ogm.request.GraphModelRequest;
+import org.neo4j.ogm.request.GraphRowListModelRequest;
+import org.neo4j.ogm.request.Request;
+import org.neo4j.ogm.request.RestModelRequest;
+import org.neo4j.ogm.request.RowModelRequest;
+import org.neo4j.ogm.request.Statement;
+import org.neo4j.ogm.response.Response;
+import org.neo4j.ogm.transaction.Transaction;
+import org.neo4j.ogm.transaction.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * OGM driver that records the statements of another one, the bolt driver,
+ * with a {@link CerebrumQueryRecorder}. A statement ends when OGM closes
+ * its response, after reading all rows it needs.
+ */
+public class CerebrumRecordingDriver implements Driver
+{
+    private final Driver driver;
+    private final CerebrumQueryRecorder recorder;
+
+    public CerebrumRecordingDriver(Driver driver, CerebrumQueryRecorder recorder)
+    {
+        this.driver = driver;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void configure(Configuration configuration)
+    {
+        driver.configure(configuration);
+    }
+
+    @Override
+    public Function<TransactionManager, BiFunction<Transaction.Type, Iterable<String>, Transaction>>
+            getTransactionFactorySupplier()
+    {
+        return driver.getTransactionFactorySupplier();
+    }
+
+    @Override
+    public void close()
+    {
+        driver.close();
+    }
+
+    @Override
+    public Request request(Transaction transaction)
+    {
+        return new RecordingRequest(driver.request(transaction));
+    }
+
+    @Override
+    public Configuration getConfiguration()
+    {
+        return driver.getConfiguration();
+    }
+
+    @Override
+    public Function<String, String> getCypherModification()
+    {
+        return driver.getCypherModification();
+    }
+
+    @Override
+    public boolean requiresTransaction()
+    {
+        return driver.requiresTransaction();
+    }
+
+    @Override
+    public TypeSystem getTypeSystem()
+    {
+        return driver.getTypeSystem();
+    }
+
+    @Override
+    public ExceptionTranslator getExceptionTranslator()
+    {
+        return driver.getExceptionTranslator();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clazz)
+    {
+        return driver.unwrap(clazz);
+    }
+
+    private final class RecordingRequest implements Request
+    {
+        private final Request request;
+
+        private RecordingRequest(Request request)
+        {
+            this.request = request;
+        }
+
+        @Override
+        public Response<GraphModel> execute(GraphModelRequest statement)
+        {
+            return execute(statement, () -> request.execute(statement));
+        }
+
+        @Override
+        public Response<RowModel> execute(RowModelRequest statement)
+        {
+            return execute(statement, () -> request.execute(statement));
+        }
+
+        /* several statements at once, e.g. the creates and updates of a save */
+        @Override
+        public Response<RowModel> execute(DefaultRequest statements)
+        {
+            StringJoiner cypher = new StringJoiner(";\n");
+            List<Map<String, Object>> parameters = new ArrayList<>();
+            for (Statement statement : statements.getStatements()) {
+                cypher.add(statement.getStatement());
+                parameters.add(statement.getParameters());
+            }
+            return execute(recorder.start(cypher.toString(), parameters, statements.getStatements().size()),
+                    () -> request.execute(statements));
+        }
+
+        @Override
+        public Response<GraphRowListModel> execute(GraphRowListModelRequest statement)
+        {
+            return execute(statement, () -> request.execute(statement));
+        }
+
+        @Override
+        public Response<RestModel> execute(RestModelRequest statement)
+        {
+            return execute(statement, () -> request.execute(statement));
+        }
+
+        private <T> Response<T> execute(Statement statement, Supplier<Response<T>> response)
+        {
+            return execute(recorder.start(statement.getStatement(), statement.getParameters(), 1), response);
+        }
+
+        private <T> Response<T> execute(CerebrumQueryRecorder.Execution execution, Supplier<Response<T>> response)
+        {
+            try {
+                return new RecordingResponse<>(response.get(), execution);
+            } catch (RuntimeException e) {
+                execution.finish();
+                throw e;
+            }
+        }
+    }
+
+    private static final class RecordingResponse<T> implements Response<T>
+    {
+        private final Response<T> response;
+        private final CerebrumQueryRecorder.Execution execution;
+
+        private RecordingResponse(Response<T> response, CerebrumQueryRecorder.Execution execution)
+        {
+            this.response = response;
+            this.execution = execution;
+        }
+
+        @Override
+        public T next()
+        {
+            T next = response.next();
+            if (next != null) execution.row();
+            return next;
+        }
+
+        @Override
+        public void close()
+        {
+            try {
+                response.close();
+            } finally {
+                execution.finish();
+            }
+        }
+
+        @Override
+        public String[] columns()
+        {
+            return response.columns();
+        }
+
+        @Override
+        public Optional<QueryStatistics> getStatistics()
+        {
+            return response.getStatistics();
+        }
+    }
+}
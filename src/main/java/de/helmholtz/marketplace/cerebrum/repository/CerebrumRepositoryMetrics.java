@@ -0,0 +1,95 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
+
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Times every call of a Spring Data repository, including its custom
+ * fragments, as {@value #INVOCATIONS} tagged with the entity, the method
+ * and the exception thrown, if any. A returned stream is timed until it
+ * is closed, so exports are measured until their last record.
+ *
+ * The registry is looked up on first use: meter binders may depend on
+ * the repositories, and repositories are created before them.
+ */
+public class CerebrumRepositoryMetrics implements BeanPostProcessor
+{
+    public static final String INVOCATIONS = "cerebrum.repository.invocations";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private volatile MeterRegistry registry;
+
+    public CerebrumRepositoryMetrics(ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName)
+    {
+        if (!(bean instanceof Repository) || !(bean instanceof Advised)) return bean;
+        Advised repository = (Advised) bean;
+        for (Class<?> type : repository.getProxiedInterfaces()) {
+            if (type != Repository.class && Repository.class.isAssignableFrom(type)) {
+                String entity = AbstractRepositoryMetadata.getMetadata(type).getDomainType().getSimpleName()
+                        .toLowerCase(Locale.ROOT);
+                // first, so that transactions and exception translation are timed as well
+                repository.addAdvice(0, new Interceptor(entity));
+                break;
+            }
+        }
+        return bean;
+    }
+
+    private MeterRegistry registry()
+    {
+        MeterRegistry current = registry;
+        if (current == null) registry = current = meterRegistry.getObject();
+        return current;
+    }
+
+    private final class Interceptor implements MethodInterceptor
+    {
+        private final String entity;
+
+        private Interceptor(String entity)
+        {
+            this.entity = entity;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable
+        {
+            MeterRegistry meterRegistry = registry();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String operation = invocation.getMethod().getName();
+            Object result;
+            try {
+                result = invocation.proceed();
+            } catch (Throwable e) {
+                sample.stop(timer(meterRegistry, operation, e.getClass().getSimpleName()));
+                throw e;
+            }
+            if (result instanceof Stream) {
+                return ((Stream<?>) result).onClose(() -> sample.stop(timer(meterRegistry, operation, "none")));
+            }
+            sample.stop(timer(meterRegistry, operation, "none"));
+            return result;
+        }
+
+        private Timer timer(MeterRegistry meterRegistry, String operation, String exception)
+        {
+            return meterRegistry.timer(INVOCATIONS, "entity", entity, "operation", operation, "exception", exception);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+
+/**
+ * Declares the constraints and indexes the repositories rely on when the
+ * application starts: a unique constraint on the id of every entity,
+ * indexes on the properties used for lookups and default sorting, and the
+ * full-text index of {@link CerebrumSearchRepository}.
+ *
+ * Only what is missing is created, so restarts change nothing. Failures
+ * are logged and do not stop the application, unless
+ * {@code cerebrum.schema.await-timeout} is set: then startup waits up to
+ * that many seconds for all indexes to be online and fails otherwise, so
+ * the server never accepts requests against a half built schema.
+ */
+@Component
+public class CerebrumSchemaManager implements SmartInitializingSingleton
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CerebrumSchemaManager.class);
+
+    private static final List<SchemaIndex> INDEXES = Arrays.asList(
+            new SchemaIndex(Organization.class, "uuid", true),
+            new SchemaIndex(MarketService.class, "uuid", true),
+            new SchemaIndex(MarketUser.class, "uuid", true),
+            new SchemaIndex(MarketUser.class, "sub", false),
+            new SchemaIndex(MarketUser.class, "lastName", false),
+            new SchemaIndex(Organization.class, "name", false),
+            new SchemaIndex(MarketService.class, "name", false),
+            new SchemaIndex(MarketService.class, "lastModified", false));
+
+    private final SessionFactory sessionFactory;
+    private final CerebrumEntitySchema schema;
+    private final boolean enabled;
+    private final long awaitTimeout;
+
+    public CerebrumSchemaManager(SessionFactory sessionFactory,
+                                 CerebrumEntitySchema schema,
+                                 @Value("${cerebrum.schema.enabled:true}") boolean enabled,
+                                 @Value("${cerebrum.schema.await-timeout:0}") long awaitTimeout)
+    {
+        this.sessionFactory = sessionFactory;
+        this.schema = schema;
+        this.enabled = enabled;
+        this.awaitTimeout = awaitTimeout;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated()
+    {
+        if (!enabled) return;
+        try {
+            bootstrap();
+        } catch (RuntimeException e) {
+            if (awaitTimeout > 0) throw new IllegalStateException("Could not set up the graph schema", e);
+            LOGGER.warn("Could not set up the graph schema, lookups may fall back to label scans", e);
+        }
+    }
+
+    /**
+     * Create the missing constraints and indexes and, if configured, wait
+     * for them to be online.
+     *
+     * @return the statements that were run
+     */
+    public List<String> bootstrap()
+    {
+        Session session = sessionFactory.openSession();
+        Set<String> names = new HashSet<>();
+        Map<String, String> existing = existingIndexes(session, names);
+        List<String> created = new ArrayList<>();
+        for (SchemaIndex index : INDEXES) {
+            Entity entity = schema.of(index.entityClass);
+            String label = entity.getLabel();
+            String property = entity.getProperty(index.property).getGraphName();
+            String kind = existing.get(label + "." + property);
+            if (kind != null) {
+                if (index.unique && !"UNIQUE".equals(kind)) {
+                    LOGGER.warn("{}.{} has a plain index where a unique constraint is expected", label, property);
+                }
+                continue;
+            }
+            String statement = index.unique
+                    ? "CREATE CONSTRAINT ON (n:" + entity.label() + ") ASSERT "
+                            + entity.getProperty(index.property).on("n") + " IS UNIQUE"
+                    : "CREATE INDEX ON :" + entity.label()
+                            + "(" + CerebrumEntitySchema.quote(property) + ")";
+            try {
+                session.query(statement, Collections.emptyMap(), false);
+                created.add(statement);
+                LOGGER.info("Created {} on {}.{}", index.unique ? "unique constraint" : "index", label, property);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not create the {} on {}.{}: {}",
+                        index.unique ? "unique constraint" : "index", label, property, e.getMessage());
+            }
+        }
+        if (!names.contains(CerebrumSearchRepository.INDEX)) {
+            String statement = fullTextIndex();
+            try {
+                session.query(statement, Collections.emptyMap(), false);
+                created.add(statement);
+                LOGGER.info("Created full-text index {}", CerebrumSearchRepository.INDEX);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not create the full-text index {}: {}",
+                        CerebrumSearchRepository.INDEX, e.getMessage());
+            }
+        }
+        if (created.isEmpty()) LOGGER.info("Graph schema is up to date");
+        if (awaitTimeout > 0) {
+            session.query("CALL db.awaitIndexes($timeout)",
+                    Collections.singletonMap("timeout", awaitTimeout), true);
+            LOGGER.info("All indexes are online");
+        }
+        return created;
+    }
+
+    /* one index over the searched properties of all searched labels */
+    private String fullTextIndex()
+    {
+        Set<String> labels = new LinkedHashSet<>();
+        Set<String> properties = new LinkedHashSet<>();
+        for (Map.Entry<Class<?>, List<String>> fields : CerebrumSearchRepository.FIELDS.entrySet()) {
+            Entity entity = schema.of(fields.getKey());
+            labels.add("'" + entity.getLabel() + "'");
+            for (String field : fields.getValue()) {
+                properties.add("'" + entity.getProperty(field).getGraphName() + "'");
+            }
+        }
+        return "CALL db.index.fulltext.createNodeIndex('" + CerebrumSearchRepository.INDEX + "', ["
+                + String.join(", ", labels) + "], [" + String.join(", ", properties) + "])";
+    }
+
+    /*
+     * label.property to UNIQUE or NONUNIQUE, for the result columns of Neo4j
+     * 3.5 and 4.x; the names of all indexes are added to names
+     */
+    private static Map<String, String> existingIndexes(Session session, Set<String> names)
+    {
+        Map<String, String> indexes = new HashMap<>();
+        for (Map<String, Object> row : session.query("CALL db.indexes()", Collections.emptyMap(), true)) {
+            Object name = row.containsKey("name") ? row.get("name") : row.get("indexName");
+            if (name != null) names.add(name.toString());
+            Object labels = row.containsKey("labelsOrTypes") ? row.get("labelsOrTypes") : row.get("tokenNames");
+            Collection<?> labelNames = toCollection(labels);
+            Collection<?> properties = toCollection(row.get("properties"));
+            if (labelNames.size() != 1 || properties.size() != 1) continue;
+            boolean unique = "UNIQUE".equals(row.get("uniqueness"))
+                    || "node_unique_property".equals(row.get("type"));
+            indexes.put(labelNames.iterator().next() + "." + properties.iterator().next(),
+                    unique ? "UNIQUE" : "NONUNIQUE");
+        }
+        return indexes;
+    }
+
+    private static Collection<?> toCollection(Object value)
+    {
+        if (value instanceof Collection) return (Collection<?>) value;
+        if (value instanceof Object[]) return Arrays.asList((Object[]) value);
+        return Collections.emptyList();
+    }
+
+    private static final class SchemaIndex
+    {
+        private final Class<?> entityClass;
+        private final String property;
+        private final boolean unique;
+
+        private SchemaIndex(Class<?> entityClass, String property, boolean unique)
+        {
+            this.entityClass = entityClass;
+            this.property = property;
+            this.unique = unique;
+        }
+    }
+}
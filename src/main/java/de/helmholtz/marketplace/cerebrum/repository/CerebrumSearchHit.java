@@ -0,0 +1,62 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.Map;
+
+@Schema(name = "SearchHit", description = "A service or organization matching a search query.")
+public class CerebrumSearchHit
+{
+    @Schema(description = "Kind of the matching entity", example = "MarketService")
+    private final String type;
+
+    @Schema(description = "Unique identifier of the matching entity",
+            example = "svc-01eac6d7-0d35-1812-a3ed-24aec4231940")
+    private final String uuid;
+
+    @Schema(description = "Relevance of the match, higher is better", example = "2.31")
+    private final double score;
+
+    @Schema(description = "The searched properties of the entity by name")
+    private final Map<String, String> fields;
+
+    @Schema(description = "Matched words per property as [start, end) offsets into its value, " +
+            "counted in UTF-16 code units as in JavaScript strings")
+    private final Map<String, List<int[]>> highlights;
+
+    public CerebrumSearchHit(String type, String uuid, double score,
+                             Map<String, String> fields, Map<String, List<int[]>> highlights)
+    {
+        this.type = type;
+        this.uuid = uuid;
+        this.score = score;
+        this.fields = fields;
+        this.highlights = highlights;
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public String getUuid()
+    {
+        return uuid;
+    }
+
+    public double getScore()
+    {
+        return score;
+    }
+
+    public Map<String, String> getFields()
+    {
+        return fields;
+    }
+
+    public Map<String, List<int[]>> getHighlights()
+    {
+        return highlights;
+    }
+}
@@ -0,0 +1,194 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.neo4j.transaction.SharedSessionCreator;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Property;
+
+/**
+ * Full-text search over services and organizations, backed by a Neo4j
+ * full-text index that {@link CerebrumSchemaManager} creates at startup.
+ * Neo4j keeps the index up to date within every write transaction, so
+ * new and changed entities are found as soon as they are committed.
+ *
+ * Every word of a query matches whole words and, for search as you type,
+ * word prefixes; matches in names rank above matches elsewhere. Highlight
+ * offsets are computed from the returned values the same way.
+ */
+@Component
+public class CerebrumSearchRepository
+{
+    static final String INDEX = "cerebrum_search";
+
+    /* searched properties per entity, in the order they are reported */
+    static final Map<Class<?>, List<String>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put(MarketService.class, Arrays.asList("name", "description"));
+        FIELDS.put(Organization.class, Arrays.asList("name", "abbreviation"));
+    }
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MAX_TERMS = 16;
+
+    private final Session session;
+    private final CerebrumEntitySchema schema;
+
+    public CerebrumSearchRepository(SessionFactory sessionFactory, CerebrumEntitySchema schema)
+    {
+        this.session = SharedSessionCreator.createSharedSession(sessionFactory);
+        this.schema = schema;
+    }
+
+    /**
+     * @param query words to search for, anything else is ignored
+     * @return the matches, best first; empty if the query has no words
+     */
+    public Page<CerebrumSearchHit> search(String query, Pageable pageable)
+    {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) return new PageImpl<>(Collections.emptyList(), pageable, 0);
+
+        Map<String, Entity> entities = new HashMap<>();
+        Set<String> graphNames = new LinkedHashSet<>();
+        for (Class<?> type : FIELDS.keySet()) {
+            Entity entity = schema.of(type);
+            entities.put(entity.getLabel(), entity);
+            graphNames.add(entity.getId().getGraphName());
+            for (Property property : searched(entity)) graphNames.add(property.getGraphName());
+        }
+        StringBuilder projection = new StringBuilder();
+        for (String graphName : graphNames) {
+            projection.append(projection.length() == 0 ? "" : ", ")
+                    .append('.').append(CerebrumEntitySchema.quote(graphName));
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("index", INDEX);
+        parameters.put("query", luceneQuery(terms, schema.of(MarketService.class).getProperty("name").getGraphName()));
+        parameters.put("skip", pageable.getOffset());
+        parameters.put("limit", pageable.getPageSize());
+        List<CerebrumSearchHit> hits = new ArrayList<>();
+        for (Map<String, Object> row : session.query(
+                "CALL db.index.fulltext.queryNodes($index, $query) YIELD node, score "
+                        + "RETURN labels(node) AS labels, node{" + projection + "} AS n, score "
+                        + "SKIP $skip LIMIT $limit", parameters, true)) {
+            Entity entity = entity(entities, row.get("labels"));
+            if (entity == null) continue;
+            @SuppressWarnings("unchecked")
+            Map<String, Object> node = (Map<String, Object>) row.get("n");
+            hits.add(hit(entity, node, ((Number) row.get("score")).doubleValue(), terms));
+        }
+        return PageableExecutionUtils.getPage(hits, pageable, () -> ((Number) session.query(
+                "CALL db.index.fulltext.queryNodes($index, $query) YIELD node RETURN count(node) AS total",
+                parameters, true).queryResults().iterator().next().get("total")).longValue());
+    }
+
+    private List<Property> searched(Entity entity)
+    {
+        List<Property> properties = new ArrayList<>();
+        for (String name : FIELDS.get(entity.getType())) properties.add(entity.getProperty(name));
+        return properties;
+    }
+
+    private static Entity entity(Map<String, Entity> entities, Object labels)
+    {
+        Collection<?> names = labels instanceof Collection ? (Collection<?>) labels
+                : labels instanceof Object[] ? Arrays.asList((Object[]) labels) : Collections.emptyList();
+        for (Object label : names) {
+            Entity entity = entities.get(String.valueOf(label));
+            if (entity != null) return entity;
+        }
+        return null;
+    }
+
+    private CerebrumSearchHit hit(Entity entity, Map<String, Object> node, double score, List<String> terms)
+    {
+        Map<String, String> fields = new LinkedHashMap<>();
+        Map<String, List<int[]>> highlights = new LinkedHashMap<>();
+        for (Property property : searched(entity)) {
+            Object value = node.get(property.getGraphName());
+            if (value == null) continue;
+            fields.put(property.getName(), value.toString());
+            List<int[]> offsets = highlight(value.toString(), terms);
+            if (!offsets.isEmpty()) highlights.put(property.getName(), offsets);
+        }
+        return new CerebrumSearchHit(entity.getLabel(), (String) node.get(entity.getId().getGraphName()),
+                score, fields, highlights);
+    }
+
+    /**
+     * @return the distinct lower case words of a query, at most
+     *         {@value #MAX_TERMS}
+     */
+    static List<String> terms(String query)
+    {
+        Set<String> terms = new LinkedHashSet<>();
+        if (query == null) return new ArrayList<>(terms);
+        Matcher matcher = WORD.matcher(query);
+        while (matcher.find() && terms.size() < MAX_TERMS) terms.add(matcher.group().toLowerCase(Locale.ROOT));
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * @param terms words as returned by {@link #terms}, so nothing needs
+     *        escaping
+     * @param nameField graph name of the name property, which is boosted
+     * @return Lucene query matching any term as a word or a word prefix
+     */
+    static String luceneQuery(List<String> terms, String nameField)
+    {
+        StringBuilder query = new StringBuilder();
+        for (String term : terms) {
+            if (query.length() > 0) query.append(' ');
+            query.append(nameField).append(':').append(term).append("^4 ")
+                    .append(nameField).append(':').append(term).append("*^2 ")
+                    .append(term).append("^2 ")
+                    .append(term).append('*');
+        }
+        return query.toString();
+    }
+
+    /**
+     * @return [start, end) offsets of the words of value starting with one
+     *         of the terms, in order
+     */
+    static List<int[]> highlight(String value, List<String> terms)
+    {
+        List<int[]> offsets = new ArrayList<>();
+        Matcher matcher = WORD.matcher(value);
+        while (matcher.find()) {
+            String word = matcher.group().toLowerCase(Locale.ROOT);
+            for (String term : terms) {
+                if (word.startsWith(term)) {
+                    offsets.add(new int[] {matcher.start(), matcher.end()});
+                    break;
+                }
+            }
+        }
+        return offsets;
+    }
+}
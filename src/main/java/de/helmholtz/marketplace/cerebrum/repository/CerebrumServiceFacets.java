@@ -0,0 +1,407 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import de.helmholtz.marketplace.cerebrum.entities.Authentication;
+import de.helmholtz.marketplace.cerebrum.entities.LifecycleStatus;
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+
+/**
+ * In-memory facets of the services: every service has an ordinal, and
+ * there is a bit set of ordinals per lifecycle status, per authentication
+ * and per providing organization. Filtering and counting are then bit set
+ * operations, without a query.
+ *
+ * The sets are read from the graph on first use. After that the writers
+ * report the services, or the organizations, they changed and only the
+ * services concerned are read again, so the facets follow every write
+ * path, including compiled patches and batches. A service belongs to an
+ * organization linked from either side, by {@code MarketService.organizations}
+ * or by {@code Organization.serviceList}.
+ */
+@Component
+public class CerebrumServiceFacets
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CerebrumServiceFacets.class);
+
+    /* reads of the sets before selecting under the write lock instead, see select */
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+    private final SessionFactory sessionFactory;
+    private final CerebrumEntitySchema schema;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> uuids = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final Map<LifecycleStatus, BitSet> byLifecycleStatus = new EnumMap<>(LifecycleStatus.class);
+    private final Map<Authentication, BitSet> byAuthentication = new EnumMap<>(Authentication.class);
+    private final Map<String, BitSet> byOrganization = new HashMap<>();
+    private boolean loaded;
+
+    public CerebrumServiceFacets(SessionFactory sessionFactory, CerebrumEntitySchema schema)
+    {
+        this.sessionFactory = sessionFactory;
+        this.schema = schema;
+        for (LifecycleStatus status : LifecycleStatus.values()) byLifecycleStatus.put(status, new BitSet());
+        for (Authentication authentication : Authentication.values()) {
+            byAuthentication.put(authentication, new BitSet());
+        }
+    }
+
+    /**
+     * Services matching all given filters, and the facet counts. The count
+     * of a value is the number of services that match when the filter of
+     * its facet is replaced by that value, so a client can show how many
+     * services every choice leads to.
+     *
+     * @param lifecycleStatuses services in one of these states, any if null
+     *        or empty
+     * @param authentications services with one of these, any if null or
+     *        empty
+     * @param organizations services provided by one of these organizations,
+     *        any if null or empty
+     */
+    public Selection select(Collection<LifecycleStatus> lifecycleStatuses,
+                            Collection<Authentication> authentications,
+                            Collection<String> organizations)
+    {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            ensureLoaded();
+            lock.readLock().lock();
+            try {
+                // unless a failed update cleared the sets in between
+                if (loaded) return selectLoaded(lifecycleStatuses, authentications, organizations);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        // updates keep failing: read and select at once, updates wait for the write lock
+        lock.writeLock().lock();
+        try {
+            load();
+            return selectLoaded(lifecycleStatuses, authentications, organizations);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Selection selectLoaded(Collection<LifecycleStatus> lifecycleStatuses,
+                                   Collection<Authentication> authentications,
+                                   Collection<String> organizations)
+    {
+        BitSet byOrganizations = union(organizations, byOrganization);
+        BitSet byStatuses = union(lifecycleStatuses, byLifecycleStatus);
+        BitSet byAuthentications = union(authentications, byAuthentication);
+
+        BitSet matching = (BitSet) byOrganizations.clone();
+        matching.and(byStatuses);
+        matching.and(byAuthentications);
+        List<String> matchingUuids = new ArrayList<>(matching.cardinality());
+        for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+            matchingUuids.add(uuids.get(i));
+        }
+
+        BitSet others = (BitSet) byOrganizations.clone();
+        others.and(byAuthentications);
+        Map<String, Integer> statusCounts = counts(byLifecycleStatus, others);
+        others = (BitSet) byOrganizations.clone();
+        others.and(byStatuses);
+        Map<String, Integer> authenticationCounts = counts(byAuthentication, others);
+
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        facets.put("lifecycleStatus", statusCounts);
+        facets.put("authentication", authenticationCounts);
+        return new Selection(matchingUuids, facets);
+    }
+
+    /* ordinals having one of the values, all live ones without values */
+    private <K> BitSet union(Collection<K> values, Map<K, BitSet> sets)
+    {
+        if (values == null || values.isEmpty()) return (BitSet) live.clone();
+        BitSet union = new BitSet();
+        for (K value : values) {
+            BitSet set = sets.get(value);
+            if (set != null) union.or(set);
+        }
+        return union;
+    }
+
+    private static <K extends Enum<K>> Map<String, Integer> counts(Map<K, BitSet> sets, BitSet filter)
+    {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<K, BitSet> set : sets.entrySet()) {
+            BitSet matching = (BitSet) set.getValue().clone();
+            matching.and(filter);
+            counts.put(set.getKey().name(), matching.cardinality());
+        }
+        return counts;
+    }
+
+    /**
+     * Read the given services again after they were created, changed or
+     * deleted.
+     */
+    public void changed(Collection<String> serviceUuids)
+    {
+        if (serviceUuids.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            if (!loaded) return;
+            try {
+                reread(serviceUuids);
+            } catch (RuntimeException e) {
+                // start over on next use rather than serve counts that drifted
+                LOGGER.warn("Could not update the service facets, reading them again on next use", e);
+                clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changed(String serviceUuid)
+    {
+        changed(Collections.singletonList(serviceUuid));
+    }
+
+    /**
+     * Read the services of the given organizations again after they were
+     * created or changed, the ones linked before and the ones linked now.
+     */
+    public void organizationsChanged(Collection<String> organizationUuids)
+    {
+        if (organizationUuids.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            if (!loaded) return;
+            try {
+                Set<String> serviceUuids = new HashSet<>();
+                for (String organizationUuid : organizationUuids) {
+                    BitSet before = byOrganization.get(organizationUuid);
+                    if (before == null) continue;
+                    for (int i = before.nextSetBit(0); i >= 0; i = before.nextSetBit(i + 1)) {
+                        serviceUuids.add(uuids.get(i));
+                    }
+                }
+                serviceUuids.addAll(servicesOf(organizationUuids));
+                reread(serviceUuids);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not update the service facets, reading them again on next use", e);
+                clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void organizationChanged(String organizationUuid)
+    {
+        organizationsChanged(Collections.singletonList(organizationUuid));
+    }
+
+    /**
+     * Forget an organization after it was deleted with its relationships.
+     */
+    public void organizationRemoved(String organizationUuid)
+    {
+        lock.writeLock().lock();
+        try {
+            byOrganization.remove(organizationUuid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded()
+    {
+        lock.readLock().lock();
+        try {
+            if (loaded) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            load();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* callers hold the write lock */
+    private void load()
+    {
+        if (loaded) return;
+        clear();
+        read(Collections.emptyMap());
+        loaded = true;
+        LOGGER.info("Loaded the facets of {} services", ordinals.size());
+    }
+
+    /* callers hold the write lock */
+    private void reread(Collection<String> serviceUuids)
+    {
+        if (serviceUuids.isEmpty()) return;
+        for (String uuid : serviceUuids) remove(uuid);
+        read(Collections.singletonMap("uuids", new ArrayList<>(serviceUuids)));
+    }
+
+    /* the relationship types linking services and organizations, from either side */
+    private String organizationLinks()
+    {
+        Set<String> types = new LinkedHashSet<>();
+        types.add(schema.of(MarketService.class).getRelationship("organizations").getType());
+        types.add(schema.of(Organization.class).getRelationship("serviceList").getType());
+        StringBuilder links = new StringBuilder();
+        for (String type : types) {
+            if (links.length() > 0) links.append('|');
+            links.append(CerebrumEntitySchema.quote(type));
+        }
+        return links.toString();
+    }
+
+    private List<String> servicesOf(Collection<String> organizationUuids)
+    {
+        Entity service = schema.of(MarketService.class);
+        Entity organization = schema.of(Organization.class);
+        List<String> serviceUuids = new ArrayList<>();
+        Session session = sessionFactory.openSession();
+        for (Map<String, Object> row : session.query(
+                "MATCH (o:" + organization.label() + ")-[:" + organizationLinks() + "]-(n:" + service.label() + ") "
+                        + "WHERE " + organization.getId().on("o") + " IN $uuids "
+                        + "RETURN DISTINCT " + service.getId().on("n") + " AS uuid",
+                Collections.singletonMap("uuids", new ArrayList<>(organizationUuids)), true)) {
+            serviceUuids.add((String) row.get("uuid"));
+        }
+        return serviceUuids;
+    }
+
+    /* all services, or those listed in parameter uuids */
+    private void read(Map<String, Object> parameters)
+    {
+        Entity service = schema.of(MarketService.class);
+        Entity organization = schema.of(Organization.class);
+        String filter = parameters.containsKey("uuids") ? " WHERE " + service.getId().on("n") + " IN $uuids" : "";
+        Session session = sessionFactory.openSession();
+        for (Map<String, Object> row : session.query(
+                "MATCH (n:" + service.label() + ")" + filter + " "
+                        + "OPTIONAL MATCH (n)-[:" + organizationLinks() + "]-(o:" + organization.label() + ") "
+                        + "RETURN " + service.getId().on("n") + " AS uuid, "
+                        + service.getProperty("lifecycleStatus").on("n") + " AS lifecycleStatus, "
+                        + service.getProperty("authentication").on("n") + " AS authentication, "
+                        + "collect(DISTINCT " + organization.getId().on("o") + ") AS organizations",
+                parameters, true)) {
+            put((String) row.get("uuid"),
+                    (LifecycleStatus) service.getProperty("lifecycleStatus").fromGraph(row.get("lifecycleStatus")),
+                    (Authentication) service.getProperty("authentication").fromGraph(row.get("authentication")),
+                    toStrings(row.get("organizations")));
+        }
+    }
+
+    private static List<String> toStrings(Object value)
+    {
+        Collection<?> values = value instanceof Object[] ? Arrays.asList((Object[]) value)
+                : value instanceof Collection ? (Collection<?>) value : Collections.emptyList();
+        List<String> strings = new ArrayList<>(values.size());
+        for (Object element : values) if (element != null) strings.add(element.toString());
+        return strings;
+    }
+
+    /* callers hold the write lock */
+    void put(String uuid, LifecycleStatus lifecycleStatus, Authentication authentication,
+             Collection<String> organizations)
+    {
+        remove(uuid);
+        int ordinal = live.nextClearBit(0);
+        live.set(ordinal);
+        ordinals.put(uuid, ordinal);
+        if (ordinal < uuids.size()) uuids.set(ordinal, uuid);
+        else uuids.add(uuid);
+        if (lifecycleStatus != null) byLifecycleStatus.get(lifecycleStatus).set(ordinal);
+        if (authentication != null) byAuthentication.get(authentication).set(ordinal);
+        for (String organization : organizations) {
+            byOrganization.computeIfAbsent(organization, key -> new BitSet()).set(ordinal);
+        }
+    }
+
+    /* callers hold the write lock; the ordinal is free for reuse */
+    void remove(String uuid)
+    {
+        Integer ordinal = ordinals.remove(uuid);
+        if (ordinal == null) return;
+        live.clear(ordinal);
+        uuids.set(ordinal, null);
+        for (BitSet set : byLifecycleStatus.values()) set.clear(ordinal);
+        for (BitSet set : byAuthentication.values()) set.clear(ordinal);
+        byOrganization.values().removeIf(set -> {
+            set.clear(ordinal);
+            return set.isEmpty();
+        });
+    }
+
+    private void clear()
+    {
+        ordinals.clear();
+        uuids.clear();
+        live.clear();
+        for (BitSet set : byLifecycleStatus.values()) set.clear();
+        for (BitSet set : byAuthentication.values()) set.clear();
+        byOrganization.clear();
+        loaded = false;
+    }
+
+    /**
+     * Result of {@link #select}.
+     */
+    public static final class Selection
+    {
+        private final List<String> uuids;
+        private final Map<String, Map<String, Integer>> facets;
+
+        private Selection(List<String> uuids, Map<String, Map<String, Integer>> facets)
+        {
+            this.uuids = Collections.unmodifiableList(uuids);
+            this.facets = Collections.unmodifiableMap(facets);
+        }
+
+        /**
+         * @return ids of the matching services, in no particular order
+         */
+        public List<String> getUuids()
+        {
+            return uuids;
+        }
+
+        /**
+         * @return count per value per facet, every value of the enums
+         *         included
+         */
+        public Map<String, Map<String, Integer>> getFacets()
+        {
+            return facets;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Page of a listing without total count, see
+ * {@link CerebrumGraphRepository#findSlice}.
+ *
+ * @param <T> entity type
+ */
+public class CerebrumSlice<T> extends SliceImpl<T>
+{
+    public CerebrumSlice(List<T> content, Pageable pageable, boolean hasNext)
+    {
+        super(content, pageable, hasNext);
+    }
+
+    @Override
+    public <U> CerebrumSlice<U> map(Function<? super T, ? extends U> converter)
+    {
+        return new CerebrumSlice<>(getContent().stream().map(converter).collect(Collectors.toList()),
+                getPageable(), hasNext());
+    }
+
+    /* SliceImpl#hasNext is not a bean property */
+    public boolean getHasNext()
+    {
+        return hasNext();
+    }
+}
@@ -0,0 +1,39 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import java.util.function.Function;
+
+/**
+ * Entity together with its entity tag, read in the same statement, see
+ * {@link CerebrumGraphRepository#findTaggedByUuid}.
+ *
+ * @param <T> entity type
+ */
+public final class CerebrumTagged<T>
+{
+    private final T entity;
+    private final String tag;
+
+    public CerebrumTagged(T entity, String tag)
+    {
+        this.entity = entity;
+        this.tag = tag;
+    }
+
+    public T getEntity()
+    {
+        return entity;
+    }
+
+    public String getTag()
+    {
+        return tag;
+    }
+
+    /**
+     * @return another representation of the entity, with the same tag
+     */
+    public <U> CerebrumTagged<U> map(Function<? super T, ? extends U> converter)
+    {
+        return new CerebrumTagged<>(converter.apply(entity), tag);
+    }
+}
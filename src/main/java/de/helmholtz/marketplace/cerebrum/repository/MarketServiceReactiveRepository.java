@@ -0,0 +1,22 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.SessionFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+
+/**
+ * Reactive reads with the statements of {@link MarketServiceRepositoryImpl}.
+ */
+@Repository
+@Profile("reactive")
+public class MarketServiceReactiveRepository extends CerebrumReactiveGraphRepository<MarketService>
+{
+    MarketServiceReactiveRepository(
+            SessionFactory sessionFactory, CerebrumEntitySchema schema,
+            CerebrumEntityCounter counter, CerebrumEntityVersions versions, CerebrumQueryRecorder recorder)
+    {
+        super(new MarketServiceRepositoryImpl(sessionFactory, schema, counter, versions, recorder));
+    }
+}
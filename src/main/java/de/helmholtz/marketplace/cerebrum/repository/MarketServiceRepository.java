@@ -6,7 +6,8 @@ import java.util.Optional;
 
 import de.helmholtz.marketplace.cerebrum.entities.MarketService;
 
-public interface MarketServiceRepository extends PagingAndSortingRepository<MarketService, Long>
+public interface MarketServiceRepository
+        extends PagingAndSortingRepository<MarketService, Long>, CerebrumGraphRepository<MarketService>
 {
     Optional<MarketService> findByUuid(String uuid);
 
@@ -0,0 +1,18 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.SessionFactory;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+
+/**
+ * Hand written Cypher operations of {@link MarketServiceRepository}.
+ */
+class MarketServiceRepositoryImpl extends CerebrumGraphRepositorySupport<MarketService>
+{
+    MarketServiceRepositoryImpl(
+            SessionFactory sessionFactory, CerebrumEntitySchema schema,
+            CerebrumEntityCounter counter, CerebrumEntityVersions versions, CerebrumQueryRecorder recorder)
+    {
+        super(sessionFactory, schema, counter, versions, recorder, MarketService.class);
+    }
+}
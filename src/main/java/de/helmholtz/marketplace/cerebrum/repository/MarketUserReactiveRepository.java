@@ -0,0 +1,22 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.SessionFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
+
+/**
+ * Reactive reads with the statements of {@link MarketUserRepositoryImpl}.
+ */
+@Repository
+@Profile("reactive")
+public class MarketUserReactiveRepository extends CerebrumReactiveGraphRepository<MarketUser>
+{
+    MarketUserReactiveRepository(
+            SessionFactory sessionFactory, CerebrumEntitySchema schema,
+            CerebrumEntityCounter counter, CerebrumEntityVersions versions, CerebrumQueryRecorder recorder)
+    {
+        super(new MarketUserRepositoryImpl(sessionFactory, schema, counter, versions, recorder));
+    }
+}
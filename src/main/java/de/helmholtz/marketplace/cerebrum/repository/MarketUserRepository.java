@@ -7,7 +7,8 @@ import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
-public interface MarketUserRepository extends PagingAndSortingRepository<MarketUser, Long>
+public interface MarketUserRepository
+        extends PagingAndSortingRepository<MarketUser, Long>, CerebrumGraphRepository<MarketUser>
 {
     MarketUser findBySub(@Param("sub") String sub);
 
@@ -0,0 +1,18 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.SessionFactory;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
+
+/**
+ * Hand written Cypher operations of {@link MarketUserRepository}.
+ */
+class MarketUserRepositoryImpl extends CerebrumGraphRepositorySupport<MarketUser>
+{
+    MarketUserRepositoryImpl(
+            SessionFactory sessionFactory, CerebrumEntitySchema schema,
+            CerebrumEntityCounter counter, CerebrumEntityVersions versions, CerebrumQueryRecorder recorder)
+    {
+        super(sessionFactory, schema, counter, versions, recorder, MarketUser.class);
+    }
+}
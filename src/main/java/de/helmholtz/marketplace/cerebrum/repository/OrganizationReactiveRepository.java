@@ -0,0 +1,22 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.SessionFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+
+/**
+ * Reactive reads with the statements of {@link OrganizationRepositoryImpl}.
+ */
+@Repository
+@Profile("reactive")
+public class OrganizationReactiveRepository extends CerebrumReactiveGraphRepository<Organization>
+{
+    OrganizationReactiveRepository(
+            SessionFactory sessionFactory, CerebrumEntitySchema schema,
+            CerebrumEntityCounter counter, CerebrumEntityVersions versions, CerebrumQueryRecorder recorder)
+    {
+        super(new OrganizationRepositoryImpl(sessionFactory, schema, counter, versions, recorder));
+    }
+}
@@ -7,7 +7,7 @@ import org.springframework.data.repository.PagingAndSortingRepository;
 import java.util.Optional;
 
 public interface OrganizationRepository
-        extends PagingAndSortingRepository<Organization, Long>
+        extends PagingAndSortingRepository<Organization, Long>, CerebrumGraphRepository<Organization>
 {
     Optional<Organization> findByUuid(String uuid);
 
@@ -0,0 +1,18 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.neo4j.ogm.session.SessionFactory;
+
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+
+/**
+ * Hand written Cypher operations of {@link OrganizationRepository}.
+ */
+class OrganizationRepositoryImpl extends CerebrumGraphRepositorySupport<Organization>
+{
+    OrganizationRepositoryImpl(
+            SessionFactory sessionFactory, CerebrumEntitySchema schema,
+            CerebrumEntityCounter counter, CerebrumEntityVersions versions, CerebrumQueryRecorder recorder)
+    {
+        super(sessionFactory, schema, counter, versions, recorder, Organization.class);
+    }
+}
@@ -0,0 +1,194 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content addressed store of binary assets, such as organization logos,
+ * on the local file system. An asset is named after the SHA-256 hash of
+ * its content plus an extension telling its media type, so storing the
+ * same content twice keeps a single file, and a name always refers to the
+ * same bytes.
+ *
+ * Files are written to a temporary file first and then moved into place,
+ * so readers never see a partial asset. Assets are not deleted when the
+ * last reference goes away.
+ */
+@Component
+public class CerebrumAssetStore
+{
+    private static final Pattern NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,8}");
+
+    private final Path directory;
+    private final long maxAge;
+
+    public CerebrumAssetStore(
+            @Value("${cerebrum.assets.directory:cerebrum-assets}") String directory,
+            @Value("${cerebrum.assets.max-age:86400}") long maxAge)
+    {
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @param content bytes of the asset
+     * @param extension file extension of its media type, e.g. png
+     * @return the name of the asset, {@code <sha-256 hex>.<extension>}
+     */
+    public String put(byte[] content, String extension) throws IOException
+    {
+        String name = hash(content) + "." + extension;
+        Path target = path(name);
+        if (Files.exists(target)) return name;
+        Files.createDirectories(target.getParent());
+        Path temporary = Files.createTempFile(target.getParent(), name, ".tmp");
+        try {
+            Files.write(temporary, content);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // stored concurrently, with the same content
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return name;
+    }
+
+    /**
+     * @return the file of the asset, or empty if the name is malformed or
+     *         there is no such asset
+     */
+    public Optional<Path> find(String name)
+    {
+        if (name == null || !NAME.matcher(name).matches()) return Optional.empty();
+        Path path = path(name);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /* spread over 256 directories by the first byte of the hash */
+    private Path path(String name)
+    {
+        return directory.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    /**
+     * Answer a GET or HEAD request with an asset. The content hash is the
+     * entity tag, so conditional requests get a 304 and a single byte
+     * range, honouring If-Range, a 206; other range requests get the
+     * whole asset. Jetty writes the content from a mapping of the file to
+     * the socket, without copying it onto the heap; this is not sendfile,
+     * the kernel still copies the pages. Other containers get it copied
+     * through a buffer by {@link FileChannel#transferTo}.
+     *
+     * @param name name of an existing asset
+     * @param immutable whether the request URL names this content for
+     *        good, so the response may be cached for a year instead of
+     *        {@code cerebrum.assets.max-age} seconds
+     */
+    public void serve(String name, boolean immutable, HttpServletRequest request, HttpServletResponse response)
+            throws IOException
+    {
+        Path path = find(name).orElseThrow(() -> new IOException("No asset " + name));
+        String etag = "\"" + name.substring(0, name.indexOf('.')) + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable
+                ? "public, max-age=31536000, immutable" : "public, max-age=" + maxAge);
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) return;
+
+        long length = Files.size(path);
+        long start = 0;
+        long count = length;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                // a malformed range header is ignored
+                ranges = null;
+            }
+            if (ranges != null && ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(length);
+                if (start >= length) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                count = ranges.get(0).getRangeEnd(length) - start + 1;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (start + count - 1) + "/" + length);
+            }
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaTypeFactory.getMediaType(name)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod())) return;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            HttpOutput output = jettyOutput(response);
+            if (output != null) {
+                // commits the headers through the wrappers, e.g. of Spring Security, which watch for it
+                response.flushBuffer();
+                output.sendContent(channel.map(FileChannel.MapMode.READ_ONLY, start, count));
+                return;
+            }
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + count;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, target);
+                if (sent <= 0) break;
+                position += sent;
+            }
+        }
+    }
+
+    /* the output of Jetty underneath the wrappers of the filters, null in other containers */
+    private static HttpOutput jettyOutput(ServletResponse response)
+    {
+        while (response instanceof ServletResponseWrapper) response = ((ServletResponseWrapper) response).getResponse();
+        return response instanceof Response ? ((Response) response).getHttpOutput() : null;
+    }
+
+    private static String hash(byte[] content)
+    {
+        try {
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
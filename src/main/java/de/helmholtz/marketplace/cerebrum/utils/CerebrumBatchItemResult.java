@@ -0,0 +1,84 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.http.HttpStatus;
+
+import java.util.Collections;
+import java.util.List;
+
+@Schema(name = "CerebrumBatchItemResult", description = "outcome of a single item of a batch request")
+public class CerebrumBatchItemResult
+{
+    @Schema(description = "position of the item in the request array", example = "0")
+    private int index;
+
+    @Schema(description = "Unique identifier of the stored entity",
+            example = "org-01eac6d7-0d35-1812-a3ed-24aec4231940")
+    private String uuid;
+
+    @Schema(description = "HTTP status code of the item: 201 created, 200 updated, " +
+            "400 invalid, 409 duplicate id or 500 not stored")
+    private HttpStatus status;
+
+    @Schema(description = "list of error messages, empty if the item was stored")
+    private List<String> errors;
+
+    public CerebrumBatchItemResult()
+    {
+        super();
+    }
+
+    public CerebrumBatchItemResult(int index, String uuid, HttpStatus status, List<String> errors)
+    {
+        super();
+        this.index = index;
+        this.uuid = uuid;
+        this.status = status;
+        this.errors = errors;
+    }
+
+    public CerebrumBatchItemResult(int index, String uuid, HttpStatus status)
+    {
+        this(index, uuid, status, Collections.emptyList());
+    }
+
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public void setIndex(int index)
+    {
+        this.index = index;
+    }
+
+    public String getUuid()
+    {
+        return uuid;
+    }
+
+    public void setUuid(String uuid)
+    {
+        this.uuid = uuid;
+    }
+
+    public HttpStatus getStatus()
+    {
+        return status;
+    }
+
+    public void setStatus(HttpStatus status)
+    {
+        this.status = status;
+    }
+
+    public List<String> getErrors()
+    {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors)
+    {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,126 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Property;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumGraphRepository;
+
+/**
+ * Stores arrays of entities posted to the batch endpoints.
+ *
+ * All items are validated first, items without an id get one from a
+ * single reserved block, and the valid ones are upserted in chunks of
+ * {@code cerebrum.batch.chunk-size}, each chunk being one UNWIND statement
+ * in its own transaction. A failing chunk only fails its own items.
+ */
+@Component
+public class CerebrumBatchProcessor
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CerebrumBatchProcessor.class);
+
+    private final Validator validator;
+    private final CerebrumEntitySchema schema;
+    private final int maxItems;
+    private final int chunkSize;
+
+    public CerebrumBatchProcessor(
+            Validator validator,
+            CerebrumEntitySchema schema,
+            @Value("${cerebrum.batch.max-items:500}") int maxItems,
+            @Value("${cerebrum.batch.chunk-size:100}") int chunkSize)
+    {
+        if (chunkSize < 1) throw new IllegalArgumentException("cerebrum.batch.chunk-size must be positive");
+        this.validator = validator;
+        this.schema = schema;
+        this.maxItems = maxItems;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return one result per item, in request order
+     * @throws ResponseStatusException 413, if there are more than
+     *         {@code cerebrum.batch.max-items} items
+     */
+    public <T> List<CerebrumBatchItemResult> upsert(
+            List<T> items, Class<T> entityClass, CerebrumGraphRepository<T> repository)
+    {
+        if (items.size() > maxItems) throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "a batch may contain at most " + maxItems + " items, got " + items.size());
+
+        Property id = schema.of(entityClass).getId();
+        CerebrumBatchItemResult[] results = new CerebrumBatchItemResult[items.size()];
+        List<Integer> accepted = new ArrayList<>(items.size());
+        List<Integer> withoutId = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            if (item == null) {
+                results[i] = new CerebrumBatchItemResult(i, null, HttpStatus.BAD_REQUEST,
+                        Collections.singletonList("item must not be null"));
+                continue;
+            }
+            String uuid = (String) id.read(item);
+            Set<ConstraintViolation<T>> violations = validator.validate(item);
+            if (!violations.isEmpty()) {
+                List<String> errors = new ArrayList<>(violations.size());
+                for (ConstraintViolation<T> violation : violations) {
+                    errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+                }
+                results[i] = new CerebrumBatchItemResult(i, uuid, HttpStatus.BAD_REQUEST, errors);
+            } else if (uuid == null) {
+                withoutId.add(i);
+                accepted.add(i);
+            } else if (!ids.add(uuid)) {
+                results[i] = new CerebrumBatchItemResult(i, uuid, HttpStatus.CONFLICT,
+                        Collections.singletonList("duplicate uuid within the batch"));
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        if (!withoutId.isEmpty()) {
+            Iterator<String> reserved = CerebrumEntityUuidGenerator.reserve(
+                    CerebrumEntityUuidGenerator.prefixOf(entityClass), withoutId.size()).iterator();
+            for (int i : withoutId) id.write(items.get(i), reserved.next());
+        }
+
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            List<T> entities = new ArrayList<>(chunk.size());
+            for (int i : chunk) entities.add(items.get(i));
+            try {
+                Set<String> created = repository.upsertAll(entities);
+                for (int i : chunk) {
+                    String uuid = (String) id.read(items.get(i));
+                    results[i] = new CerebrumBatchItemResult(i, uuid,
+                            created.contains(uuid) ? HttpStatus.CREATED : HttpStatus.OK);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not store {} batch items of type {}",
+                        chunk.size(), entityClass.getSimpleName(), e);
+                for (int i : chunk) {
+                    results[i] = new CerebrumBatchItemResult(i, (String) id.read(items.get(i)),
+                            HttpStatus.INTERNAL_SERVER_ERROR, Collections.singletonList("could not be stored"));
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+}
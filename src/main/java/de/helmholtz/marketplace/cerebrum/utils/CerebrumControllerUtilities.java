@@ -1,28 +1,19 @@
 package de.helmholtz.marketplace.cerebrum.utils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.fge.jsonpatch.JsonPatch;
-import com.github.fge.jsonpatch.JsonPatchException;
 import org.springframework.data.domain.Sort;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import de.helmholtz.marketplace.cerebrum.errorhandling.exception.CerebrumInvalidUuidException;
+
 public final class CerebrumControllerUtilities
 {
     private CerebrumControllerUtilities()
     { }
 
-    public static <T> T applyPatch(
-            JsonPatch patch, T target, Class<T> clazz) throws JsonPatchException, JsonProcessingException
-    {
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode patched = patch.apply(objectMapper.convertValue(target, JsonNode.class));
-        return objectMapper.treeToValue(patched, clazz);
-    }
-
     public static List<Sort.Order> getOrders(List<String> sorts)
     {
         List<Sort.Order> orders = new ArrayList<>();
@@ -40,4 +31,30 @@ public final class CerebrumControllerUtilities
         }
         return orders;
     }
+
+    /**
+     * @param uuid id of an entity of the given type as sent by a client
+     * @return the id in the canonical lower case form the graph holds
+     * @throws CerebrumInvalidUuidException if it is not an id of that type
+     */
+    public static String parseUuid(String uuid, Class<?> entityClass)
+    {
+        CerebrumEntityUuid parsed = CerebrumEntityUuidGenerator.parse(uuid);
+        if (parsed == null
+                || !parsed.getPrefix().getPrefix().equals(CerebrumEntityUuidGenerator.prefixOf(entityClass))) {
+            throw new CerebrumInvalidUuidException(uuid);
+        }
+        return parsed.toString();
+    }
+
+    /**
+     * @param tag entity tag of the listing, read on the way
+     * @param listing reads of the listing, only subscribed to if the tag
+     *        does not match the If-None-Match of the request
+     * @return the listing, or empty if the request was answered with 304
+     */
+    public static <R> Mono<R> unlessNotModified(WebRequest webRequest, Mono<String> tag, Mono<R> listing)
+    {
+        return tag.flatMap(listTag -> webRequest.checkNotModified(listTag) ? Mono.empty() : listing);
+    }
 }
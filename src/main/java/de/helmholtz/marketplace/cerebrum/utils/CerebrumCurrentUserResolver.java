@@ -0,0 +1,120 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import de.helmholtz.marketplace.cerebrum.annotation.CurrentUser;
+import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
+import de.helmholtz.marketplace.cerebrum.repository.MarketUserRepository;
+
+/**
+ * Resolves the subject of the bearer token to its {@link MarketUser} and
+ * fills handler parameters annotated with {@link CurrentUser}.
+ *
+ * Lookups, including those that find nobody, are cached for
+ * {@code cerebrum.user.cache.time-to-live} seconds. The user controller
+ * evicts them on every write, so this only bounds how long writes that
+ * bypass it stay unseen. Cached users are shared between requests and must
+ * not be modified.
+ */
+@Component
+public class CerebrumCurrentUserResolver implements HandlerMethodArgumentResolver
+{
+    private final MarketUserRepository marketUserRepository;
+    private final Cache<String, Optional<MarketUser>> cache;
+
+    public CerebrumCurrentUserResolver(
+            MarketUserRepository marketUserRepository,
+            @Value("${cerebrum.user.cache.time-to-live:60}") long timeToLive,
+            @Value("${cerebrum.user.cache.maximum-size:10000}") long maximumSize)
+    {
+        this.marketUserRepository = marketUserRepository;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(timeToLive))
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param sub subject of a token
+     * @return the user registered with this subject
+     */
+    public Optional<MarketUser> resolve(String sub)
+    {
+        if (sub == null) return Optional.empty();
+        return cache.get(sub, key -> Optional.ofNullable(marketUserRepository.findBySub(key)));
+    }
+
+    /**
+     * @return the user of the current request's bearer token
+     */
+    public Optional<MarketUser> resolve(Authentication authentication)
+    {
+        if (!(authentication instanceof JwtAuthenticationToken)) return Optional.empty();
+        return resolve(((JwtAuthenticationToken) authentication).getToken().getSubject());
+    }
+
+    /**
+     * Forget the lookups of a written or deleted user, under its current
+     * subject as well as any earlier one.
+     */
+    public void evict(MarketUser user)
+    {
+        if (user.getSub() != null) cache.invalidate(user.getSub());
+        if (user.getUuid() == null) return;
+        cache.asMap().values().removeIf(cached ->
+                cached.map(found -> Objects.equals(found.getUuid(), user.getUuid())).orElse(false));
+    }
+
+    public void evictAll()
+    {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return hit and miss counts and the current size
+     */
+    public Map<String, Object> getStatistics()
+    {
+        CacheStats stats = cache.stats();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("entries", cache.estimatedSize());
+        statistics.put("hits", stats.hitCount());
+        statistics.put("misses", stats.missCount());
+        statistics.put("hitRate", stats.hitRate());
+        statistics.put("evictions", stats.evictionCount());
+        return statistics;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter)
+    {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && parameter.getParameterType().isAssignableFrom(MarketUser.class);
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory)
+    {
+        return resolve(SecurityContextHolder.getContext().getAuthentication()).orElse(null);
+    }
+}
@@ -0,0 +1,260 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumTagged;
+
+/**
+ * Bounded cache of single entities by uuid in front of the repositories.
+ * Entries are the serialized JSON of the entity together with its entity
+ * tag, so a hit is answered without touching the database or Jackson. The
+ * cache is bounded by the total size of the entries and entries expire
+ * after a fixed time to live; writes through the controllers invalidate
+ * it.
+ *
+ * Keys carry a generation of their entity type. A write moves on the
+ * generation of its type and of the types embedding it up to the deepest
+ * representation, so their entries are no longer found and age out,
+ * without looking at the other entries.
+ *
+ * On a miss of a conditional request the tag is looked up first, so that
+ * an unchanged entity is answered without loading it; otherwise the entity
+ * is loaded together with its tag in one statement. A loaded entity is
+ * cached under the generation read before loading it, so a write while it
+ * was loaded leaves it unreachable.
+ *
+ * Entities are written with the application's mapper, which
+ * {@code spring.jackson} configures like the JSON message converter of
+ * {@code @EnableWebMvc}.
+ */
+@Component
+public class CerebrumEntityCache
+{
+    /* rough per entry overhead of key, map node and array header */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    /* relationship levels of the deepest representation, see the depth of the controllers */
+    private static final int MAX_DEPTH = 2;
+
+    private final boolean enabled;
+    private final CerebrumEntitySchema schema;
+    private final ObjectWriter writer;
+    private final Cache<Key, Entry> cache;
+    private final ConcurrentMap<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public CerebrumEntityCache(
+            CerebrumEntitySchema schema,
+            ObjectMapper objectMapper,
+            @Value("${cerebrum.cache.enabled:true}") boolean enabled,
+            @Value("${cerebrum.cache.time-to-live:300}") long timeToLive,
+            @Value("${cerebrum.cache.maximum-size:67108864}") long maximumSize)
+    {
+        this.enabled = enabled;
+        this.schema = schema;
+        this.writer = objectMapper.writer();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize)
+                .weigher((Key key, Entry entry) -> entry.json.length + ENTRY_OVERHEAD)
+                .expireAfterWrite(Duration.ofSeconds(timeToLive))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param request tells whether the client already has the entity with
+     *        a tag, and gets the tag of the entity as its ETag
+     * @param tagLoader looks the tag of the entity up on a miss of a
+     *        conditional request
+     * @param loader looks the entity up together with its tag on a miss
+     * @return the entity, without JSON if it was not modified, or empty if
+     *         it does not exist; missing entities are not cached
+     */
+    public Optional<Entry> get(Class<?> type, String uuid, WebRequest request,
+                               Function<String, Optional<String>> tagLoader,
+                               Function<String, ? extends Optional<? extends CerebrumTagged<?>>> loader)
+    {
+        return get(type, uuid, "", request, tagLoader, loader);
+    }
+
+    /**
+     * @param variant tells apart representations of the same entity, e.g.
+     *        with a different relationship depth or fields; the loaders
+     *        have to produce that representation, e.g. a JSON tree, and
+     *        its tag
+     */
+    public Optional<Entry> get(Class<?> type, String uuid, String variant, WebRequest request,
+                               Function<String, Optional<String>> tagLoader,
+                               Function<String, ? extends Optional<? extends CerebrumTagged<?>>> loader)
+    {
+        Key key = new Key(type, generation(type).get(), uuid, variant);
+        Entry cached = enabled ? cache.getIfPresent(key) : null;
+        if (cached != null) return Optional.of(request.checkNotModified(cached.tag) ? cached.notModified() : cached);
+
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<String> tag = tagLoader.apply(uuid);
+            if (!tag.isPresent()) return Optional.empty();
+            if (request.checkNotModified(tag.get())) return Optional.of(new Entry(tag.get(), null));
+        }
+        Optional<? extends CerebrumTagged<?>> tagged = loader.apply(uuid);
+        if (!tagged.isPresent()) return Optional.empty();
+
+        Entry loaded = new Entry(tagged.get().getTag(), serialize(tagged.get().getEntity()));
+        if (enabled) cache.asMap().putIfAbsent(key, loaded);
+        return Optional.of(request.checkNotModified(loaded.tag) ? loaded.notModified() : loaded);
+    }
+
+    /**
+     * Invalidate the representations after an entity of a type was created,
+     * changed or deleted: those of all entities of its type and of the types
+     * that may embed it as a relation, not only those of the written entity
+     * and its neighbours. With the current entities a written user empties
+     * the whole cache, a written organization or service all organizations
+     * and services.
+     */
+    public void evict(Class<?> type)
+    {
+        for (Class<?> cached : generations.keySet()) {
+            if (embeds(cached, type)) generations.get(cached).incrementAndGet();
+        }
+    }
+
+    /**
+     * Invalidate all entities, e.g. after a batch write.
+     */
+    public void evictAll()
+    {
+        for (AtomicLong generation : generations.values()) generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return hit, miss and eviction counts and the current size
+     */
+    public Map<String, Object> getStatistics()
+    {
+        CacheStats stats = cache.stats();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("entries", cache.estimatedSize());
+        statistics.put("weight", cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        statistics.put("hits", stats.hitCount());
+        statistics.put("misses", stats.missCount());
+        statistics.put("hitRate", stats.hitRate());
+        statistics.put("evictions", stats.evictionCount());
+        return statistics;
+    }
+
+    private AtomicLong generation(Class<?> type)
+    {
+        return generations.computeIfAbsent(type, key -> new AtomicLong());
+    }
+
+    /* whether representations of type may contain entities of embedded */
+    private boolean embeds(Class<?> type, Class<?> embedded)
+    {
+        Set<Class<?>> reached = Collections.singleton(type);
+        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+            if (reached.contains(embedded)) return true;
+            Set<Class<?>> next = new HashSet<>();
+            for (Class<?> related : reached) next.addAll(schema.of(related).getRelatedTypes());
+            reached = next;
+        }
+        return false;
+    }
+
+    private byte[] serialize(Object entity)
+    {
+        try {
+            return writer.writeValueAsBytes(entity);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
+    public static final class Entry
+    {
+        private final String tag;
+        private final byte[] json;
+
+        private Entry(String tag, byte[] json)
+        {
+            this.tag = tag;
+            this.json = json;
+        }
+
+        private Entry notModified()
+        {
+            return new Entry(tag, null);
+        }
+
+        public String getTag()
+        {
+            return tag;
+        }
+
+        /**
+         * @return the entity as JSON, or null if the client has the
+         *         current version already
+         */
+        public byte[] getJson()
+        {
+            return json;
+        }
+    }
+
+    private static final class Key
+    {
+        private final Class<?> type;
+        private final long generation;
+        private final String uuid;
+        private final String variant;
+
+        private Key(Class<?> type, long generation, String uuid, String variant)
+        {
+            this.type = type;
+            this.generation = generation;
+            this.uuid = uuid;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return type == key.type && generation == key.generation && uuid.equals(key.uuid)
+                    && variant.equals(key.variant);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(type, generation, uuid, variant);
+        }
+    }
+}
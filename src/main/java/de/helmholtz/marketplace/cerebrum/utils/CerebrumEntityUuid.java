@@ -0,0 +1,71 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import java.util.Objects;
+import java.util.UUID;
+
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumEntityUuidGenerator.PrefixEnum;
+
+/**
+ * A validated, parsed entity id (prefix plus uuid bits), as returned by
+ * {@link CerebrumEntityUuidGenerator#parse(String)}. Equality and hash
+ * code only look at the parsed values, which makes it a cheap map key.
+ */
+public final class CerebrumEntityUuid
+{
+    private final PrefixEnum prefix;
+    private final long mostSignificantBits;
+    private final long leastSignificantBits;
+
+    CerebrumEntityUuid(PrefixEnum prefix, long mostSignificantBits, long leastSignificantBits)
+    {
+        this.prefix = prefix;
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+    }
+
+    public PrefixEnum getPrefix()
+    {
+        return prefix;
+    }
+
+    public long getMostSignificantBits()
+    {
+        return mostSignificantBits;
+    }
+
+    public long getLeastSignificantBits()
+    {
+        return leastSignificantBits;
+    }
+
+    public UUID toUUID()
+    {
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * @return the canonical (lower case) prefixed id
+     */
+    @Override
+    public String toString()
+    {
+        return prefix.getPrefix() + "-" + toUUID().toString();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof CerebrumEntityUuid)) return false;
+        CerebrumEntityUuid that = (CerebrumEntityUuid) o;
+        return prefix == that.prefix
+                && mostSignificantBits == that.mostSignificantBits
+                && leastSignificantBits == that.leastSignificantBits;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(prefix, mostSignificantBits, leastSignificantBits);
+    }
+}
@@ -1,19 +1,24 @@
 package de.helmholtz.marketplace.cerebrum.utils;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.neo4j.ogm.id.IdStrategy;
-import org.springframework.web.server.ServerErrorException;
-
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.Objects;
-import java.util.Random;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
+/**
+ * Prefixed type 1 ids of the entities. Generation and reservation are
+ * timed as {@value #IDS} on the global registry, as OGM creates its id
+ * strategies itself; Spring Boot adds its registries to the global one.
+ */
 public class CerebrumEntityUuidGenerator implements IdStrategy
 {
+    public static final String IDS = "cerebrum.ids";
+    public static final String RESERVED_IDS = "cerebrum.ids.reserved";
+
     public enum PrefixEnum
     {
         ORGANIZATION("org", "organization"),
@@ -22,18 +27,31 @@ public class CerebrumEntityUuidGenerator implements IdStrategy
 
         private final String prefix;
         private final String className;
+        private final Timer generated;
+        private final Timer reserved;
+        private final Counter reservedIds;
+
+        /* values() clones the array on every call */
+        private static final PrefixEnum[] PREFIXES = values();
 
         PrefixEnum(String prefix, String className)
         {
             this.prefix = prefix;
             this.className = className;
+            this.generated = Metrics.timer(IDS, "entity", className, "operation", "generate");
+            this.reserved = Metrics.timer(IDS, "entity", className, "operation", "reserve");
+            this.reservedIds = Metrics.counter(RESERVED_IDS, "entity", className);
+        }
+
+        public String getPrefix()
+        {
+            return prefix;
         }
 
         public static String getEntityPrefix(String className)
         {
-            for (PrefixEnum p : PrefixEnum.values()) {
-                if (Objects.equals(p.className.toLowerCase(),
-                        className.toLowerCase())) {
+            for (PrefixEnum p : PREFIXES) {
+                if (p.className.equalsIgnoreCase(className)) {
                     return p.prefix;
                 }
             }
@@ -43,72 +61,175 @@ public class CerebrumEntityUuidGenerator implements IdStrategy
 
         public static void checkPrefixValidity(String prefix)
         {
-            boolean valid = Arrays.stream(
-                    PrefixEnum.values()).anyMatch(p -> p.prefix.equals(prefix));
-            if (!valid) throw new IllegalArgumentException(
+            ofPrefix(prefix);
+        }
+
+        private static PrefixEnum ofPrefix(String prefix)
+        {
+            for (PrefixEnum p : PREFIXES) {
+                if (p.prefix.equals(prefix)) return p;
+            }
+            throw new IllegalArgumentException(
                     "Prefix: '" + prefix +"' is unknown to cerebrum." );
         }
+
+        /**
+         * Find the prefix an id starts with, without allocating.
+         *
+         * @return the matching prefix or null, if the id does not have the
+         *         length of a prefixed uuid or starts with an unknown prefix
+         */
+        private static PrefixEnum of(String id)
+        {
+            for (PrefixEnum p : PREFIXES) {
+                int length = p.prefix.length();
+                if (id.length() == length + 1 + UUID_LENGTH
+                        && id.charAt(length) == '-'
+                        && id.startsWith(p.prefix)) {
+                    return p;
+                }
+            }
+            return null;
+        }
     }
 
+    /* length of the canonical textual representation of a uuid */
+    private static final int UUID_LENGTH = 36;
+
+    private static final ClassValue<String> ENTITY_PREFIXES = new ClassValue<String>()
+    {
+        @Override
+        protected String computeValue(Class<?> type)
+        {
+            return PrefixEnum.getEntityPrefix(type.getSimpleName());
+        }
+    };
+
     @Override
     public Object generateId(Object entity)
     {
-        String[] packages = entity.getClass().getName().split("\\.");
-        int length = packages.length;
-        return generate(PrefixEnum.getEntityPrefix(packages[length-1]));
+        return generate(ENTITY_PREFIXES.get(entity.getClass()));
     }
 
-    public static synchronized String generate(String prefix)
+    /**
+     * @return the id prefix of the given entity class, e.g. org
+     */
+    public static String prefixOf(Class<?> entityClass)
     {
-        PrefixEnum.checkPrefixValidity(prefix);
-        return prefix + "-" + generateType1UUID().toString();
+        return ENTITY_PREFIXES.get(entityClass);
     }
 
-    public static Boolean isValid(String id)
+    public static String generate(String prefix)
     {
-        try {
-            PrefixEnum.checkPrefixValidity(id.split("-")[0]);
-            UUID uuid = UUID.fromString(id.substring(id.indexOf('-') + 1));
-            return uuid.version() > 0;
-        } catch (IllegalArgumentException | NullPointerException ex) {
-            return false;
-        }
+        return PrefixEnum.ofPrefix(prefix).generated.record(() -> prefix + "-" + generateType1UUID().toString());
     }
 
     /**
-     * Type 1 UUID Generation
-     * source: https://github.com/eugenp/tutorials/blob/master/core-java-modules/core-java/src/main/java/com/baeldung/uuid/UUIDGenerator.java
+     * Pre-reserve a block of ids for bulk creates. The whole block costs a
+     * single update of the shared clock, the ids are ordered by creation
+     * time and will never be handed out again by this JVM.
+     *
+     * @param prefix entity prefix, e.g. org
+     * @param count number of ids to reserve
+     * @return list of prefixed ids
      */
-    public static UUID generateType1UUID()
+    public static List<String> reserve(String prefix, int count)
     {
+        PrefixEnum entity = PrefixEnum.ofPrefix(prefix);
+        if (count < 1) throw new IllegalArgumentException(
+                "At least one id must be reserved, got " + count);
+        entity.reservedIds.increment(count);
+        return entity.reserved.record(() -> reserveIds(prefix, count));
+    }
 
-        long most64SigBits = get64MostSignificantBitsForVersion1();
-        long least64SigBits = get64LeastSignificantBitsForVersion1();
+    private static List<String> reserveIds(String prefix, int count)
+    {
+        List<String> ids = new ArrayList<>(count);
+        long tick = CerebrumUuidEngine.reserveTicks(count);
+        for (int i = 0; i < count; i++) {
+            UUID uuid = new UUID(
+                    CerebrumUuidEngine.mostSignificantBits(tick),
+                    CerebrumUuidEngine.leastSignificantBits());
+            ids.add(prefix + "-" + uuid.toString());
+            tick = CerebrumUuidEngine.nextTick(tick);
+        }
+        return ids;
+    }
 
-        return new UUID(most64SigBits, least64SigBits);
+    public static Boolean isValid(String id)
+    {
+        if (id == null) return false;
+        PrefixEnum prefix = PrefixEnum.of(id);
+        return prefix != null && parseUuid(id, prefix, null);
     }
 
-    private static long get64LeastSignificantBitsForVersion1()
+    /**
+     * Parse a prefixed id in a single pass, without throwing on bad input.
+     *
+     * @param id prefixed id, e.g. org-01eac6d7-0d35-1812-a3ed-24aec4231940
+     * @return the parsed id, or null if the id is not valid
+     */
+    public static CerebrumEntityUuid parse(String id)
     {
-        try {
-            Random random = SecureRandom.getInstanceStrong();
-            long random63BitLong = random.nextLong() & 0x3FFFFFFFFFFFFFFFL;
-            long variant3BitFlag = 0x8000000000000000L;
-            return random63BitLong + variant3BitFlag;
-        } catch (NoSuchAlgorithmException e) {
-            throw new ServerErrorException("Error in generating secure random number for uuid", e);
+        if (id == null) return null;
+        PrefixEnum prefix = PrefixEnum.of(id);
+        if (prefix == null) return null;
+        long[] bits = new long[2];
+        return parseUuid(id, prefix, bits)
+                ? new CerebrumEntityUuid(prefix, bits[0], bits[1]) : null;
+    }
+
+    /**
+     * Character level parser of the canonical 8-4-4-4-12 uuid following
+     * the prefix. A version of 0 is rejected, like the previous
+     * UUID.fromString based check did.
+     *
+     * @param bits if not null, receives the most and least significant bits
+     */
+    private static boolean parseUuid(String id, PrefixEnum prefix, long[] bits)
+    {
+        int start = prefix.getPrefix().length() + 1;
+        long most = 0;
+        long least = 0;
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = id.charAt(start + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return false;
+                continue;
+            }
+            int digit = hexValue(c);
+            if (digit < 0) return false;
+            if (i < 18) most = (most << 4) | digit;
+            else least = (least << 4) | digit;
         }
+        if (((most >> 12) & 0x0f) == 0) return false;
+        if (bits != null) {
+            bits[0] = most;
+            bits[1] = least;
+        }
+        return true;
     }
 
-    private static long get64MostSignificantBitsForVersion1()
+    private static int hexValue(char c)
     {
-        LocalDateTime start = LocalDateTime.of(1582, 10, 15, 0, 0, 0);
-        Duration duration = Duration.between(start, LocalDateTime.now());
-        long seconds = duration.getSeconds();
-        long nanos = duration.getNano();
-        long timeForUuidIn100Nanos = seconds * 10000000 + nanos * 100;
-        long least12SignificatBitOfTime = (timeForUuidIn100Nanos & 0x000000000000FFFFL) >> 4;
-        long version = 1 << 12;
-        return (timeForUuidIn100Nanos & 0xFFFFFFFFFFFF0000L) + version + least12SignificatBitOfTime;
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    /**
+     * Type 1 UUID Generation
+     * source: https://github.com/eugenp/tutorials/blob/master/core-java-modules/core-java/src/main/java/com/baeldung/uuid/UUIDGenerator.java
+     * The timestamp comes from a monotonic clock and the random part from a
+     * per thread generator, see {@link CerebrumUuidEngine}.
+     */
+    public static UUID generateType1UUID()
+    {
+        long most64SigBits = CerebrumUuidEngine.mostSignificantBits(
+                CerebrumUuidEngine.reserveTicks(1));
+        long least64SigBits = CerebrumUuidEngine.leastSignificantBits();
+
+        return new UUID(most64SigBits, least64SigBits);
     }
 }
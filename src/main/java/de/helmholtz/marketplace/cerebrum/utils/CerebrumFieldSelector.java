@@ -0,0 +1,36 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.stereotype.Component;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFieldSet;
+
+/**
+ * Reduces entities to the fields a client asked for. The JSON objects are
+ * built with the application's mapper, like the entities of
+ * {@link CerebrumEntityCache}, so a selected field is written as in the
+ * full entity.
+ */
+@Component
+public class CerebrumFieldSelector
+{
+    private final ObjectMapper objectMapper;
+
+    public CerebrumFieldSelector(ObjectMapper objectMapper)
+    {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param entity entity read with the given fields
+     * @return the entity itself for {@link CerebrumFieldSet#ALL}, otherwise
+     *         its JSON object with the requested fields only
+     */
+    public Object select(Object entity, CerebrumFieldSet fields)
+    {
+        if (fields.isAll()) return entity;
+        ObjectNode node = objectMapper.valueToTree(entity);
+        return node.retain(fields.getNames());
+    }
+}
@@ -0,0 +1,130 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.RemoteJWKSet;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The signing keys of the authorisation server, kept in memory.
+ *
+ * The key set is fetched when the application is ready and then refreshed
+ * every {@code cerebrum.jwt.jwk-set.refresh-interval} milliseconds in the
+ * background, so token verification never waits for it. A token signed
+ * with a key that is not in the set fetches it again right away, at most
+ * once per {@code cerebrum.jwt.jwk-set.minimum-refresh-interval}, to pick
+ * up rotated keys early. A failed refresh keeps the previous keys.
+ */
+@Component
+public class CerebrumJwkSetSource implements JWKSource<SecurityContext>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CerebrumJwkSetSource.class);
+
+    private final URL jwkSetUri;
+    private final ResourceRetriever retriever = new DefaultResourceRetriever(
+            RemoteJWKSet.DEFAULT_HTTP_CONNECT_TIMEOUT,
+            RemoteJWKSet.DEFAULT_HTTP_READ_TIMEOUT,
+            RemoteJWKSet.DEFAULT_HTTP_SIZE_LIMIT);
+    private final Duration minimumRefreshInterval;
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile JWKSet jwkSet;
+    private volatile Instant fetchedAt = Instant.EPOCH;
+
+    public CerebrumJwkSetSource(
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${cerebrum.jwt.jwk-set.minimum-refresh-interval:30000}") long minimumRefreshInterval)
+    {
+        try {
+            this.jwkSetUri = new URL(jwkSetUri);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid JWK set URI " + jwkSetUri, e);
+        }
+        this.minimumRefreshInterval = Duration.ofMillis(minimumRefreshInterval);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException
+    {
+        JWKSet current = jwkSet;
+        if (current == null) current = fetch(minimumRefreshInterval);
+        List<JWK> keys = jwkSelector.select(current);
+        if (keys.isEmpty()) {
+            JWKSet refreshed = fetch(minimumRefreshInterval);
+            if (refreshed != current) keys = jwkSelector.select(refreshed);
+        }
+        return keys;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prefetch()
+    {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${cerebrum.jwt.jwk-set.refresh-interval:300000}",
+            initialDelayString = "${cerebrum.jwt.jwk-set.refresh-interval:300000}")
+    public void refresh()
+    {
+        try {
+            fetch(Duration.ZERO);
+        } catch (RemoteKeySourceException e) {
+            LOGGER.warn("Could not fetch the JWK set from {}, keeping the previous one", jwkSetUri, e);
+        }
+    }
+
+    /**
+     * @return the number of keys and fetches of the key set
+     */
+    public Map<String, Object> getStatistics()
+    {
+        JWKSet current = jwkSet;
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("keys", current == null ? 0 : current.getKeys().size());
+        statistics.put("fetchedAt", current == null ? null : fetchedAt.toString());
+        statistics.put("fetches", fetches.get());
+        statistics.put("failures", failures.get());
+        return statistics;
+    }
+
+    /* concurrent callers wait for one fetch and then share its result */
+    private synchronized JWKSet fetch(Duration maximumAge) throws RemoteKeySourceException
+    {
+        JWKSet current = jwkSet;
+        if (current != null && fetchedAt.plus(maximumAge).isAfter(Instant.now())) return current;
+        try {
+            JWKSet fetched = JWKSet.parse(retriever.retrieveResource(jwkSetUri).getContent());
+            fetches.incrementAndGet();
+            fetchedAt = Instant.now();
+            jwkSet = fetched;
+            return fetched;
+        } catch (IOException | ParseException e) {
+            failures.incrementAndGet();
+            throw new RemoteKeySourceException("Could not fetch the JWK set from " + jwkSetUri, e);
+        }
+    }
+}
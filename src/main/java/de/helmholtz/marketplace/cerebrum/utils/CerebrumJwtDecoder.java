@@ -0,0 +1,142 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decoder of the bearer tokens of the resource server. It verifies tokens
+ * like Spring Boot's default decoder, RS256 signatures with the keys of
+ * {@link CerebrumJwkSetSource} and the default validators with the
+ * issuer, but remembers successfully verified tokens until they expire, so
+ * a client that sends the same token again skips parsing and signature
+ * verification.
+ *
+ * Tokens are only kept as a SHA-256 hash. Tokens that fail verification or
+ * carry no expiry are not cached.
+ */
+@Component
+public class CerebrumJwtDecoder implements JwtDecoder
+{
+    private final JwtDecoder verifier;
+    private final Cache<String, Jwt> cache;
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder verificationTime = new LongAdder();
+
+    public CerebrumJwtDecoder(
+            CerebrumJwkSetSource jwkSetSource,
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+            @Value("${cerebrum.jwt.cache.maximum-size:10000}") long maximumSize)
+    {
+        this.verifier = verifier(jwkSetSource, issuerUri);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Jwt>()
+                {
+                    @Override
+                    public long expireAfterCreate(String key, Jwt jwt, long currentTime)
+                    {
+                        return Math.max(0, Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration)
+                    {
+                        return expireAfterCreate(key, jwt, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration)
+                    {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    private static JwtDecoder verifier(CerebrumJwkSetSource jwkSetSource, String issuerUri)
+    {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSetSource));
+        // the claims are checked by the validators of the decoder
+        processor.setJWTClaimsSetVerifier((claims, context) -> {});
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return decoder;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException
+    {
+        String key = hash(token);
+        Jwt jwt = cache.getIfPresent(key);
+        if (jwt != null && jwt.getExpiresAt().isAfter(Instant.now())) return jwt;
+
+        long start = System.nanoTime();
+        try {
+            jwt = verifier.decode(token);
+        } catch (JwtException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            verifications.increment();
+            verificationTime.add(System.nanoTime() - start);
+        }
+        if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isAfter(Instant.now())) cache.put(key, jwt);
+        return jwt;
+    }
+
+    /**
+     * @return hit and miss counts of the cache and the number and mean
+     *         duration of full verifications
+     */
+    public Map<String, Object> getStatistics()
+    {
+        CacheStats stats = cache.stats();
+        long count = verifications.sum();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("entries", cache.estimatedSize());
+        statistics.put("hits", stats.hitCount());
+        statistics.put("misses", stats.missCount());
+        statistics.put("hitRate", stats.hitRate());
+        statistics.put("evictions", stats.evictionCount());
+        statistics.put("verifications", count);
+        statistics.put("verificationFailures", failures.sum());
+        statistics.put("verificationTimeMeanMicros", count == 0 ? 0 : verificationTime.sum() / count / 1000);
+        return statistics;
+    }
+
+    private static String hash(String token)
+    {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
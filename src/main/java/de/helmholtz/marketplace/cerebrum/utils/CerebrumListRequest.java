@@ -0,0 +1,62 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.function.Function;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumKeysetCursor;
+
+/**
+ * Paging parameters of a list endpoint and the listing they ask for: the
+ * entities after a cursor, a slice without the total, or a page with it.
+ * Filtered listings are always pages, their total comes with the facets,
+ * and cannot continue a cursor. The blocking and the reactive controllers
+ * both choose their reads here, they only differ in how they read.
+ */
+public final class CerebrumListRequest
+{
+    private final int page;
+    private final int size;
+    private final Sort sort;
+    private final boolean withTotal;
+    private final String cursor;
+    private final boolean filtered;
+
+    /**
+     * @param cursor encoded cursor, empty for the first page, or null to page
+     *        by number
+     * @throws ResponseStatusException if a filtered listing is to continue a
+     *         cursor
+     */
+    public CerebrumListRequest(int page, int size, Sort sort, boolean withTotal, String cursor, boolean filtered)
+    {
+        if (cursor != null && filtered) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "filters cannot be combined with a cursor, use page instead");
+        }
+        this.page = page;
+        this.size = size;
+        this.sort = sort;
+        this.withTotal = withTotal;
+        this.cursor = cursor;
+        this.filtered = filtered;
+    }
+
+    /**
+     * @param after reads the entities after the decoded cursor
+     * @param slice reads a slice, which only tells whether there is a next one
+     * @param page reads a page with its total
+     * @return the result of the read the parameters ask for
+     */
+    public <R> R read(Function<CerebrumKeysetCursor, ? extends R> after,
+                      Function<PageRequest, ? extends R> slice,
+                      Function<PageRequest, ? extends R> page)
+    {
+        if (cursor != null) return after.apply(CerebrumKeysetCursor.of(cursor, sort));
+        PageRequest pageRequest = PageRequest.of(this.page, size, sort);
+        return withTotal || filtered ? page.apply(pageRequest) : slice.apply(pageRequest);
+    }
+}
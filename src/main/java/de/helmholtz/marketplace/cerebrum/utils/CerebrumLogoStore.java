@@ -0,0 +1,230 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.session.event.Event;
+import org.neo4j.ogm.session.event.EventListenerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema.Entity;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntityVersions;
+
+/**
+ * Keeps organization logos out of the graph. A logo given inline, as a
+ * base64 data URL or as bare base64 of a known image format, is put into
+ * the {@link CerebrumAssetStore} and {@code img} holds the reference
+ * {@code asset:<name>} instead; web addresses are kept as they are.
+ *
+ * Logos are replaced by an event listener before every save, so the saved
+ * entity carries the reference as well; the hand written writes of the
+ * repositories notify the listeners themselves. Inline logos written
+ * before are migrated at startup.
+ */
+@Component
+public class CerebrumLogoStore implements SmartInitializingSingleton
+{
+    public static final String REFERENCE_PREFIX = "asset:";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CerebrumLogoStore.class);
+    private static final Pattern BASE64 = Pattern.compile("[A-Za-z0-9+/=\\s]{16,}");
+    private static final int MIGRATION_BATCH_SIZE = 100;
+    private static final Map<String, String> EXTENSIONS = new HashMap<>();
+
+    static {
+        EXTENSIONS.put("image/png", "png");
+        EXTENSIONS.put("image/jpeg", "jpg");
+        EXTENSIONS.put("image/gif", "gif");
+        EXTENSIONS.put("image/svg+xml", "svg");
+        EXTENSIONS.put("image/webp", "webp");
+        EXTENSIONS.put("image/x-icon", "ico");
+        EXTENSIONS.put("image/vnd.microsoft.icon", "ico");
+    }
+
+    private final CerebrumAssetStore assetStore;
+    private final SessionFactory sessionFactory;
+    private final CerebrumEntitySchema schema;
+    private final CerebrumEntityVersions versions;
+    private final boolean migrate;
+
+    public CerebrumLogoStore(CerebrumAssetStore assetStore,
+                             SessionFactory sessionFactory,
+                             CerebrumEntitySchema schema,
+                             CerebrumEntityVersions versions,
+                             @Value("${cerebrum.assets.migrate:true}") boolean migrate)
+    {
+        this.assetStore = assetStore;
+        this.sessionFactory = sessionFactory;
+        this.schema = schema;
+        this.versions = versions;
+        this.migrate = migrate;
+        sessionFactory.register(new EventListenerAdapter()
+        {
+            @Override
+            public void onPreSave(Event event)
+            {
+                if (event.getObject() instanceof Organization) {
+                    Organization organization = (Organization) event.getObject();
+                    organization.setImg(externalize(organization.getImg()));
+                }
+            }
+        });
+    }
+
+    /**
+     * @param img logo as given by a client
+     * @return the reference of the stored logo if it was given inline,
+     *         otherwise img itself
+     */
+    public String externalize(String img)
+    {
+        if (img == null || img.startsWith(REFERENCE_PREFIX)) return img;
+        byte[] content;
+        String extension;
+        if (img.startsWith("data:")) {
+            int comma = img.indexOf(',');
+            if (comma < 0 || !img.substring(0, comma).endsWith(";base64")) return img;
+            content = decode(img.substring(comma + 1));
+            if (content == null) return img;
+            String mediaType = img.substring("data:".length(), comma - ";base64".length());
+            extension = EXTENSIONS.get(mediaType.toLowerCase(Locale.ROOT));
+            if (extension == null) extension = sniff(content);
+            if (extension == null) extension = "bin";
+        } else {
+            content = decode(img);
+            // anything that is not recognizably an image stays as it is
+            extension = content == null ? null : sniff(content);
+            if (extension == null) return img;
+        }
+        try {
+            return REFERENCE_PREFIX + assetStore.put(content, extension);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store logo", e);
+        }
+    }
+
+    /**
+     * @return the asset name of a logo reference, or empty if img is a web
+     *         address or missing
+     */
+    public static Optional<String> assetName(String img)
+    {
+        if (img == null || !img.startsWith(REFERENCE_PREFIX)) return Optional.empty();
+        return Optional.of(img.substring(REFERENCE_PREFIX.length()));
+    }
+
+    private static byte[] decode(String base64)
+    {
+        if (!BASE64.matcher(base64).matches()) return null;
+        try {
+            return Base64.getMimeDecoder().decode(base64);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /* file extension from the magic bytes of the common logo formats */
+    private static String sniff(byte[] content)
+    {
+        if (startsWith(content, 0x89, 'P', 'N', 'G')) return "png";
+        if (startsWith(content, 0xFF, 0xD8, 0xFF)) return "jpg";
+        if (startsWith(content, 'G', 'I', 'F', '8')) return "gif";
+        if (startsWith(content, 0, 0, 1, 0)) return "ico";
+        if (startsWith(content, 'R', 'I', 'F', 'F') && content.length > 12
+                && new String(content, 8, 4, StandardCharsets.US_ASCII).equals("WEBP")) return "webp";
+        String text = new String(content, StandardCharsets.UTF_8).replace("\uFEFF", "").trim();
+        if (text.startsWith("<") && text.contains("<svg")) return "svg";
+        return null;
+    }
+
+    private static boolean startsWith(byte[] content, int... magic)
+    {
+        if (content.length < magic.length) return false;
+        for (int i = 0; i < magic.length; i++) {
+            if ((content[i] & 0xFF) != magic[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated()
+    {
+        if (!migrate) return;
+        try {
+            int migrated = migrate();
+            if (migrated > 0) LOGGER.info("Moved {} inline organization logos to the asset store", migrated);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not migrate inline organization logos", e);
+        }
+    }
+
+    /**
+     * Replace the inline logos stored in the graph by references, in
+     * batches.
+     *
+     * @return the number of migrated organizations
+     */
+    public int migrate()
+    {
+        Entity entity = schema.of(Organization.class);
+        String id = entity.getId().on("n");
+        String img = entity.getProperty("img").on("n");
+        String version = entity.getVersion() == null ? "" : ", " + entity.getVersion().on("n") + " = randomUUID()";
+        Session session = sessionFactory.openSession();
+        List<String> skipped = new ArrayList<>();
+        int migrated = 0;
+        while (true) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("prefix", REFERENCE_PREFIX);
+            parameters.put("skipped", skipped);
+            parameters.put("limit", MIGRATION_BATCH_SIZE);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            int read = 0;
+            for (Map<String, Object> row : session.query(
+                    "MATCH (n:" + entity.label() + ") WHERE " + img + " IS NOT NULL "
+                            + "AND NOT " + img + " STARTS WITH $prefix AND NOT " + img + " STARTS WITH 'http' "
+                            + "AND NOT " + id + " IN $skipped "
+                            + "RETURN " + id + " AS uuid, " + img + " AS img LIMIT $limit",
+                    parameters, true)) {
+                read++;
+                String inline = (String) row.get("img");
+                String reference = externalize(inline);
+                if (reference.equals(inline)) {
+                    // not an image, left alone and not read again
+                    skipped.add((String) row.get("uuid"));
+                    continue;
+                }
+                Map<String, Object> update = new HashMap<>(2);
+                update.put("uuid", row.get("uuid"));
+                update.put("img", reference);
+                rows.add(update);
+            }
+            if (read == 0) break;
+            if (rows.isEmpty()) continue;
+            session.query("UNWIND $rows AS row MATCH (n:" + entity.label() + ") WHERE " + id + " = row.uuid "
+                            + "SET " + img + " = row.img" + version,
+                    Collections.singletonMap("rows", rows), false);
+            migrated += rows.size();
+        }
+        if (migrated > 0) versions.changed(Organization.class);
+        return migrated;
+    }
+}
@@ -0,0 +1,88 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.reactivestreams.Publisher;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes entity streams as newline delimited JSON, one entity per line,
+ * with a single streaming generator. Output is flushed by the servlet
+ * container as its buffer fills, not after every entity.
+ *
+ * Entities are written with the application's mapper, like the entities
+ * of {@link CerebrumEntityCache}, so that a line equals the body of the
+ * single entity GET.
+ */
+@Component
+public class CerebrumNdjsonWriter
+{
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+    /* entities per chunk of a reactive body, which is flushed after every chunk */
+    private static final int LINES_PER_CHUNK = 64;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+
+    public CerebrumNdjsonWriter(ObjectMapper objectMapper)
+    {
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @param entities stream to write, closed once written
+     */
+    public StreamingResponseBody body(Stream<?> entities)
+    {
+        return outputStream -> {
+            try (Stream<?> stream = entities;
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                for (Iterator<?> iterator = stream.iterator(); iterator.hasNext(); ) {
+                    writer.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+    }
+
+    /**
+     * The entities as chunks of lines for a reactive response body. The
+     * next entities are requested when a chunk has been written.
+     */
+    public Flux<String> chunks(Publisher<?> entities)
+    {
+        return Flux.from(entities).buffer(LINES_PER_CHUNK).map(this::lines);
+    }
+
+    private String lines(List<?> entities)
+    {
+        StringWriter lines = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(lines)) {
+            generator.setRootValueSeparator(null);
+            for (Object entity : entities) {
+                writer.writeValue(generator, entity);
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+        return lines.toString();
+    }
+}
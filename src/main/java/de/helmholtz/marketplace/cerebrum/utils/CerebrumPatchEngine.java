@@ -0,0 +1,290 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Applies JSON Patch documents to entities with the application's object
+ * mapper.
+ *
+ * Patches made up only of add/replace/remove operations on top-level
+ * scalar properties (strings, numbers, booleans, enums and dates) are
+ * applied directly to the bean through its setters, all or none of them. Anything else (test,
+ * move, copy, nested paths, relationships) falls back to converting the
+ * entity to a JSON tree, patching the tree and reading it back. Readers,
+ * writers and property metadata are cached per entity class.
+ *
+ * Every patch is timed as {@value #PATCHES}, tagged with the entity and
+ * the mode it was applied in, scalar or tree.
+ */
+@Component
+public class CerebrumPatchEngine
+{
+    public static final String PATCHES = "cerebrum.patches";
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Class<?>, EntityPatcher> patchers = new ConcurrentHashMap<>();
+
+    public CerebrumPatchEngine(ObjectMapper objectMapper, MeterRegistry meterRegistry)
+    {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T applyPatch(JsonPatch patch, T target, Class<T> clazz)
+            throws JsonPatchException, JsonProcessingException
+    {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        EntityPatcher patcher = patchers.computeIfAbsent(clazz, EntityPatcher::new);
+        List<PropertyUpdate> updates = patcher.scalarUpdates(objectMapper.valueToTree(patch));
+        try {
+            if (updates != null) {
+                apply(updates, target);
+                return target;
+            }
+            JsonNode patched = patch.apply(patcher.toTree(target));
+            return readValue(patcher.reader, patched);
+        } finally {
+            sample.stop(meterRegistry.timer(PATCHES, "entity", clazz.getSimpleName().toLowerCase(Locale.ROOT),
+                    "mode", updates != null ? "scalar" : "tree"));
+        }
+    }
+
+    /*
+     * all or nothing: the values are converted before the first setter
+     * runs, and a setter failing half way restores the properties set
+     * before it, in reverse order
+     */
+    private static void apply(List<PropertyUpdate> updates, Object target) throws JsonProcessingException
+    {
+        Object[] previous = new Object[updates.size()];
+        for (int i = 0; i < updates.size(); i++) {
+            PropertyUpdate update = updates.get(i);
+            try {
+                previous[i] = update.read(target);
+                update.write(target, update.value);
+            } catch (CerebrumPatchException e) {
+                for (int j = i - 1; j >= 0; j--) {
+                    try {
+                        updates.get(j).write(target, previous[j]);
+                    } catch (CerebrumPatchException restore) {
+                        e.addSuppressed(restore);
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static <T> T readValue(ObjectReader reader, JsonNode node) throws JsonProcessingException
+    {
+        try {
+            return reader.readValue(node);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CerebrumPatchException("Could not read " + reader.getValueType(), e);
+        }
+    }
+
+    private static final class PropertyUpdate
+    {
+        private final ScalarProperty property;
+        private final Object value;
+
+        private PropertyUpdate(ScalarProperty property, Object value)
+        {
+            this.property = property;
+            this.value = value;
+        }
+
+        private Object read(Object target) throws CerebrumPatchException
+        {
+            try {
+                return property.accessor.getValue(target);
+            } catch (Exception e) {
+                throw new CerebrumPatchException("Could not read " + property.accessor.getName()
+                        + " of " + target.getClass().getSimpleName(), e);
+            }
+        }
+
+        private void write(Object target, Object value) throws CerebrumPatchException
+        {
+            try {
+                property.setter.callOnWith(target, value);
+            } catch (Exception e) {
+                throw new CerebrumPatchException(
+                        "Could not set " + property.setter.getName() + " on " + target.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private static final class ScalarProperty
+    {
+        private final AnnotatedMethod setter;
+        private final AnnotatedMember accessor;
+        private final ObjectReader reader;
+        private final boolean nullable;
+
+        private ScalarProperty(AnnotatedMethod setter, AnnotatedMember accessor, ObjectReader reader, boolean nullable)
+        {
+            this.setter = setter;
+            this.accessor = accessor;
+            this.reader = reader;
+            this.nullable = nullable;
+        }
+    }
+
+    private final class EntityPatcher
+    {
+        private final ObjectReader reader;
+        private final ObjectWriter writer;
+        private final Map<String, ScalarProperty> scalarProperties;
+
+        private EntityPatcher(Class<?> clazz)
+        {
+            JavaType type = objectMapper.constructType(clazz);
+            this.reader = objectMapper.readerFor(type);
+            this.writer = objectMapper.writerFor(type);
+            this.scalarProperties = serializesNulls(type)
+                    ? findScalarProperties(type)
+                    : Collections.emptyMap();
+        }
+
+        private JsonNode toTree(Object target) throws JsonProcessingException
+        {
+            try (TokenBuffer buffer = new TokenBuffer(objectMapper, false)) {
+                writer.writeValue(buffer, target);
+                return objectMapper.readTree(buffer.asParser());
+            } catch (JsonProcessingException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new CerebrumPatchException("Could not convert " + target.getClass().getSimpleName(), e);
+            }
+        }
+
+        /**
+         * @return the converted updates, or null if the patch contains an
+         *         operation that needs the full tree round trip
+         */
+        private List<PropertyUpdate> scalarUpdates(JsonNode operations) throws JsonProcessingException
+        {
+            if (scalarProperties.isEmpty() || !operations.isArray()) return null;
+            List<PropertyUpdate> updates = new ArrayList<>(operations.size());
+            for (JsonNode operation : operations) {
+                String op = operation.path("op").asText();
+                String path = operation.path("path").asText();
+                if (path.length() < 2 || path.charAt(0) != '/' || path.indexOf('/', 1) >= 0) return null;
+                ScalarProperty property = scalarProperties.get(
+                        path.substring(1).replace("~1", "/").replace("~0", "~"));
+                if (property == null) return null;
+
+                Object value;
+                if ("remove".equals(op)) {
+                    value = null;
+                } else if ("replace".equals(op) || "add".equals(op)) {
+                    JsonNode valueNode = operation.get("value");
+                    if (valueNode == null) return null;
+                    value = valueNode.isNull() ? null : readValue(property.reader, valueNode);
+                } else {
+                    return null;
+                }
+                if (value == null && !property.nullable) return null;
+                updates.add(new PropertyUpdate(property, value));
+            }
+            return updates;
+        }
+
+        /*
+         * replace and remove require the member to be present in the json
+         * tree; that is only guaranteed if null values are written out
+         */
+        private boolean serializesNulls(JavaType type)
+        {
+            BeanDescription description = objectMapper.getSerializationConfig().introspect(type);
+            JsonInclude.Value inclusion = description.findPropertyInclusion(
+                    objectMapper.getSerializationConfig().getDefaultPropertyInclusion());
+            JsonInclude.Include include = inclusion.getValueInclusion();
+            return include == JsonInclude.Include.ALWAYS || include == JsonInclude.Include.USE_DEFAULTS;
+        }
+
+        private Map<String, ScalarProperty> findScalarProperties(JavaType type)
+        {
+            Set<String> serialized = new HashSet<>();
+            for (BeanPropertyDefinition property :
+                    objectMapper.getSerializationConfig().introspect(type).findProperties()) {
+                if (property.couldSerialize()) serialized.add(property.getName());
+            }
+            Map<String, ScalarProperty> properties = new HashMap<>();
+            BeanDescription description = objectMapper.getDeserializationConfig().introspect(type);
+            for (BeanPropertyDefinition property : description.findProperties()) {
+                JavaType propertyType = property.getPrimaryType();
+                AnnotatedMember accessor = property.getAccessor();
+                if (!property.hasSetter() || accessor == null || !serialized.contains(property.getName())
+                        || !isScalar(propertyType)) continue;
+                AnnotatedMethod setter = property.getSetter();
+                setter.fixAccess(true);
+                accessor.fixAccess(true);
+                properties.put(property.getName(), new ScalarProperty(
+                        setter, accessor, objectMapper.readerFor(propertyType), !propertyType.isPrimitive()));
+            }
+            return properties;
+        }
+
+        private boolean isScalar(JavaType type)
+        {
+            Class<?> raw = type.getRawClass();
+            return type.isPrimitive()
+                    || type.isEnumType()
+                    || raw == String.class
+                    || raw == Boolean.class
+                    || raw == Character.class
+                    || raw == UUID.class
+                    || Number.class.isAssignableFrom(raw)
+                    || Date.class.isAssignableFrom(raw)
+                    || Temporal.class.isAssignableFrom(raw);
+        }
+    }
+
+    /**
+     * Failure while converting between an entity and its JSON form.
+     */
+    static final class CerebrumPatchException extends JsonProcessingException
+    {
+        CerebrumPatchException(String message, Throwable cause)
+        {
+            super(message, cause);
+        }
+    }
+}
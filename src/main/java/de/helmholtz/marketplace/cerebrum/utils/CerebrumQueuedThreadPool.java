@@ -0,0 +1,55 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Platform thread pool of the Jetty server with a bounded queue: when all
+ * threads are busy and the queue is full, further connections are
+ * rejected instead of waiting without limit. Thread counts and the idle
+ * timeout are set by Spring Boot from {@code server.jetty.*}.
+ */
+public class CerebrumQueuedThreadPool extends QueuedThreadPool
+{
+    private final int queueCapacity;
+    private final LongAdder rejected = new LongAdder();
+
+    public CerebrumQueuedThreadPool(String name, int queueCapacity)
+    {
+        super(200, 8, 60000, new BlockingArrayQueue<>(Math.min(queueCapacity, 64), 64, queueCapacity));
+        this.queueCapacity = queueCapacity;
+        setName(name);
+    }
+
+    @Override
+    public void execute(Runnable job)
+    {
+        try {
+            super.execute(job);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("executor", "platform");
+        statistics.put("threads", getThreads());
+        statistics.put("busyThreads", getBusyThreads());
+        statistics.put("idleThreads", getIdleThreads());
+        statistics.put("minThreads", getMinThreads());
+        statistics.put("maxThreads", getMaxThreads());
+        statistics.put("queued", getQueueSize());
+        statistics.put("queueCapacity", queueCapacity);
+        statistics.put("lowOnThreads", isLowOnThreads());
+        statistics.put("rejected", rejected.sum());
+        return statistics;
+    }
+}
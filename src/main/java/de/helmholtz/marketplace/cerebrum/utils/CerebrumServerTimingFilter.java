@@ -0,0 +1,130 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumQueryRecorder;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumQueryRecorder.RequestQueries;
+
+/**
+ * Adds up the Cypher statements of every request and reports them in a
+ * {@code Server-Timing} header, e.g. {@code db;dur=12.500;desc="3 statements"},
+ * which browsers show next to the timings of the request.
+ *
+ * The header is set when the body is first written, so it counts the
+ * statements finished until then: all of them for regular responses, but
+ * only the ones before the first record of a streamed export.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class CerebrumServerTimingFilter extends OncePerRequestFilter
+{
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private final CerebrumQueryRecorder recorder;
+    private final boolean enabled;
+
+    public CerebrumServerTimingFilter(CerebrumQueryRecorder recorder,
+                                      @Value("${cerebrum.queries.server-timing:true}") boolean enabled)
+    {
+        this.recorder = recorder;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException
+    {
+        RequestQueries queries = recorder.begin();
+        ServerTimingResponse timed = enabled ? new ServerTimingResponse(response, queries) : null;
+        try {
+            chain.doFilter(request, timed == null ? response : timed);
+        } finally {
+            recorder.end(queries);
+            // bodies of async requests are written later, from the same wrapper
+            if (timed != null && !request.isAsyncStarted()) timed.addServerTiming();
+        }
+    }
+
+    static String serverTiming(RequestQueries queries)
+    {
+        long statements = queries.getStatements();
+        return String.format(Locale.ROOT, "db;dur=%.3f;desc=\"%d statement%s\"",
+                queries.getMillis(), statements, statements == 1 ? "" : "s");
+    }
+
+    private static final class ServerTimingResponse extends HttpServletResponseWrapper
+    {
+        private final RequestQueries queries;
+        private boolean added;
+
+        private ServerTimingResponse(HttpServletResponse response, RequestQueries queries)
+        {
+            super(response);
+            this.queries = queries;
+        }
+
+        /* headers can no longer be set once the response is committed */
+        private synchronized void addServerTiming()
+        {
+            if (added || isCommitted()) return;
+            added = true;
+            addHeader(SERVER_TIMING, serverTiming(queries));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException
+        {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException
+        {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException
+        {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException
+        {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException
+        {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException
+        {
+            addServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+}
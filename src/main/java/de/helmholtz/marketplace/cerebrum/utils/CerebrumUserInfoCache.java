@@ -0,0 +1,138 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * UserInfo responses of the authorisation server, cached per bearer token
+ * until the token expires. Concurrent requests with the same token share
+ * one upstream call, and nothing blocks while waiting for it.
+ *
+ * Tokens are only kept as a SHA-256 hash. Failed calls and expired tokens
+ * are not cached.
+ */
+@Component
+public class CerebrumUserInfoCache
+{
+    private final WebClient authorisationServer;
+    private final String userInfoUri;
+    private final Duration defaultTimeToLive;
+    private final AsyncCache<String, UserInfo> cache;
+
+    public CerebrumUserInfoCache(
+            @Qualifier("authorisationServer") WebClient authorisationServer,
+            @Value("${cerebrum.userinfo.uri}") String userInfoUri,
+            @Value("${cerebrum.userinfo.cache.maximum-size:10000}") long maximumSize,
+            @Value("${cerebrum.userinfo.cache.default-time-to-live:300}") long defaultTimeToLive)
+    {
+        this.authorisationServer = authorisationServer;
+        this.userInfoUri = userInfoUri;
+        this.defaultTimeToLive = Duration.ofSeconds(defaultTimeToLive);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, UserInfo>()
+                {
+                    @Override
+                    public long expireAfterCreate(String key, UserInfo userInfo, long currentTime)
+                    {
+                        return Math.max(0, Duration.between(Instant.now(), userInfo.expiresAt).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, UserInfo userInfo, long currentTime,
+                                                  long currentDuration)
+                    {
+                        return expireAfterCreate(key, userInfo, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, UserInfo userInfo, long currentTime,
+                                                long currentDuration)
+                    {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * @param token bearer token of the current request
+     * @return the UserInfo claims of the token's owner
+     */
+    public Mono<JsonNode> get(Jwt token)
+    {
+        Instant expiresAt = token.getExpiresAt() != null
+                ? token.getExpiresAt() : Instant.now().plus(defaultTimeToLive);
+        if (!expiresAt.isAfter(Instant.now())) return fetch(token);
+        return Mono.fromFuture(cache.get(hash(token.getTokenValue()), (key, executor) ->
+                fetch(token).map(claims -> new UserInfo(claims, expiresAt)).toFuture())
+                // a dependent future, so that a cancelled request does not cancel the shared call
+                .thenApply(userInfo -> userInfo == null ? null : userInfo.claims));
+    }
+
+    /**
+     * @return hit and miss counts and the current size
+     */
+    public Map<String, Object> getStatistics()
+    {
+        CacheStats stats = cache.synchronous().stats();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("entries", cache.synchronous().estimatedSize());
+        statistics.put("hits", stats.hitCount());
+        statistics.put("misses", stats.missCount());
+        statistics.put("hitRate", stats.hitRate());
+        statistics.put("evictions", stats.evictionCount());
+        return statistics;
+    }
+
+    private Mono<JsonNode> fetch(Jwt token)
+    {
+        return authorisationServer
+                .get()
+                .uri(userInfoUri)
+                .headers(headers -> headers.setBearerAuth(token.getTokenValue()))
+                .retrieve()
+                .bodyToMono(JsonNode.class);
+    }
+
+    private static String hash(String token)
+    {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class UserInfo
+    {
+        private final JsonNode claims;
+        private final Instant expiresAt;
+
+        private UserInfo(JsonNode claims, Instant expiresAt)
+        {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
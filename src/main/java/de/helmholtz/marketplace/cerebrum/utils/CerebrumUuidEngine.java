@@ -0,0 +1,110 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.springframework.web.server.ServerErrorException;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free source of the time based (version 1) uuids used by
+ * {@link CerebrumEntityUuidGenerator}.
+ *
+ * The 60 bit gregorian timestamp is drawn from a shared monotonic clock
+ * which only ever moves forward: concurrent callers race on a single
+ * compare-and-set instead of a monitor, and a burst that outruns the wall
+ * clock simply borrows ticks from the near future. The random half of the
+ * uuid comes from one of a fixed set of {@link SecureRandom}s, picked at
+ * random on every call: callers rarely share a generator, and as the set
+ * does not follow thread identity a virtual thread per request seeds no
+ * generator of its own.
+ */
+final class CerebrumUuidEngine
+{
+    /* 100ns intervals between 1582-10-15T00:00Z and 1970-01-01T00:00Z */
+    private static final long GREGORIAN_OFFSET = 0x01B21DD213814000L;
+
+    /* the layout below drops the lowest 4 bits of the timestamp */
+    private static final long TICK = 0x10L;
+
+    private static final AtomicLong LAST_TICK = new AtomicLong();
+
+    /* the smallest power of two of at least twice the cores, each created on first use */
+    private static final AtomicReferenceArray<SecureRandom> RANDOMS = new AtomicReferenceArray<>(
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1));
+
+    private CerebrumUuidEngine()
+    { }
+
+    /**
+     * Reserve a block of consecutive, never before issued timestamps.
+     *
+     * @param count number of timestamps needed
+     * @return first timestamp of the block; the following ones are
+     *         spaced {@link #TICK} apart
+     */
+    static long reserveTicks(int count)
+    {
+        long now = currentTicks() & ~(TICK - 1);
+        long span = count * TICK;
+        while (true) {
+            long last = LAST_TICK.get();
+            long first = Math.max(now, last + TICK);
+            if (LAST_TICK.compareAndSet(last, first + span - TICK)) return first;
+        }
+    }
+
+    static long nextTick(long tick)
+    {
+        return tick + TICK;
+    }
+
+    /**
+     * Most significant bits: timestamp high bits, version 1 and the upper
+     * part of the low timestamp bits; this keeps ids sortable by creation
+     * time and compatible with ids issued by earlier releases.
+     */
+    static long mostSignificantBits(long tick)
+    {
+        long least12SignificantBitsOfTime = (tick & 0x000000000000FFFFL) >> 4;
+        long version = 1 << 12;
+        return (tick & 0xFFFFFFFFFFFF0000L) + version + least12SignificantBitsOfTime;
+    }
+
+    static long leastSignificantBits()
+    {
+        long random62BitLong = random().nextLong() & 0x3FFFFFFFFFFFFFFFL;
+        long variantFlag = 0x8000000000000000L;
+        return random62BitLong + variantFlag;
+    }
+
+    private static long currentTicks()
+    {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 10_000_000L + now.getNano() / 100 + GREGORIAN_OFFSET;
+    }
+
+    private static SecureRandom random()
+    {
+        int stripe = ThreadLocalRandom.current().nextInt() & (RANDOMS.length() - 1);
+        SecureRandom random = RANDOMS.get(stripe);
+        if (random != null) return random;
+        // a racing caller may seed one in vain, only the first one is kept
+        RANDOMS.compareAndSet(stripe, null, newSecureRandom());
+        return RANDOMS.get(stripe);
+    }
+
+    private static SecureRandom newSecureRandom()
+    {
+        try {
+            // DRBG instances are thread safe and keep their own state, unlike
+            // the default NativePRNG which funnels every caller through one lock
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new ServerErrorException("Error in generating secure random number for uuid", e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread pool of the Jetty server that runs every task on a new virtual
+ * thread, so a request blocked on the database or the identity provider
+ * holds no platform thread. Virtual threads exist from Java 21 on; they
+ * are created reflectively so that the application still builds and runs
+ * on Java 11, check {@link #isSupported()} first.
+ */
+public class CerebrumVirtualThreadPool extends AbstractLifeCycle implements ThreadPool
+{
+    private final String name;
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder started = new LongAdder();
+    private volatile ExecutorService executor;
+
+    public CerebrumVirtualThreadPool(String name)
+    {
+        this.name = name;
+    }
+
+    public static boolean isSupported()
+    {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        // Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory())
+        Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+        ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        executor = (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        ExecutorService stopped = executor;
+        if (stopped == null) return;
+        stopped.shutdown();
+        if (!stopped.awaitTermination(getStopTimeout(), TimeUnit.MILLISECONDS)) stopped.shutdownNow();
+    }
+
+    @Override
+    public void execute(Runnable job)
+    {
+        ExecutorService current = executor;
+        if (current == null) throw new RejectedExecutionException(name + " is not started");
+        current.execute(() -> {
+            running.incrementAndGet();
+            started.increment();
+            try {
+                job.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException
+    {
+        ExecutorService current = executor;
+        if (current != null) current.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int getThreads()
+    {
+        return running.get();
+    }
+
+    @Override
+    public int getIdleThreads()
+    {
+        return 0;
+    }
+
+    /* a new thread is always at hand */
+    @Override
+    public boolean isLowOnThreads()
+    {
+        return false;
+    }
+
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("executor", "virtual");
+        statistics.put("threads", running.get());
+        statistics.put("started", started.sum());
+        return statistics;
+    }
+}
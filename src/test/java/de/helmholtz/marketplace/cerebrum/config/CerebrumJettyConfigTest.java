@@ -0,0 +1,79 @@
+package de.helmholtz.marketplace.cerebrum.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.jetty.JettyServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumVirtualThreadPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CerebrumJettyConfigTest
+{
+    @Test void
+    givenPlatformExecutor_whenServe_thenRequestRunsOnPool() throws Exception
+    {
+        CerebrumJettyConfig config = new CerebrumJettyConfig("platform", 2000, -1, -1);
+
+        assertThat(serve(config)).startsWith("cerebrum-http-").endsWith(" virtual=false");
+        assertThat(config.getStatistics().get("threadPool")).isInstanceOf(Map.class);
+    }
+
+    /* runs on Java 21 or later only, e.g. mvn test with JAVA_HOME pointing to one */
+    @Test void
+    givenVirtualExecutor_whenServe_thenRequestRunsOnVirtualThread() throws Exception
+    {
+        assumeTrue(CerebrumVirtualThreadPool.isSupported(), "virtual threads require Java 21 or later");
+        CerebrumJettyConfig config = new CerebrumJettyConfig("virtual", 2000, -1, -1);
+
+        assertThat(serve(config)).startsWith("cerebrum-http-").endsWith(" virtual=true");
+        assertThat(((Map<?, ?>) config.getStatistics().get("threadPool")).get("executor")).isEqualTo("virtual");
+    }
+
+    /* boots the embedded Jetty like the application does and returns the thread of a request */
+    private static String serve(CerebrumJettyConfig config) throws Exception
+    {
+        JettyServletWebServerFactory factory = new JettyServletWebServerFactory(0);
+        config.customize(factory);
+        WebServer server = factory.getWebServer(context -> context.addServlet("thread", new HttpServlet()
+        {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                Thread thread = Thread.currentThread();
+                response.getWriter().print(thread.getName() + " virtual=" + isVirtual(thread));
+            }
+        }).addMapping("/thread"));
+        server.start();
+        try {
+            HttpURLConnection connection = (HttpURLConnection)
+                    new URL("http://localhost:" + server.getPort() + "/thread").openConnection();
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            try (InputStream body = connection.getInputStream()) {
+                return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static boolean isVirtual(Thread thread)
+    {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
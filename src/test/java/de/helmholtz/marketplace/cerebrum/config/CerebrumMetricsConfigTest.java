@@ -0,0 +1,52 @@
+package de.helmholtz.marketplace.cerebrum.config;
+
+import io.micrometer.core.instrument.Tags;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Arrays;
+
+import de.helmholtz.marketplace.cerebrum.controller.OrganizationController;
+import de.helmholtz.marketplace.cerebrum.controller.OrganizationReactiveController;
+import de.helmholtz.marketplace.cerebrum.utils.CerebrumNdjsonWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class CerebrumMetricsConfigTest
+{
+    private final CerebrumMetricsConfig.EndpointTagsProvider tagsProvider =
+            new CerebrumMetricsConfig.EndpointTagsProvider();
+
+    private static HandlerMethod handler(Class<?> type, String name)
+    {
+        BeanFactory beanFactory = mock(BeanFactory.class);
+        doReturn(type).when(beanFactory).getType("controller");
+        return new HandlerMethod("controller", beanFactory, Arrays.stream(type.getMethods())
+                .filter(method -> method.getName().equals(name)).findFirst().orElseThrow(AssertionError::new));
+    }
+
+    @Test void
+    givenControllerMethod_whenEndpointTags_thenEntityAndOperation()
+    {
+        assertThat(tagsProvider.endpointTags(handler(OrganizationController.class, "getOrganizations")))
+                .isEqualTo(Tags.of("entity", "organization", "operation", "getOrganizations"));
+    }
+
+    @Test void
+    givenReactiveVariant_whenEndpointTags_thenEntityOfItsController()
+    {
+        assertThat(tagsProvider.endpointTags(handler(OrganizationReactiveController.class, "getOrganization")))
+                .isEqualTo(Tags.of("entity", "organization", "operation", "getOrganization"));
+    }
+
+    @Test void
+    givenNoController_whenEndpointTags_thenNone()
+    {
+        assertThat(tagsProvider.endpointTags(handler(CerebrumNdjsonWriter.class, "chunks")))
+                .isEqualTo(Tags.of("entity", "none", "operation", "none"));
+        assertThat(tagsProvider.endpointTags(new Object())).isEqualTo(Tags.of("entity", "none", "operation", "none"));
+    }
+}
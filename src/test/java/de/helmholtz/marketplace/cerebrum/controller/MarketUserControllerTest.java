@@ -0,0 +1,67 @@
+package de.helmholtz.marketplace.cerebrum.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Optional;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntityVersions;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFieldSet;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumTagged;
+import de.helmholtz.marketplace.cerebrum.repository.MarketUserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "cerebrum.cache.enabled=false")
+@AutoConfigureMockMvc
+class MarketUserControllerTest
+{
+    private static final String USER_API_URI = "/api/v0/users";
+    private static final String UUID = "usr-5189a7bc-d630-11ea-87d0-0242ac130003";
+    @Autowired private MockMvc mvc;
+    @MockBean private MarketUserRepository mockRepository;
+    @MockBean private CerebrumEntityVersions mockVersions;
+
+    /*
+     * a user linked as contact person has neighbours, so the tag of its
+     * neighbourhood differs from the one of the user as served, without
+     * relationships
+     */
+    @Test void
+    givenLinkedUser_whenConditionalGetWithServedTag_thenNotModifiedWithoutLoading() throws Exception
+    {
+        MarketUser user = new MarketUser();
+        user.setUuid(UUID);
+        user.setFirstName("Ada");
+        user.setLastName("Lovelace");
+        given(mockRepository.findTaggedByUuid(UUID, 0, CerebrumFieldSet.ALL))
+                .willReturn(Optional.of(new CerebrumTagged<>(user, "\"usr-0\"")));
+        given(mockRepository.findTagByUuid(UUID, 0)).willReturn(Optional.of("\"usr-0\""));
+        given(mockRepository.findTagByUuid(UUID, 1)).willReturn(Optional.of("\"usr-1\""));
+
+        String tag = mvc.perform(get(USER_API_URI + "/" + UUID).accept("application/json"))
+                .andReturn().getResponse().getHeader("ETag");
+        MockHttpServletResponse response = mvc.perform(get(USER_API_URI + "/" + UUID)
+                .header("If-None-Match", tag)
+                .accept("application/json"))
+                .andReturn().getResponse();
+
+        assertThat(tag).isEqualTo("\"usr-0\"");
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        verify(mockRepository, times(1)).findTaggedByUuid(UUID, 0, CerebrumFieldSet.ALL);
+    }
+}
@@ -2,7 +2,9 @@ package de.helmholtz.marketplace.cerebrum.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatchException;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
@@ -22,6 +24,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -30,14 +33,23 @@ import java.util.List;
 import java.util.Map;
 
 import de.helmholtz.marketplace.cerebrum.entities.Organization;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntityVersions;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumFieldSet;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumKeysetSlice;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumPatchStatement;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumSlice;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumTagged;
 import de.helmholtz.marketplace.cerebrum.repository.OrganizationRepository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
@@ -50,7 +62,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @ExtendWith(SpringExtension.class)
 @AutoConfigureJsonTesters
-@SpringBootTest
+@SpringBootTest(properties = "cerebrum.cache.enabled=false")
 @AutoConfigureMockMvc
 @TestInstance(value = Lifecycle.PER_CLASS)
 class OrganizationControllerTest
@@ -60,6 +72,7 @@ class OrganizationControllerTest
     @Value("${cerebrum.test.oauth2-token}") private String TOKEN;
     @Autowired private MockMvc mvc;
     @MockBean private OrganizationRepository mockRepository;
+    @MockBean private CerebrumEntityVersions mockVersions;
     @Autowired private ObjectMapper objectMapper;
     private final List<Organization> listOrganisation = new ArrayList<>();
 
@@ -211,6 +224,13 @@ class OrganizationControllerTest
     }
 
     // GETs
+    @BeforeEach
+    public void stubHydration()
+    {
+        given(mockRepository.hydrate(any(), anyInt(), any())).willAnswer(invocation -> invocation.getArgument(0));
+        given(mockVersions.getListTag(any())).willReturn("W/\"organizations-1\"");
+    }
+
     @Test void
     whenGetRequestToOrganisations_thenOK() throws Exception
     {
@@ -218,6 +238,20 @@ class OrganizationControllerTest
                 .andExpect(status().isOk());
     }
 
+    @Test void
+    givenListETag_whenGetRequestToOrganisations_thenNotModifiedWithoutQuery() throws Exception
+    {
+        String etag = mvc.perform(get(ORG_API_URI))
+                .andReturn().getResponse().getHeader("ETag");
+
+        MockHttpServletResponse response = mvc.perform(get(ORG_API_URI).header("If-None-Match", etag))
+                .andReturn().getResponse();
+
+        assertThat(etag).startsWith("W/\"");
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        verify(mockRepository, times(1)).findAll(any(Pageable.class), any());
+    }
+
     @Test void
     givenValidAcceptHeader_whenGetRequestToOrganisations_verify_output_and_businessLogicCalls_thenOK()
             throws Exception
@@ -226,7 +260,7 @@ class OrganizationControllerTest
         Pageable pageable = PageRequest.of(
                 0,20, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
 
-        given(mockRepository.findAll(pageable)).willReturn(page);
+        given(mockRepository.findAll(pageable, CerebrumFieldSet.ALL)).willReturn(page);
 
         MockHttpServletResponse response = mvc.perform(
                 get(ORG_API_URI).accept("application/json"))
@@ -240,7 +274,7 @@ class OrganizationControllerTest
         assertThat(response.getHeader("content-type")).isEqualTo("application/json");
         assertThat(actualListOrganisation.toString()).isEqualToIgnoringWhitespace(
                 objectMapper.writeValueAsString(listOrganisation));
-        verify(mockRepository, times(1)).findAll(pageable);
+        verify(mockRepository, times(1)).findAll(pageable, CerebrumFieldSet.ALL);
     }
 
     @Test void
@@ -250,7 +284,7 @@ class OrganizationControllerTest
         Pageable pageable = PageRequest.of(
                 0,20, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
 
-        given(mockRepository.findAll(pageable)).willReturn(page);
+        given(mockRepository.findAll(pageable, CerebrumFieldSet.ALL)).willReturn(page);
 
         MockHttpServletResponse response = mvc.perform(
                 get(ORG_API_URI).accept("application/xml"))
@@ -271,8 +305,8 @@ class OrganizationControllerTest
                 "http://www.kit.edu/",
                 "http://www.kit.edu/img/intern/kit_logo_V2_de.svg",
                 "org-5189a7bc-d630-11ea-87d0-0242ac130003");
-        given(mockRepository.findByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003"))
-                .willReturn(java.util.Optional.of(kit));
+        given(mockRepository.findTaggedByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003", 1, CerebrumFieldSet.ALL))
+                .willReturn(java.util.Optional.of(new CerebrumTagged<>(kit, "\"kit-1\"")));
 
         MockHttpServletResponse response = mvc.perform(
                 get(ORG_API_URI + "/org-5189a7bc-d630-11ea-87d0-0242ac130003")
@@ -283,8 +317,29 @@ class OrganizationControllerTest
         //then
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
         assertThat(response.getHeader("Content-Type")).isEqualTo("application/json");
+        assertThat(response.getHeader("ETag")).isEqualTo("\"kit-1\"");
         assertThat(response.getContentAsString()).isEqualToIgnoringWhitespace(objectMapper.writeValueAsString(kit));
-        verify(mockRepository, times(1)).findByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003");
+        verify(mockRepository, times(1)).findTaggedByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003", 1, CerebrumFieldSet.ALL);
+        verify(mockRepository, times(0)).findTagByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003", 1);
+    }
+
+    @Test void
+    givenMatchingIfNoneMatch_whenGetRequestToOrganisation_thenNotModifiedWithoutLoading() throws Exception
+    {
+        given(mockRepository.findTagByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003", 1))
+                .willReturn(java.util.Optional.of("\"kit-1\""));
+
+        MockHttpServletResponse response = mvc.perform(
+                get(ORG_API_URI + "/org-5189a7bc-d630-11ea-87d0-0242ac130003")
+                        .header("If-None-Match", "\"kit-0\", \"kit-1\"")
+                        .accept("application/json"))
+                .andReturn().getResponse();
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(response.getHeader("ETag")).isEqualTo("\"kit-1\"");
+        assertThat(response.getContentAsString()).isEmpty();
+        verify(mockRepository, times(0)).findTaggedByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003", 1, CerebrumFieldSet.ALL);
     }
 
     @Test void
@@ -296,8 +351,8 @@ class OrganizationControllerTest
                 "http://www.kit.edu/",
                 "http://www.kit.edu/img/intern/kit_logo_V2_de.svg",
                 "org-5189a7bc-d630-11ea-87d0-0242ac130003");
-        given(mockRepository.findByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003"))
-                .willReturn(java.util.Optional.of(kit));
+        given(mockRepository.findTaggedByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003", 1, CerebrumFieldSet.ALL))
+                .willReturn(java.util.Optional.of(new CerebrumTagged<>(kit, "\"kit-1\"")));
 
         MockHttpServletResponse response = mvc.perform(
                 get(ORG_API_URI + "/org-5189a7bc-d630-11ea-87d0-0242ac130004")
@@ -305,7 +360,8 @@ class OrganizationControllerTest
                 .andReturn().getResponse();
 
         assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_FOUND.value());
-        verify(mockRepository, times(1)).findByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130004");
+        verify(mockRepository, times(1)).findTaggedByUuid(
+                "org-5189a7bc-d630-11ea-87d0-0242ac130004", 1, CerebrumFieldSet.ALL);
     }
 
     @Test void
@@ -329,6 +385,38 @@ class OrganizationControllerTest
         verify(mockRepository, times(0)).findByUuid("2");
     }
 
+    @Test void
+    givenIdOfOtherEntity_whenGetRequestToOrganisation_thenBadRequest() throws Exception
+    {
+        MockHttpServletResponse response = mvc.perform(
+                get(ORG_API_URI + "/usr-5189a7bc-d630-11ea-87d0-0242ac130003")
+                        .accept("application/json"))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        verify(mockRepository, times(0)).findTaggedByUuid(any(), anyInt(), any());
+    }
+
+    @Test void
+    givenUpperCaseUuid_whenGetRequestToOrganisation_thenLookedUpInCanonicalForm() throws Exception
+    {
+        Organization kit = createNewOrganisationWithUuiD(
+                "Karlsruher Institut fuer Technologie",
+                "KIT",
+                "http://www.kit.edu/",
+                "http://www.kit.edu/img/intern/kit_logo_V2_de.svg",
+                "org-5189a7bc-d630-11ea-87d0-0242ac130003");
+        given(mockRepository.findTaggedByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003", 1, CerebrumFieldSet.ALL))
+                .willReturn(java.util.Optional.of(new CerebrumTagged<>(kit, "\"kit-1\"")));
+
+        MockHttpServletResponse response = mvc.perform(
+                get(ORG_API_URI + "/org-5189A7BC-D630-11EA-87D0-0242AC130003")
+                        .accept("application/json"))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
     @Test void
     givenInvalidAcceptHeader_and_validUuid_whenGetRequestToOrganisation_thenNotAcceptable() throws Exception
     {
@@ -357,7 +445,7 @@ class OrganizationControllerTest
         Pageable pageable = PageRequest.of(
                 1,20, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
         Page<Organization> page = new PageImpl<>(listOrganisation, pageable, 200L);
-        given(mockRepository.findAll(pageable)).willReturn(page);
+        given(mockRepository.findAll(pageable, CerebrumFieldSet.ALL)).willReturn(page);
 
         //when
         mvc.perform(get(ORG_API_URI +"?page=1")
@@ -395,7 +483,7 @@ class OrganizationControllerTest
         Pageable pageable = PageRequest.of(
                 0,2, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
         Page<Organization> page = new PageImpl<>(listOrganisation.subList(0, 2), pageable, 20L);
-        given(mockRepository.findAll(pageable)).willReturn(page);
+        given(mockRepository.findAll(pageable, CerebrumFieldSet.ALL)).willReturn(page);
 
         //when
         mvc.perform(
@@ -427,7 +515,7 @@ class OrganizationControllerTest
         Pageable pageable = PageRequest.of(
                 0,20, Sort.by(Sort.Order.desc("abbreviation")));
         Page<Organization> page = new PageImpl<>(listOrganisation, pageable,200L);
-        given(mockRepository.findAll(pageable)).willReturn(page);
+        given(mockRepository.findAll(pageable, CerebrumFieldSet.ALL)).willReturn(page);
 
         //when
         mvc.perform(
@@ -446,7 +534,7 @@ class OrganizationControllerTest
         Pageable pageable = PageRequest.of(
                 2,4, Sort.by(Sort.Order.asc("name")));
         Page<Organization> page = new PageImpl<>(listOrganisation.subList(0, 4), pageable,200L);
-        given(mockRepository.findAll(pageable)).willReturn(page);
+        given(mockRepository.findAll(pageable, CerebrumFieldSet.ALL)).willReturn(page);
 
         //when
         mvc.perform(
@@ -460,6 +548,135 @@ class OrganizationControllerTest
                 .andExpect(jsonPath("$['pageable']['pageSize']").value(4));
     }
 
+    @Test void
+    givenWithTotalFalse_whenGetRequestToOrganisations_thenSliceWithoutCount() throws Exception
+    {
+        Pageable pageable = PageRequest.of(
+                0,20, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
+        given(mockRepository.findSlice(pageable, CerebrumFieldSet.ALL))
+                .willReturn(new CerebrumSlice<>(listOrganisation, pageable, true));
+
+        MockHttpServletResponse response = mvc.perform(
+                get(ORG_API_URI).param("withTotal", "false").accept("application/json"))
+                .andReturn().getResponse();
+
+        //then
+        JsonNode actualResponseBody = objectMapper.readTree(response.getContentAsString());
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(actualResponseBody.get("hasNext").asBoolean()).isTrue();
+        assertThat(actualResponseBody.has("totalElements")).isFalse();
+        verify(mockRepository, times(1)).findSlice(pageable, CerebrumFieldSet.ALL);
+        verify(mockRepository, times(0)).findAll(pageable, CerebrumFieldSet.ALL);
+    }
+
+    @Test void
+    givenEmptyCursor_whenGetRequestToOrganisations_thenFirstKeysetPage() throws Exception
+    {
+        given(mockRepository.findAllAfter(any(), eq(2), eq(CerebrumFieldSet.ALL)))
+                .willReturn(new CerebrumKeysetSlice<>(listOrganisation.subList(0, 2), "next-page"));
+
+        MockHttpServletResponse response = mvc.perform(
+                get(ORG_API_URI).param("cursor", "").param("size", "2").accept("application/json"))
+                .andReturn().getResponse();
+
+        //then
+        JsonNode actualResponseBody = objectMapper.readTree(response.getContentAsString());
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(actualResponseBody.get("content").toString()).isEqualToIgnoringWhitespace(
+                objectMapper.writeValueAsString(listOrganisation.subList(0, 2)));
+        assertThat(actualResponseBody.get("next").asText()).isEqualTo("next-page");
+        assertThat(actualResponseBody.get("hasNext").asBoolean()).isTrue();
+        verify(mockRepository, times(1)).findAllAfter(any(), eq(2), eq(CerebrumFieldSet.ALL));
+    }
+
+    @Test void
+    givenDepth_whenGetRequestToOrganisations_thenPageHydratedOnce() throws Exception
+    {
+        Pageable pageable = PageRequest.of(
+                0,20, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
+        Page<Organization> page = new PageImpl<>(listOrganisation, pageable, listOrganisation.size());
+        given(mockRepository.findAll(pageable, CerebrumFieldSet.ALL)).willReturn(page);
+
+        MockHttpServletResponse response = mvc.perform(
+                get(ORG_API_URI).param("depth", "2").accept("application/json"))
+                .andReturn().getResponse();
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(mockRepository, times(1)).hydrate(page, 2, CerebrumFieldSet.ALL);
+    }
+
+    @Test void
+    givenFields_whenGetRequestToOrganisations_thenOnlyRequestedFields() throws Exception
+    {
+        Pageable pageable = PageRequest.of(
+                0,20, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
+        Page<Organization> page = new PageImpl<>(listOrganisation, pageable, listOrganisation.size());
+        given(mockRepository.findAll(eq(pageable), any(CerebrumFieldSet.class))).willReturn(page);
+
+        mvc.perform(get(ORG_API_URI).param("fields", "uuid,name").accept("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value(listOrganisation.get(0).getName()))
+                .andExpect(jsonPath("$.content[0].uuid").exists())
+                .andExpect(jsonPath("$.content[0].url").doesNotExist())
+                .andExpect(jsonPath("$.content[0].img").doesNotExist());
+
+        //then
+        verify(mockRepository, times(0)).findAll(pageable, CerebrumFieldSet.ALL);
+        verify(mockRepository, times(1)).hydrate(eq(page), eq(0), any(CerebrumFieldSet.class));
+    }
+
+    @Test void
+    givenUnknownField_whenGetRequestToOrganisations_thenBadRequest() throws Exception
+    {
+        MockHttpServletResponse response = mvc.perform(
+                get(ORG_API_URI).param("fields", "name,version").accept("application/json"))
+                .andReturn().getResponse();
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        assertThat(response.getContentAsString()).contains("version is not a selectable field");
+        verify(mockRepository, times(0)).findAll(any(Pageable.class), any());
+    }
+
+    @Test void
+    givenDepthAboveTwo_whenGetRequestToOrganisations_thenBadRequest() throws Exception
+    {
+        MockHttpServletResponse response = mvc.perform(
+                get(ORG_API_URI).param("depth", "3").accept("application/json"))
+                .andReturn().getResponse();
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        verify(mockRepository, times(0)).findAll(any(Pageable.class), any());
+    }
+
+    @Test void
+    givenInvalidCursor_whenGetRequestToOrganisations_thenBadRequest() throws Exception
+    {
+        mvc.perform(get(ORG_API_URI).param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test void
+    whenGetRequestToOrganisationsExport_thenOneOrganisationPerLine() throws Exception
+    {
+        Sort sort = Sort.by(new Sort.Order(Sort.Direction.DESC, "abbreviation"));
+        given(mockRepository.streamAll(sort, CerebrumFieldSet.ALL)).willReturn(listOrganisation.stream());
+
+        MvcResult result = mvc.perform(get(ORG_API_URI + "/export?sort=abbreviation.desc"))
+                .andExpect(status().isOk())
+                .andReturn();
+        MockHttpServletResponse response = mvc.perform(asyncDispatch(result)).andReturn().getResponse();
+
+        //then
+        String[] lines = response.getContentAsString().split("\n");
+        assertThat(response.getHeader("content-type")).isEqualTo("application/x-ndjson");
+        assertThat(lines).hasSize(listOrganisation.size());
+        assertThat(lines[0]).isEqualTo(objectMapper.writeValueAsString(listOrganisation.get(0)));
+        verify(mockRepository, times(1)).streamAll(sort, CerebrumFieldSet.ALL);
+    }
+
     // POST
     @Test void
     givenValidOrganisationWithoutUuid_whenPostRequestToOrganisations_verifyOutput_and_BusinessLogicCall_thenCreated()
@@ -868,7 +1085,8 @@ class OrganizationControllerTest
                 "org-5189a7bc-d630-11ea-87d0-0242ac130003");
         given(mockRepository.findByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003"))
                 .willReturn(java.util.Optional.of(kit));
-        given(mockRepository.save(any(Organization.class))).willReturn(newKit);
+        given(mockRepository.patchByUuid(eq("org-5189a7bc-d630-11ea-87d0-0242ac130003"),
+                any(CerebrumPatchStatement.class))).willReturn(java.util.Optional.of(newKit));
 
         //when
         mvc.perform(patch(ORG_API_URI + "/org-5189a7bc-d630-11ea-87d0-0242ac130003")
@@ -882,8 +1100,66 @@ class OrganizationControllerTest
                 .andExpect(jsonPath("$['abbreviation']").value("KI3T"))
                 .andExpect(jsonPath("$['uuid']").value("org-5189a7bc-d630-11ea-87d0-0242ac130003"));
 
-        verify(mockRepository, times(1)).save(any(Organization.class));
-        verify(mockRepository, times(1)).findByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003");
+        // compiled to a single statement, the organization is neither loaded nor saved
+        verify(mockRepository, times(1)).patchByUuid(eq("org-5189a7bc-d630-11ea-87d0-0242ac130003"),
+                any(CerebrumPatchStatement.class));
+        verify(mockRepository, times(0)).save(any(Organization.class));
+        verify(mockRepository, times(0)).findByUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003");
+    }
+
+    @Test void
+    givenUnknownUuid_and_validJsonPatch_whenPatchRequestToOrganisations_thenNotFound() throws Exception
+    {
+        //given
+        Map<String, String> patch = new HashMap<>();
+        patch.put("op", "replace");
+        patch.put("path", "/abbreviation");
+        patch.put("value", "KI3T");
+        Object[] validJsonPatch = {patch};
+        given(mockRepository.patchByUuid(eq("org-5189a7bc-d630-11ea-87d0-0242ac130004"),
+                any(CerebrumPatchStatement.class))).willReturn(java.util.Optional.empty());
+
+        //when
+        mvc.perform(patch(ORG_API_URI + "/org-5189a7bc-d630-11ea-87d0-0242ac130004")
+                .header("Authorization", "Bearer " + TOKEN)
+                .accept("application/json")
+                .contentType("application/json-patch+json").content(objectMapper.writeValueAsString(validJsonPatch)))
+
+                //then
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType("application/json"));
+
+        verify(mockRepository, times(0)).save(any(Organization.class));
+    }
+
+    @Test void
+    givenFailingTestOperation_whenPatchRequestToOrganisations_thenBadRequest() throws Exception
+    {
+        //given
+        Map<String, String> test = new HashMap<>();
+        test.put("op", "test");
+        test.put("path", "/abbreviation");
+        test.put("value", "DESY");
+        Map<String, String> patch = new HashMap<>();
+        patch.put("op", "replace");
+        patch.put("path", "/abbreviation");
+        patch.put("value", "KI3T");
+        Object[] conditionalJsonPatch = {test, patch};
+        given(mockRepository.patchByUuid(eq("org-5189a7bc-d630-11ea-87d0-0242ac130003"),
+                any(CerebrumPatchStatement.class))).willThrow(new JsonPatchException("test failed"));
+
+        //when
+        mvc.perform(patch(ORG_API_URI + "/org-5189a7bc-d630-11ea-87d0-0242ac130003")
+                .header("Authorization", "Bearer " + TOKEN)
+                .accept("application/json")
+                .contentType("application/json-patch+json")
+                .content(objectMapper.writeValueAsString(conditionalJsonPatch)))
+
+                //then
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType("application/json"));
+
+        verify(mockRepository, times(0)).save(any(Organization.class));
     }
 
     @Test void
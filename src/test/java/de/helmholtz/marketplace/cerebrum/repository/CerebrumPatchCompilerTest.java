@@ -0,0 +1,108 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.metadata.MetaData;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.session.event.Event;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CerebrumPatchCompilerTest
+{
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Session session = mock(Session.class);
+    private final SessionFactory sessionFactory = sessionFactory(session);
+    private final CerebrumPatchCompiler patchCompiler = new CerebrumPatchCompiler(
+            new CerebrumEntitySchema(sessionFactory), objectMapper, sessionFactory, true);
+
+    private static SessionFactory sessionFactory(Session session)
+    {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.metaData()).thenReturn(new MetaData("de.helmholtz.marketplace.cerebrum.entities"));
+        when(sessionFactory.openSession()).thenReturn(session);
+        return sessionFactory;
+    }
+
+    private JsonPatch patch(String json) throws Exception
+    {
+        return objectMapper.readValue(json, JsonPatch.class);
+    }
+
+    @Test void
+    givenScalarOperations_whenCompile_thenSingleStatement() throws Exception
+    {
+        CerebrumPatchStatement statement = patchCompiler.compile(patch("[" +
+                "{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"DESY Hamburg\"}," +
+                "{\"op\":\"remove\",\"path\":\"/img\"}]"), Organization.class);
+
+        assertThat(statement.getCypher()).isEqualTo(
+                "MATCH (n:`Organization`) WHERE n.`uuid` = $uuid " +
+                "SET n.`name` = $value0, n.`version` = randomUUID() REMOVE n.`img` " +
+                "WITH n RETURN n, [[(n)-[r]-(m) | [r, m]]]");
+        assertThat(statement.getParameters()).containsExactly(entry("value0", "DESY Hamburg"));
+        assertThat(statement.isConditional()).isFalse();
+    }
+
+    @Test void
+    givenPreSaveListener_whenCompile_thenAssignedValuesRewritten() throws Exception
+    {
+        when(session.eventsEnabled()).thenReturn(true);
+        doAnswer(invocation -> {
+            Event event = invocation.getArgument(0);
+            assertThat(event.getLifeCycle()).isEqualTo(Event.TYPE.PRE_SAVE);
+            ((Organization) event.getObject()).setImg("asset:logo.png");
+            return null;
+        }).when(session).notifyListeners(any());
+
+        CerebrumPatchStatement statement = patchCompiler.compile(patch("[" +
+                "{\"op\":\"test\",\"path\":\"/img\",\"value\":\"iVBORw0KGgo=\"}," +
+                "{\"op\":\"replace\",\"path\":\"/abbreviation\",\"value\":\"DESY\"}," +
+                "{\"op\":\"replace\",\"path\":\"/img\",\"value\":\"iVBORw0KGgoAAAANSUhEUg==\"}]"),
+                Organization.class);
+
+        assertThat(statement.getParameters()).containsOnly(
+                entry("test0", "iVBORw0KGgo="), entry("value1", "DESY"), entry("value2", "asset:logo.png"));
+    }
+
+    @Test void
+    givenTestOperation_whenCompile_thenConditionalStatement() throws Exception
+    {
+        CerebrumPatchStatement statement = patchCompiler.compile(patch("[" +
+                "{\"op\":\"test\",\"path\":\"/lifecycleStatus\",\"value\":\"TESTING\"}," +
+                "{\"op\":\"replace\",\"path\":\"/lifecycleStatus\",\"value\":\"PRODUCTION\"}]"), MarketService.class);
+
+        assertThat(statement.getCypher()).startsWith(
+                "MATCH (n:`MarketService`) WHERE n.`uuid` = $uuid AND n.`lifecycleStatus` = $test0 " +
+                "SET n.`lifecycleStatus` = $value1, n.`version` = randomUUID() ");
+        assertThat(statement.getParameters())
+                .containsOnly(entry("test0", "TESTING"), entry("value1", "PRODUCTION"));
+        assertThat(statement.isConditional()).isTrue();
+    }
+
+    @Test void
+    givenUnsupportedOperations_whenCompile_thenNull() throws Exception
+    {
+        assertThat(patchCompiler.compile(patch(
+                "[{\"op\":\"copy\",\"from\":\"/abbreviation\",\"path\":\"/name\"}]"), Organization.class)).isNull();
+        assertThat(patchCompiler.compile(patch(
+                "[{\"op\":\"replace\",\"path\":\"/serviceList\",\"value\":[]}]"), Organization.class)).isNull();
+        assertThat(patchCompiler.compile(patch(
+                "[{\"op\":\"replace\",\"path\":\"/uuid\",\"value\":\"x\"}]"), Organization.class)).isNull();
+        assertThat(patchCompiler.compile(patch(
+                "[{\"op\":\"replace\",\"path\":\"/version\",\"value\":\"x\"}]"), Organization.class)).isNull();
+        assertThat(patchCompiler.compile(patch(
+                "[{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"x\"}," +
+                "{\"op\":\"test\",\"path\":\"/name\",\"value\":\"x\"}]"), Organization.class)).isNull();
+    }
+}
@@ -0,0 +1,76 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CerebrumQueryRecorderTest
+{
+    @Test void
+    givenLiterals_whenShape_thenReplacedAndWhitespaceCollapsed()
+    {
+        assertThat(CerebrumQueryRecorder.shape(
+                "MATCH (n:Organization)\n  WHERE n.name = 'DESY' AND n.size > 10 RETURN n LIMIT 25"))
+                .isEqualTo("MATCH (n:Organization) WHERE n.name = ? AND n.size > ? RETURN n LIMIT ?");
+        assertThat(CerebrumQueryRecorder.shape("MATCH (n) WHERE n.uuid IN ['a', \"b\", 3] RETURN n.r0"))
+                .isEqualTo("MATCH (n) WHERE n.uuid IN [?] RETURN n.r0");
+    }
+
+    @Test void
+    givenParameters_whenRedact_thenOnlyTypesKept()
+    {
+        assertThat(CerebrumQueryRecorder.redact(Map.of("uuid", "org-1", "rows", List.of(1, 2, 3))))
+                .isEqualTo(Map.of("uuid", "String", "rows", "List[3]"));
+    }
+
+    @Test void
+    givenRequest_whenStatementsFinish_thenAddedUpForRequestOnly()
+    {
+        CerebrumQueryRecorder recorder = new CerebrumQueryRecorder(-1, 1000);
+        CerebrumQueryRecorder.RequestQueries queries = recorder.begin();
+        try {
+            CerebrumQueryRecorder.Execution first = recorder.start("MATCH (n) RETURN n", Collections.emptyMap(), 1);
+            first.row();
+            first.row();
+            first.finish();
+            first.finish();
+            recorder.start("CREATE (n);\nCREATE (m)", List.of(), 2).finish();
+        } finally {
+            recorder.end(queries);
+        }
+        recorder.start("MATCH (n) RETURN n", Collections.emptyMap(), 1).finish();
+
+        assertThat(recorder.current()).isNull();
+        assertThat(queries.getStatements()).isEqualTo(3);
+        assertThat(queries.getRows()).isEqualTo(2);
+        assertThat(recorder.getSlowest(10, "total"))
+                .extracting(shape -> shape.get("shape"), shape -> shape.get("count"))
+                .containsExactlyInAnyOrder(
+                        tuple("MATCH (n) RETURN n", 2L),
+                        tuple("CREATE (n); CREATE (m)", 2L));
+    }
+
+    @Test void
+    givenShapes_whenGetSlowest_thenSlowestFirstAndBounded() throws Exception
+    {
+        CerebrumQueryRecorder recorder = new CerebrumQueryRecorder(-1, 2);
+        recorder.start("MATCH (fast) RETURN fast", null, 1).finish();
+        CerebrumQueryRecorder.Execution slow = recorder.start("MATCH (slow) RETURN slow", null, 1);
+        Thread.sleep(20);
+        slow.finish();
+        recorder.start("MATCH (untracked) RETURN untracked", null, 1).finish();
+
+        List<Map<String, Object>> slowest = recorder.getSlowest(1, "max");
+
+        assertThat(slowest).hasSize(1);
+        assertThat(slowest.get(0)).containsEntry("shape", "MATCH (slow) RETURN slow");
+        assertThat(recorder.getStatistics())
+                .containsEntry("shapes", 2)
+                .containsEntry("untrackedStatements", 1L);
+    }
+}
@@ -0,0 +1,84 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.metadata.MetaData;
+import org.neo4j.ogm.model.Result;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CerebrumSchemaManagerTest
+{
+    private final Session session = mock(Session.class);
+    private final List<Map<String, Object>> indexes = new ArrayList<>();
+    private final CerebrumSchemaManager schemaManager = schemaManager();
+
+    private CerebrumSchemaManager schemaManager()
+    {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.metaData()).thenReturn(new MetaData("de.helmholtz.marketplace.cerebrum.entities"));
+        when(sessionFactory.openSession()).thenReturn(session);
+        Result result = mock(Result.class);
+        when(result.iterator()).then(invocation -> indexes.iterator());
+        when(session.query(eq("CALL db.indexes()"), anyMap(), anyBoolean())).thenReturn(result);
+        return new CerebrumSchemaManager(sessionFactory, new CerebrumEntitySchema(sessionFactory), true, 0);
+    }
+
+    private void index(String label, String property, String uniqueness)
+    {
+        Map<String, Object> row = new HashMap<>();
+        row.put("labelsOrTypes", new String[] {label});
+        row.put("properties", new String[] {property});
+        row.put("uniqueness", uniqueness);
+        indexes.add(row);
+    }
+
+    @Test void
+    givenEmptyGraph_whenBootstrap_thenConstraintsAndIndexesCreated()
+    {
+        List<String> created = schemaManager.bootstrap();
+
+        assertThat(created).hasSize(9)
+                .contains("CREATE CONSTRAINT ON (n:`Organization`) ASSERT n.`uuid` IS UNIQUE")
+                .contains("CREATE INDEX ON :`MarketUser`(`sub`)")
+                .contains("CALL db.index.fulltext.createNodeIndex('cerebrum_search', "
+                        + "['MarketService', 'Organization'], ['name', 'description', 'abbreviation'])");
+    }
+
+    @Test void
+    givenExistingSchema_whenBootstrap_thenNothingCreated()
+    {
+        index("Organization", "uuid", "UNIQUE");
+        index("MarketService", "uuid", "UNIQUE");
+        index("MarketUser", "uuid", "UNIQUE");
+        index("MarketUser", "sub", "NONUNIQUE");
+        index("MarketUser", "lastName", "NONUNIQUE");
+        index("Organization", "name", "NONUNIQUE");
+        index("MarketService", "name", "NONUNIQUE");
+        index("MarketService", "lastModified", "NONUNIQUE");
+        Map<String, Object> fullText = new HashMap<>();
+        fullText.put("name", "cerebrum_search");
+        fullText.put("labelsOrTypes", new String[] {"MarketService", "Organization"});
+        fullText.put("properties", new String[] {"name", "description", "abbreviation"});
+        fullText.put("uniqueness", "NONUNIQUE");
+        indexes.add(fullText);
+
+        assertThat(schemaManager.bootstrap()).isEmpty();
+        verify(session, never()).query(startsWith("CREATE"), anyMap(), anyBoolean());
+        verify(session, never()).query(startsWith("CALL db.index.fulltext"), anyMap(), anyBoolean());
+    }
+}
@@ -0,0 +1,36 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CerebrumSearchRepositoryTest
+{
+    @Test void
+    givenQueryWithLuceneSyntax_whenTerms_thenOnlyLowerCaseWords()
+    {
+        assertThat(CerebrumSearchRepository.terms("Cloud* AND (storage) cloud \"DESY\":"))
+                .containsExactly("cloud", "and", "storage", "desy");
+        assertThat(CerebrumSearchRepository.terms("*:~")).isEmpty();
+    }
+
+    @Test void
+    givenTerms_whenLuceneQuery_thenWordsAndPrefixesWithNameBoosted()
+    {
+        assertThat(CerebrumSearchRepository.luceneQuery(Arrays.asList("cloud", "sto"), "name"))
+                .isEqualTo("name:cloud^4 name:cloud*^2 cloud^2 cloud* name:sto^4 name:sto*^2 sto^2 sto*");
+    }
+
+    @Test void
+    givenValue_whenHighlight_thenOffsetsOfMatchingWords()
+    {
+        assertThat(CerebrumSearchRepository.highlight("Helmholtz Cloud Storage, cloud-sync",
+                Arrays.asList("cloud", "sto")))
+                .containsExactly(new int[] {10, 15}, new int[] {16, 23}, new int[] {25, 30});
+        assertThat(CerebrumSearchRepository.highlight("Helmholtz", Collections.singletonList("cloud")))
+                .isEmpty();
+    }
+}
@@ -0,0 +1,159 @@
+package de.helmholtz.marketplace.cerebrum.repository;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.metadata.MetaData;
+import org.neo4j.ogm.model.Result;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.helmholtz.marketplace.cerebrum.entities.Authentication;
+import de.helmholtz.marketplace.cerebrum.entities.LifecycleStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CerebrumServiceFacetsTest
+{
+    private static final String ORGANIZATION = "org-01eac6d7-0d35-1812-a3ed-24aec4231940";
+
+    private final Map<String, Map<String, Object>> services = new LinkedHashMap<>();
+    private final List<String> statements = new ArrayList<>();
+    private final CerebrumServiceFacets serviceFacets = serviceFacets();
+
+    @SuppressWarnings("unchecked")
+    private CerebrumServiceFacets serviceFacets()
+    {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.metaData()).thenReturn(new MetaData("de.helmholtz.marketplace.cerebrum.entities"));
+        Session session = mock(Session.class);
+        when(sessionFactory.openSession()).thenReturn(session);
+        when(session.query(anyString(), anyMap(), anyBoolean())).then(invocation -> {
+            String cypher = invocation.getArgument(0);
+            Map<String, Object> parameters = invocation.getArgument(1);
+            List<String> uuids = (List<String>) parameters.get("uuids");
+            statements.add(cypher);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Map.Entry<String, Map<String, Object>> service : services.entrySet()) {
+                if (cypher.startsWith("MATCH (o:")) {
+                    // the services of organizations
+                    List<String> organizations = Arrays.asList((String[]) service.getValue().get("organizations"));
+                    if (!Collections.disjoint(organizations, uuids)) {
+                        rows.add(Collections.singletonMap("uuid", service.getKey()));
+                    }
+                }
+                else if (uuids == null || uuids.contains(service.getKey())) rows.add(service.getValue());
+            }
+            Result result = mock(Result.class);
+            when(result.iterator()).thenReturn(rows.iterator());
+            return result;
+        });
+        return new CerebrumServiceFacets(sessionFactory, new CerebrumEntitySchema(sessionFactory));
+    }
+
+    private void service(String uuid, LifecycleStatus lifecycleStatus, Authentication authentication,
+                         String... organizations)
+    {
+        Map<String, Object> row = new HashMap<>();
+        row.put("uuid", uuid);
+        row.put("lifecycleStatus", lifecycleStatus.name());
+        row.put("authentication", authentication.name());
+        row.put("organizations", organizations);
+        services.put(uuid, row);
+    }
+
+    @Test void
+    givenServices_whenSelectAll_thenCountsPerValue()
+    {
+        service("svc-1", LifecycleStatus.PRODUCTION, Authentication.OAUTH2, ORGANIZATION);
+        service("svc-2", LifecycleStatus.TESTING, Authentication.OAUTH2);
+        service("svc-3", LifecycleStatus.PRODUCTION, Authentication.BASIC, ORGANIZATION);
+
+        CerebrumServiceFacets.Selection selection = serviceFacets.select(null, null, null);
+
+        assertThat(selection.getUuids()).containsExactlyInAnyOrder("svc-1", "svc-2", "svc-3");
+        assertThat(selection.getFacets().get("lifecycleStatus"))
+                .containsEntry("PRODUCTION", 2).containsEntry("TESTING", 1).containsEntry("PLANNED", 0);
+        assertThat(selection.getFacets().get("authentication"))
+                .containsEntry("OAUTH2", 2).containsEntry("BASIC", 1).containsEntry("SHIBBOLETH", 0);
+    }
+
+    @Test void
+    givenFilters_whenSelect_thenEachFacetCountedUnderTheOthers()
+    {
+        service("svc-1", LifecycleStatus.PRODUCTION, Authentication.OAUTH2, ORGANIZATION);
+        service("svc-2", LifecycleStatus.TESTING, Authentication.OAUTH2, ORGANIZATION);
+        service("svc-3", LifecycleStatus.PRODUCTION, Authentication.BASIC);
+
+        CerebrumServiceFacets.Selection selection = serviceFacets.select(
+                Collections.singletonList(LifecycleStatus.PRODUCTION),
+                Arrays.asList(Authentication.OAUTH2, Authentication.SHIBBOLETH),
+                Collections.singletonList(ORGANIZATION));
+
+        assertThat(selection.getUuids()).containsExactly("svc-1");
+        assertThat(selection.getFacets().get("lifecycleStatus"))
+                .containsEntry("PRODUCTION", 1).containsEntry("TESTING", 1);
+        assertThat(selection.getFacets().get("authentication"))
+                .containsEntry("OAUTH2", 1).containsEntry("BASIC", 0);
+    }
+
+    @Test void
+    givenChangedAndDeletedServices_whenChanged_thenOnlyTheseReadAgain()
+    {
+        service("svc-1", LifecycleStatus.PRODUCTION, Authentication.OAUTH2, ORGANIZATION);
+        service("svc-2", LifecycleStatus.TESTING, Authentication.OAUTH2);
+        serviceFacets.select(null, null, null);
+        service("svc-1", LifecycleStatus.DEPRECATED, Authentication.OAUTH2);
+        services.remove("svc-2");
+        service("svc-3", LifecycleStatus.TESTING, Authentication.SHIBBOLETH);
+
+        serviceFacets.changed(Arrays.asList("svc-1", "svc-2"));
+
+        CerebrumServiceFacets.Selection selection = serviceFacets.select(null, null, null);
+        assertThat(selection.getUuids()).containsExactly("svc-1");
+        assertThat(selection.getFacets().get("lifecycleStatus"))
+                .containsEntry("DEPRECATED", 1).containsEntry("PRODUCTION", 0).containsEntry("TESTING", 0);
+        assertThat(serviceFacets.select(null, null, Collections.singletonList(ORGANIZATION)).getUuids()).isEmpty();
+    }
+
+    @Test void
+    givenServices_whenSelect_thenOrganizationsLinkedFromEitherSide()
+    {
+        service("svc-1", LifecycleStatus.PRODUCTION, Authentication.OAUTH2, ORGANIZATION);
+
+        serviceFacets.select(null, null, null);
+
+        assertThat(statements).hasSize(1);
+        assertThat(statements.get(0)).contains("-[:`ORGANIZATIONS`|`SERVICE_LIST`]-");
+    }
+
+    @Test void
+    givenOrganizationChanged_whenSelect_thenServicesLinkedBeforeAndNowReadAgain()
+    {
+        String other = "org-01eac6d7-0d35-1812-a3ed-24aec4231941";
+        service("svc-1", LifecycleStatus.PRODUCTION, Authentication.OAUTH2, ORGANIZATION);
+        service("svc-2", LifecycleStatus.TESTING, Authentication.OAUTH2, other);
+        serviceFacets.select(null, null, null);
+        // the organization lists svc-2 instead of svc-1 now
+        service("svc-1", LifecycleStatus.PRODUCTION, Authentication.OAUTH2);
+        service("svc-2", LifecycleStatus.TESTING, Authentication.OAUTH2, other, ORGANIZATION);
+
+        serviceFacets.organizationChanged(ORGANIZATION);
+
+        assertThat(serviceFacets.select(null, null, Collections.singletonList(ORGANIZATION)).getUuids())
+                .containsExactly("svc-2");
+        assertThat(serviceFacets.select(null, null, Collections.singletonList(other)).getUuids())
+                .containsExactly("svc-2");
+    }
+}
@@ -0,0 +1,111 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.neo4j.ogm.session.SessionFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CerebrumAssetStoreTest
+{
+    private static final byte[] LOGO = "<svg xmlns=\"http://www.w3.org/2000/svg\"></svg>"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private CerebrumAssetStore store()
+    {
+        return new CerebrumAssetStore(directory.toString(), 86400);
+    }
+
+    private static MockHttpServletRequest get()
+    {
+        return new MockHttpServletRequest("GET", "/api/v0/organizations/org/logo");
+    }
+
+    @Test void
+    givenSameContentTwice_whenPut_thenStoredOnce() throws Exception
+    {
+        CerebrumAssetStore store = store();
+
+        String name = store.put(LOGO, "svg");
+
+        assertThat(store.put(LOGO.clone(), "svg")).isEqualTo(name);
+        assertThat(name).matches("[0-9a-f]{64}\\.svg");
+        assertThat(Files.walk(directory).filter(Files::isRegularFile)).hasSize(1);
+        assertThat(store.find(name)).isPresent();
+        assertThat(store.find("../" + name)).isEmpty();
+    }
+
+    @Test void
+    givenRange_whenServe_thenPartialContent() throws Exception
+    {
+        CerebrumAssetStore store = store();
+        String name = store.put(LOGO, "svg");
+        MockHttpServletRequest request = get();
+        request.addHeader("Range", "bytes=1-3");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        store.serve(name, true, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 1-3/" + LOGO.length);
+        assertThat(response.getContentAsString()).isEqualTo("svg");
+        assertThat(response.getContentType()).isEqualTo("image/svg+xml");
+        assertThat(response.getHeader("Cache-Control")).contains("immutable");
+    }
+
+    @Test void
+    givenMatchingEtag_whenServe_thenNotModified() throws Exception
+    {
+        CerebrumAssetStore store = store();
+        String name = store.put(LOGO, "svg");
+        MockHttpServletRequest request = get();
+        request.addHeader("If-None-Match", "\"" + name.substring(0, 64) + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        store.serve(name, false, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(response.getHeader("Cache-Control")).isEqualTo("public, max-age=86400");
+    }
+
+    @Test void
+    givenRangeBeyondContent_whenServe_thenNotSatisfiable() throws Exception
+    {
+        CerebrumAssetStore store = store();
+        String name = store.put(LOGO, "svg");
+        MockHttpServletRequest request = get();
+        request.addHeader("Range", "bytes=1000-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        store.serve(name, false, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */" + LOGO.length);
+    }
+
+    @Test void
+    givenInlineLogo_whenExternalize_thenReference() throws Exception
+    {
+        CerebrumLogoStore logoStore = new CerebrumLogoStore(store(), mock(SessionFactory.class), null, null, false);
+        String base64 = Base64.getEncoder().encodeToString(LOGO);
+
+        String reference = logoStore.externalize("data:image/svg+xml;base64," + base64);
+
+        assertThat(reference).startsWith("asset:").endsWith(".svg");
+        assertThat(logoStore.externalize(base64)).isEqualTo(reference);
+        assertThat(logoStore.externalize("https://www.desy.de/logo.svg")).isEqualTo("https://www.desy.de/logo.svg");
+        assertThat(logoStore.externalize(reference)).isEqualTo(reference);
+    }
+}
@@ -0,0 +1,100 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.metadata.MetaData;
+import org.neo4j.ogm.session.SessionFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.validation.Validation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumGraphRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CerebrumBatchProcessorTest
+{
+    private static final String DESY_UUID = "org-5189a7bc-d630-11ea-87d0-0242ac130003";
+
+    private final CerebrumBatchProcessor batchProcessor = new CerebrumBatchProcessor(
+            Validation.buildDefaultValidatorFactory().getValidator(), schema(), 4, 2);
+    @SuppressWarnings("unchecked")
+    private final CerebrumGraphRepository<Organization> repository = mock(CerebrumGraphRepository.class);
+
+    private static CerebrumEntitySchema schema()
+    {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.metaData()).thenReturn(new MetaData("de.helmholtz.marketplace.cerebrum.entities"));
+        return new CerebrumEntitySchema(sessionFactory);
+    }
+
+    private static Organization organization(String uuid, String name)
+    {
+        Organization organization = new Organization();
+        if (uuid != null) organization.setUuid(uuid);
+        organization.setName(name);
+        organization.setUrl("https://www.desy.de/");
+        return organization;
+    }
+
+    @Test void
+    givenMixedItems_whenUpsert_thenEachItemHasItsOwnStatus()
+    {
+        when(repository.upsertAll(anyCollection())).then(invocation -> {
+            List<Organization> chunk = invocation.getArgument(0);
+            return Collections.singleton(chunk.get(0).getUuid());
+        });
+        List<Organization> items = Arrays.asList(
+                organization(null, "Helmholtz-Zentrum Berlin"),
+                organization(null, null),
+                organization(DESY_UUID, "DESY"),
+                organization(DESY_UUID, "DESY again"));
+
+        List<CerebrumBatchItemResult> results = batchProcessor.upsert(items, Organization.class, repository);
+
+        assertThat(results).extracting(CerebrumBatchItemResult::getStatus).containsExactly(
+                HttpStatus.CREATED, HttpStatus.BAD_REQUEST, HttpStatus.OK, HttpStatus.CONFLICT);
+        assertThat(results.get(0).getUuid()).startsWith("org-");
+        assertThat(CerebrumEntityUuidGenerator.isValid(results.get(0).getUuid())).isTrue();
+        assertThat(results.get(1).getErrors()).containsExactly("name: must not be null");
+        verify(repository, times(1)).upsertAll(anyCollection());
+    }
+
+    @Test void
+    givenFailingChunk_whenUpsert_thenOnlyItsItemsFail()
+    {
+        when(repository.upsertAll(anyCollection()))
+                .thenThrow(new IllegalStateException("connection lost"))
+                .thenReturn(Set.of());
+        List<Organization> items = Arrays.asList(
+                organization(null, "A"), organization(null, "B"), organization(DESY_UUID, "C"));
+
+        List<CerebrumBatchItemResult> results = batchProcessor.upsert(items, Organization.class, repository);
+
+        assertThat(results).extracting(CerebrumBatchItemResult::getStatus).containsExactly(
+                HttpStatus.INTERNAL_SERVER_ERROR, HttpStatus.INTERNAL_SERVER_ERROR, HttpStatus.OK);
+        verify(repository, times(2)).upsertAll(anyCollection());
+    }
+
+    @Test void
+    givenTooManyItems_whenUpsert_thenPayloadTooLarge()
+    {
+        List<Organization> items = Collections.nCopies(5, organization(null, "A"));
+
+        assertThatThrownBy(() -> batchProcessor.upsert(items, Organization.class, repository))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("413");
+    }
+}
@@ -0,0 +1,81 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Instant;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
+import de.helmholtz.marketplace.cerebrum.repository.MarketUserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CerebrumCurrentUserResolverTest
+{
+    private static final String SUB = "110248495921238986420";
+    private static final String USER_UUID = "usr-5189a7bc-d630-11ea-87d0-0242ac130003";
+
+    private final MarketUserRepository marketUserRepository = mock(MarketUserRepository.class);
+    private final CerebrumCurrentUserResolver currentUserResolver =
+            new CerebrumCurrentUserResolver(marketUserRepository, 60, 100);
+
+    private static MarketUser user(String sub)
+    {
+        MarketUser user = new MarketUser();
+        user.setUuid(USER_UUID);
+        user.setFirstName("Paul");
+        user.setSub(sub);
+        return user;
+    }
+
+    private static JwtAuthenticationToken authentication(String sub)
+    {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject(sub)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+        return new JwtAuthenticationToken(jwt);
+    }
+
+    @Test void
+    givenRepeatedRequests_whenResolve_thenQueriedOnce()
+    {
+        when(marketUserRepository.findBySub(SUB)).thenReturn(user(SUB));
+
+        assertThat(currentUserResolver.resolve(authentication(SUB))).map(MarketUser::getFirstName).hasValue("Paul");
+        assertThat(currentUserResolver.resolve(authentication(SUB))).map(MarketUser::getFirstName).hasValue("Paul");
+
+        verify(marketUserRepository, times(1)).findBySub(SUB);
+    }
+
+    @Test void
+    givenUnknownSubLaterCreated_whenEvict_thenResolved()
+    {
+        assertThat(currentUserResolver.resolve(SUB)).isEmpty();
+        when(marketUserRepository.findBySub(SUB)).thenReturn(user(SUB));
+
+        currentUserResolver.evict(user(SUB));
+
+        assertThat(currentUserResolver.resolve(SUB)).isPresent();
+        verify(marketUserRepository, times(2)).findBySub(SUB);
+    }
+
+    @Test void
+    givenSubChanged_whenEvict_thenOldSubNoLongerResolved()
+    {
+        when(marketUserRepository.findBySub(SUB)).thenReturn(user(SUB));
+        currentUserResolver.resolve(SUB);
+        when(marketUserRepository.findBySub(SUB)).thenReturn(null);
+
+        currentUserResolver.evict(user("another-sub"));
+
+        assertThat(currentUserResolver.resolve(SUB)).isEmpty();
+    }
+}
@@ -0,0 +1,183 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.metadata.MetaData;
+import org.neo4j.ogm.session.SessionFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumEntitySchema;
+import de.helmholtz.marketplace.cerebrum.repository.CerebrumTagged;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CerebrumEntityCacheTest
+{
+    private static final String DESY_UUID = "org-5189a7bc-d630-11ea-87d0-0242ac130003";
+    private static final String SERVICE_UUID = "svc-5189a7bc-d630-11ea-87d0-0242ac130003";
+
+    private static final String USER_UUID = "usr-5189a7bc-d630-11ea-87d0-0242ac130003";
+
+    private final CerebrumEntityCache entityCache = new CerebrumEntityCache(
+            schema(), Jackson2ObjectMapperBuilder.json().build(), true, 300, 1 << 20);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicInteger tagLoads = new AtomicInteger();
+
+    private <T> Optional<CerebrumEntityCache.Entry> get(Class<T> type, String uuid, T entity)
+    {
+        return entityCache.get(type, uuid, request(null), tagLoader(entity), loader(entity));
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch)
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        if (ifNoneMatch != null) request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    private static CerebrumEntitySchema schema()
+    {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.metaData()).thenReturn(new MetaData("de.helmholtz.marketplace.cerebrum.entities"));
+        return new CerebrumEntitySchema(sessionFactory);
+    }
+
+    private Function<String, Optional<String>> tagLoader(Object entity)
+    {
+        return uuid -> {
+            tagLoads.incrementAndGet();
+            return Optional.ofNullable(entity).map(found -> "\"1\"");
+        };
+    }
+
+    private <T> Function<String, Optional<CerebrumTagged<T>>> loader(T entity)
+    {
+        return uuid -> {
+            loads.incrementAndGet();
+            return Optional.ofNullable(entity).map(found -> new CerebrumTagged<>(found, "\"1\""));
+        };
+    }
+
+    private static Organization desy()
+    {
+        Organization organization = new Organization();
+        organization.setUuid(DESY_UUID);
+        organization.setName("Deutsches Elektronen-Synchrotron");
+        return organization;
+    }
+
+    @Test void
+    givenCachedEntity_whenGet_thenLoadedOnceAndServedAsJson()
+    {
+        get(Organization.class, DESY_UUID, desy());
+        Optional<CerebrumEntityCache.Entry> entry = get(Organization.class, DESY_UUID, desy());
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(tagLoads.get()).isEqualTo(0);
+        assertThat(entry).isPresent();
+        assertThat(entry.get().getTag()).isEqualTo("\"1\"");
+        assertThat(new String(entry.get().getJson(), StandardCharsets.UTF_8))
+                .contains("\"name\":\"Deutsches Elektronen-Synchrotron\"");
+        assertThat(entityCache.getStatistics())
+                .containsEntry("hits", 1L)
+                .containsEntry("misses", 1L);
+    }
+
+    @Test void
+    givenMissingEntity_whenGet_thenEmptyAndNotCached()
+    {
+        assertThat(get(Organization.class, DESY_UUID, null)).isEmpty();
+        assertThat(get(Organization.class, DESY_UUID, null)).isEmpty();
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test void
+    givenClientHasCurrentTag_whenGet_thenNotLoaded()
+    {
+        ServletWebRequest request = request("\"1\"");
+        Optional<CerebrumEntityCache.Entry> entry = entityCache.get(Organization.class, DESY_UUID,
+                request, tagLoader(desy()), loader(desy()));
+
+        assertThat(loads.get()).isEqualTo(0);
+        assertThat(tagLoads.get()).isEqualTo(1);
+        assertThat(entry).isPresent();
+        assertThat(entry.get().getJson()).isNull();
+        assertThat(request.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo("\"1\"");
+    }
+
+    @Test void
+    givenClientHasOtherTag_whenGet_thenLoadedWithTag()
+    {
+        ServletWebRequest request = request("\"0\"");
+        Optional<CerebrumEntityCache.Entry> entry = entityCache.get(Organization.class, DESY_UUID,
+                request, tagLoader(desy()), loader(desy()));
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(entry).isPresent();
+        assertThat(entry.get().getJson()).isNotNull();
+        assertThat(request.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo("\"1\"");
+    }
+
+    @Test void
+    givenWriteToOneType_whenEvict_thenEntityAndOtherTypesReloaded()
+    {
+        MarketService service = new MarketService();
+        service.setUuid(SERVICE_UUID);
+        get(Organization.class, DESY_UUID, desy());
+        get(MarketService.class, SERVICE_UUID, service);
+
+        entityCache.evict(MarketService.class);
+        get(Organization.class, DESY_UUID, desy());
+        get(MarketService.class, SERVICE_UUID, service);
+
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test void
+    givenWriteToOneType_whenEvict_thenUnrelatedTypesStillCached()
+    {
+        MarketUser user = new MarketUser();
+        user.setUuid(USER_UUID);
+        get(Organization.class, DESY_UUID, desy());
+        get(MarketUser.class, USER_UUID, user);
+
+        entityCache.evict(Organization.class);
+        get(Organization.class, DESY_UUID, desy());
+        get(MarketUser.class, USER_UUID, user);
+
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test void
+    givenWriteToUser_whenEvict_thenAllTypesReloaded()
+    {
+        MarketService service = new MarketService();
+        service.setUuid(SERVICE_UUID);
+        MarketUser user = new MarketUser();
+        user.setUuid(USER_UUID);
+        get(Organization.class, DESY_UUID, desy());
+        get(MarketService.class, SERVICE_UUID, service);
+        get(MarketUser.class, USER_UUID, user);
+
+        entityCache.evict(MarketUser.class);
+        get(Organization.class, DESY_UUID, desy());
+        get(MarketService.class, SERVICE_UUID, service);
+        get(MarketUser.class, USER_UUID, user);
+
+        assertThat(loads.get()).isEqualTo(6);
+    }
+}
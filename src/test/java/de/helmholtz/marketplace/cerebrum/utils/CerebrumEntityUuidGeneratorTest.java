@@ -0,0 +1,144 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.entities.MarketUser;
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CerebrumEntityUuidGeneratorTest
+{
+    @Test void
+    whenGenerate_thenPrefixedValidType1Uuid()
+    {
+        String id = CerebrumEntityUuidGenerator.generate("org");
+
+        assertThat(id).startsWith("org-").hasSize(40);
+        assertThat(CerebrumEntityUuidGenerator.isValid(id)).isTrue();
+        UUID uuid = UUID.fromString(id.substring(4));
+        assertThat(uuid.version()).isEqualTo(1);
+        assertThat(uuid.variant()).isEqualTo(2);
+    }
+
+    @Test void
+    whenGenerateWithUnknownPrefix_thenIllegalArgument()
+    {
+        assertThatThrownBy(() -> CerebrumEntityUuidGenerator.generate("abc"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test void
+    whenGenerateIdForEntity_thenEntityPrefixIsUsed()
+    {
+        CerebrumEntityUuidGenerator generator = new CerebrumEntityUuidGenerator();
+
+        assertThat((String) generator.generateId(new Organization())).startsWith("org-");
+        assertThat((String) generator.generateId(new MarketUser())).startsWith("usr-");
+        assertThat((String) generator.generateId(new MarketService())).startsWith("svc-");
+    }
+
+    @Test void
+    whenGenerateRepeatedly_thenTimestampsStrictlyIncrease()
+    {
+        long previous = CerebrumEntityUuidGenerator.generateType1UUID().getMostSignificantBits();
+        for (int i = 0; i < 10_000; i++) {
+            long current = CerebrumEntityUuidGenerator.generateType1UUID().getMostSignificantBits();
+            assertThat(current).isGreaterThan(previous);
+            previous = current;
+        }
+    }
+
+    @Test void
+    whenGenerateConcurrently_thenNoDuplicates() throws Exception
+    {
+        int threads = 8;
+        int perThread = 5_000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(CerebrumEntityUuidGenerator.generate("svc"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(ids).hasSize(threads * perThread);
+    }
+
+    @Test void
+    whenReserveBlock_thenDistinctOrderedValidIds()
+    {
+        List<String> block = CerebrumEntityUuidGenerator.reserve("usr", 100);
+        String next = CerebrumEntityUuidGenerator.generate("usr");
+
+        assertThat(block).hasSize(100).doesNotHaveDuplicates().isSorted();
+        assertThat(block).allMatch(CerebrumEntityUuidGenerator::isValid);
+        assertThat(next).isGreaterThan(block.get(99));
+    }
+
+    @Test void
+    whenValidateWellFormedIds_thenValid()
+    {
+        assertThat(CerebrumEntityUuidGenerator.isValid("org-5189a7bc-d630-11ea-87d0-0242ac130003")).isTrue();
+        assertThat(CerebrumEntityUuidGenerator.isValid("usr-01EAC6D7-0D35-1812-A3ED-24AEC4231940")).isTrue();
+        assertThat(CerebrumEntityUuidGenerator.isValid("svc-01eac6d7-0d35-4812-a3ed-24aec4231940")).isTrue();
+    }
+
+    @Test void
+    whenValidateMalformedIds_thenInvalid()
+    {
+        assertThat(CerebrumEntityUuidGenerator.isValid(null)).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("")).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("2")).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("org-")).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("abc-5189a7bc-d630-11ea-87d0-0242ac130003")).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("org_5189a7bc-d630-11ea-87d0-0242ac130003")).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("org-5189a7bc-d630-01ea-87d0-0242ac130003")).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("org-5189a7bc-d630-11ea-87d0-0242ac13000z")).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("org-5189a7bc+d630-11ea-87d0-0242ac130003")).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("org-5189a7bc-d630-11ea-87d0-0242ac1300031")).isFalse();
+        assertThat(CerebrumEntityUuidGenerator.isValid("org-5189a7bc-d630-11ea-87d0-0242ac\uff1003")).isFalse();
+    }
+
+    @Test void
+    whenParseValidId_thenPrefixAndBitsMatchUuid()
+    {
+        String id = "svc-5189a7bc-d630-11ea-87d0-0242ac130003";
+        UUID expected = UUID.fromString(id.substring(4));
+
+        CerebrumEntityUuid parsed = CerebrumEntityUuidGenerator.parse(id);
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.getPrefix()).isEqualTo(CerebrumEntityUuidGenerator.PrefixEnum.MARKETSERVICE);
+        assertThat(parsed.getMostSignificantBits()).isEqualTo(expected.getMostSignificantBits());
+        assertThat(parsed.getLeastSignificantBits()).isEqualTo(expected.getLeastSignificantBits());
+        assertThat(parsed.toString()).isEqualTo(id);
+        assertThat(parsed).isEqualTo(CerebrumEntityUuidGenerator.parse(id.toUpperCase().replace("SVC", "svc")));
+    }
+
+    @Test void
+    whenParseInvalidId_thenNull()
+    {
+        assertThat(CerebrumEntityUuidGenerator.parse(null)).isNull();
+        assertThat(CerebrumEntityUuidGenerator.parse("org-not-a-uuid")).isNull();
+    }
+}
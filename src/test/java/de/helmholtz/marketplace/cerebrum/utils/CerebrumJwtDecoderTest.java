@@ -0,0 +1,115 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CerebrumJwtDecoderTest
+{
+    private static final String ISSUER = "https://login.helmholtz.de/oauth2";
+
+    private volatile RSAKey signingKey;
+    private HttpServer jwkSetServer;
+    private CerebrumJwkSetSource jwkSetSource;
+    private CerebrumJwtDecoder jwtDecoder;
+
+    @BeforeEach
+    void setUp() throws IOException, JOSEException
+    {
+        signingKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        jwkSetServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        jwkSetServer.createContext("/oauth2/jwk", exchange -> {
+            byte[] body = new JWKSet(signingKey.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        jwkSetServer.start();
+        jwkSetSource = new CerebrumJwkSetSource(
+                "http://localhost:" + jwkSetServer.getAddress().getPort() + "/oauth2/jwk", 0);
+        jwtDecoder = new CerebrumJwtDecoder(jwkSetSource, ISSUER, 100);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        jwkSetServer.stop(0);
+    }
+
+    private String token(String subject) throws JOSEException
+    {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .subject(subject)
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+                .build();
+        SignedJWT jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+
+    @Test void
+    givenPrefetchedKeysAndSameToken_whenDecode_thenVerifiedOnce() throws JOSEException
+    {
+        String token = token("110248495921238986420");
+        jwkSetSource.prefetch();
+
+        assertThat(jwtDecoder.decode(token).getSubject()).isEqualTo("110248495921238986420");
+        assertThat(jwtDecoder.decode(token).getSubject()).isEqualTo("110248495921238986420");
+
+        assertThat(jwtDecoder.getStatistics())
+                .containsEntry("hits", 1L)
+                .containsEntry("verifications", 1L);
+        assertThat(jwkSetSource.getStatistics()).containsEntry("fetches", 1L);
+    }
+
+    @Test void
+    givenTamperedToken_whenDecode_thenRejectedEveryTime() throws JOSEException
+    {
+        String token = token("110248495921238986420");
+        String tampered = token.substring(0, token.length() - 4) + "AAAA";
+
+        assertThatThrownBy(() -> jwtDecoder.decode(tampered)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> jwtDecoder.decode(tampered)).isInstanceOf(JwtException.class);
+
+        assertThat(jwtDecoder.getStatistics())
+                .containsEntry("entries", 0L)
+                .containsEntry("verificationFailures", 2L);
+    }
+
+    @Test void
+    givenRotatedKey_whenDecode_thenKeysFetchedAgain() throws JOSEException
+    {
+        jwtDecoder.decode(token("110248495921238986420"));
+        signingKey = new RSAKeyGenerator(2048).keyID("key-2").generate();
+
+        assertThat(jwtDecoder.decode(token("110248495921238986420")).getSubject())
+                .isEqualTo("110248495921238986420");
+        assertThat(jwkSetSource.getStatistics()).containsEntry("fetches", 2L);
+    }
+}
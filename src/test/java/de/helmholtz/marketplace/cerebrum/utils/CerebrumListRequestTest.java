@@ -0,0 +1,50 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CerebrumListRequestTest
+{
+    private static final Sort SORT = Sort.by("name");
+
+    private static String read(CerebrumListRequest list)
+    {
+        return list.read(
+                after -> "after " + after.getSort(),
+                pageRequest -> "slice " + pageRequest,
+                pageRequest -> "page " + pageRequest);
+    }
+
+    @Test void
+    givenCursor_whenRead_thenEntitiesAfterIt()
+    {
+        assertThat(read(new CerebrumListRequest(3, 10, SORT, true, "", false))).isEqualTo("after " + SORT);
+    }
+
+    @Test void
+    givenWithoutTotal_whenRead_thenSlice()
+    {
+        assertThat(read(new CerebrumListRequest(3, 10, SORT, false, null, false)))
+                .isEqualTo("slice " + PageRequest.of(3, 10, SORT));
+    }
+
+    @Test void
+    givenFilteredWithoutTotal_whenRead_thenPage()
+    {
+        assertThat(read(new CerebrumListRequest(3, 10, SORT, false, null, true)))
+                .isEqualTo("page " + PageRequest.of(3, 10, SORT));
+    }
+
+    @Test void
+    givenFilteredCursor_whenCreate_thenBadRequest()
+    {
+        assertThatThrownBy(() -> new CerebrumListRequest(0, 10, SORT, true, "", true))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("filters cannot be combined with a cursor");
+    }
+}
@@ -0,0 +1,50 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CerebrumNdjsonWriterTest
+{
+    private final CerebrumNdjsonWriter ndjsonWriter =
+            new CerebrumNdjsonWriter(Jackson2ObjectMapperBuilder.json().build());
+
+    @Test void
+    givenEntities_whenChunks_thenOneLinePerEntityInChunksOf64()
+    {
+        Flux<Map<String, Integer>> entities = Flux.range(0, 130).map(i -> Collections.singletonMap("n", i));
+
+        List<String> chunks = ndjsonWriter.chunks(entities).collectList().block();
+
+        assertThat(chunks).hasSize(3);
+        assertThat(chunks.get(0).split("\n")).hasSize(64).startsWith("{\"n\":0}");
+        assertThat(chunks.get(2)).isEqualTo("{\"n\":128}\n{\"n\":129}\n");
+    }
+
+    @Test void
+    givenSubscriberRequestingOneChunk_whenChunks_thenOnlyOneChunkOfEntitiesRequested()
+    {
+        List<Long> requested = new ArrayList<>();
+        Flux<Integer> entities = Flux.range(0, 1000).doOnRequest(requested::add);
+
+        ndjsonWriter.chunks(entities).subscribe(new BaseSubscriber<String>()
+        {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription)
+            {
+                request(1);
+            }
+        });
+
+        assertThat(requested).containsExactly(64L);
+    }
+}
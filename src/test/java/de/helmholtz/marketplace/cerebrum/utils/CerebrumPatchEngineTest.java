@@ -0,0 +1,174 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import de.helmholtz.marketplace.cerebrum.entities.LifecycleStatus;
+import de.helmholtz.marketplace.cerebrum.entities.MarketService;
+import de.helmholtz.marketplace.cerebrum.entities.Organization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CerebrumPatchEngineTest
+{
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CerebrumPatchEngine patchEngine = new CerebrumPatchEngine(objectMapper, meterRegistry);
+    private Organization desy;
+
+    @BeforeEach
+    void setUp()
+    {
+        desy = new Organization();
+        desy.setUuid("org-5189a7bc-d630-11ea-87d0-0242ac130003");
+        desy.setName("Deutsches Elektronen-Synchrotron");
+        desy.setAbbreviation("DESY");
+        desy.setUrl("https://www.desy.de/");
+        desy.setImg("https://www.desy.de/++resource++desy/images/desy_logo_3c_web.svg");
+    }
+
+    private JsonPatch patch(String json) throws Exception
+    {
+        return objectMapper.readValue(json, JsonPatch.class);
+    }
+
+    @Test void
+    givenScalarOperations_whenApplyPatch_thenEntityIsUpdatedInPlace() throws Exception
+    {
+        Organization patched = patchEngine.applyPatch(patch("[" +
+                "{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"DESY Hamburg\"}," +
+                "{\"op\":\"add\",\"path\":\"/abbreviation\",\"value\":\"DESY-HH\"}," +
+                "{\"op\":\"remove\",\"path\":\"/img\"}]"), desy, Organization.class);
+
+        assertThat(patched).isSameAs(desy);
+        assertThat(patched.getName()).isEqualTo("DESY Hamburg");
+        assertThat(patched.getAbbreviation()).isEqualTo("DESY-HH");
+        assertThat(patched.getImg()).isNull();
+        assertThat(patched.getUuid()).isEqualTo("org-5189a7bc-d630-11ea-87d0-0242ac130003");
+        assertThat(meterRegistry.get(CerebrumPatchEngine.PATCHES)
+                .tag("entity", "organization").tag("mode", "scalar").timer().count()).isEqualTo(1);
+    }
+
+    @Test void
+    givenEnumValue_whenApplyPatch_thenValueIsConverted() throws Exception
+    {
+        MarketService service = new MarketService();
+        service.setName("Sync+Share");
+
+        MarketService patched = patchEngine.applyPatch(patch(
+                "[{\"op\":\"replace\",\"path\":\"/lifecycleStatus\",\"value\":\"PRODUCTION\"}]"),
+                service, MarketService.class);
+
+        assertThat(patched.getLifecycleStatus()).isEqualTo(LifecycleStatus.PRODUCTION);
+    }
+
+    @Test void
+    givenStructuralOperation_whenApplyPatch_thenTreeIsPatched() throws Exception
+    {
+        Organization patched = patchEngine.applyPatch(patch("[" +
+                "{\"op\":\"test\",\"path\":\"/abbreviation\",\"value\":\"DESY\"}," +
+                "{\"op\":\"copy\",\"from\":\"/abbreviation\",\"path\":\"/name\"}]"), desy, Organization.class);
+
+        assertThat(patched).isNotSameAs(desy);
+        assertThat(patched.getName()).isEqualTo("DESY");
+        assertThat(patched.getUrl()).isEqualTo("https://www.desy.de/");
+        assertThat(patched.getUuid()).isEqualTo(desy.getUuid());
+        assertThat(meterRegistry.get(CerebrumPatchEngine.PATCHES)
+                .tag("entity", "organization").tag("mode", "tree").timer().count()).isEqualTo(1);
+    }
+
+    @Test void
+    givenRelationshipOperation_whenApplyPatch_thenTreeIsPatched() throws Exception
+    {
+        Organization patched = patchEngine.applyPatch(patch(
+                "[{\"op\":\"replace\",\"path\":\"/serviceList\",\"value\":[]}]"), desy, Organization.class);
+
+        assertThat(patched.getServiceList()).isEqualTo(Collections.emptyList());
+        assertThat(patched.getName()).isEqualTo(desy.getName());
+    }
+
+    @Test void
+    givenFailingTestOperation_whenApplyPatch_thenJsonPatchException() throws Exception
+    {
+        JsonPatch patch = patch("[{\"op\":\"test\",\"path\":\"/abbreviation\",\"value\":\"KIT\"}]");
+
+        assertThatThrownBy(() -> patchEngine.applyPatch(patch, desy, Organization.class))
+                .isInstanceOf(JsonPatchException.class);
+    }
+
+    @Test void
+    givenUnknownProperty_whenApplyPatch_thenJsonPatchException() throws Exception
+    {
+        JsonPatch patch = patch("[{\"op\":\"replace\",\"path\":\"/unknown\",\"value\":\"x\"}]");
+
+        assertThatThrownBy(() -> patchEngine.applyPatch(patch, desy, Organization.class))
+                .isInstanceOf(JsonPatchException.class);
+        assertThat(desy.getName()).isEqualTo("Deutsches Elektronen-Synchrotron");
+    }
+
+    @Test void
+    givenInvalidLaterValue_whenApplyPatch_thenNothingIsSet() throws Exception
+    {
+        MarketService service = new MarketService();
+        service.setName("Sync+Share");
+        JsonPatch patch = patch("[" +
+                "{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"Nextcloud\"}," +
+                "{\"op\":\"replace\",\"path\":\"/lifecycleStatus\",\"value\":\"UNKNOWN\"}]");
+
+        assertThatThrownBy(() -> patchEngine.applyPatch(patch, service, MarketService.class))
+                .isInstanceOf(JsonProcessingException.class);
+        assertThat(service.getName()).isEqualTo("Sync+Share");
+    }
+
+    @Test void
+    givenFailingSetter_whenApplyPatch_thenEarlierUpdatesRestored() throws Exception
+    {
+        Bean bean = new Bean();
+        bean.setA("a");
+        JsonPatch patch = patch("[" +
+                "{\"op\":\"replace\",\"path\":\"/a\",\"value\":\"x\"}," +
+                "{\"op\":\"replace\",\"path\":\"/b\",\"value\":\"boom\"}]");
+
+        assertThatThrownBy(() -> patchEngine.applyPatch(patch, bean, Bean.class))
+                .isInstanceOf(JsonProcessingException.class);
+        assertThat(bean.getA()).isEqualTo("a");
+        assertThat(bean.getB()).isNull();
+        assertThat(meterRegistry.get(CerebrumPatchEngine.PATCHES).tag("mode", "scalar").timer().count()).isEqualTo(1);
+    }
+
+    public static class Bean
+    {
+        private String a;
+        private String b;
+
+        public String getA()
+        {
+            return a;
+        }
+
+        public void setA(String a)
+        {
+            this.a = a;
+        }
+
+        public String getB()
+        {
+            return b;
+        }
+
+        public void setB(String b)
+        {
+            if ("boom".equals(b)) throw new IllegalArgumentException("Invalid b");
+            this.b = b;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CerebrumQueuedThreadPoolTest
+{
+    @Test void
+    givenBusyThreadsAndFullQueue_whenExecute_thenRejectedAndCounted() throws Exception
+    {
+        CerebrumQueuedThreadPool threadPool = new CerebrumQueuedThreadPool("test", 2);
+        threadPool.setMinThreads(1);
+        threadPool.setMaxThreads(1);
+        threadPool.setReservedThreads(0);
+        threadPool.start();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            threadPool.execute(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            running.await();
+            threadPool.execute(() -> { });
+            threadPool.execute(() -> { });
+
+            assertThatThrownBy(() -> threadPool.execute(() -> { }))
+                    .isInstanceOf(RejectedExecutionException.class);
+            assertThat(threadPool.getStatistics())
+                    .containsEntry("queued", 2)
+                    .containsEntry("queueCapacity", 2)
+                    .containsEntry("rejected", 1L);
+        } finally {
+            release.countDown();
+            threadPool.stop();
+        }
+    }
+}
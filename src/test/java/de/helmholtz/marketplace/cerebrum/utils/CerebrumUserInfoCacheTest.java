@@ -0,0 +1,111 @@
+package de.helmholtz.marketplace.cerebrum.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CerebrumUserInfoCacheTest
+{
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer userInfoServer;
+    private CerebrumUserInfoCache userInfoCache;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        userInfoServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        userInfoServer.createContext("/oauth2/userinfo", exchange -> {
+            authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"sub\":\"110248495921238986420\",\"name\":\"Paul Millar\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        userInfoServer.setExecutor(Executors.newCachedThreadPool());
+        userInfoServer.start();
+        userInfoCache = new CerebrumUserInfoCache(WebClient.create(),
+                "http://localhost:" + userInfoServer.getAddress().getPort() + "/oauth2/userinfo", 100, 300);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        userInfoServer.stop(0);
+    }
+
+    private static Jwt token(String value, Instant expiresAt)
+    {
+        return Jwt.withTokenValue(value)
+                .header("alg", "RS256")
+                .subject("110248495921238986420")
+                .issuedAt(Instant.now().minusSeconds(60))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test void
+    givenConcurrentRequestsWithSameToken_whenGet_thenOneUpstreamCall()
+    {
+        Jwt token = token("token-a", Instant.now().plusSeconds(3600));
+
+        Mono<JsonNode> first = userInfoCache.get(token);
+        Mono<JsonNode> second = userInfoCache.get(token);
+        release.countDown();
+
+        assertThat(first.block(Duration.ofSeconds(5)).get("name").asText()).isEqualTo("Paul Millar");
+        assertThat(second.block(Duration.ofSeconds(5)).get("name").asText()).isEqualTo("Paul Millar");
+        assertThat(userInfoCache.get(token).block(Duration.ofSeconds(5))).isNotNull();
+        assertThat(authorizations).containsExactly("Bearer token-a");
+    }
+
+    @Test void
+    givenDifferentTokens_whenGet_thenOneUpstreamCallEach()
+    {
+        release.countDown();
+
+        userInfoCache.get(token("token-a", Instant.now().plusSeconds(3600))).block(Duration.ofSeconds(5));
+        userInfoCache.get(token("token-b", Instant.now().plusSeconds(3600))).block(Duration.ofSeconds(5));
+
+        assertThat(authorizations).containsExactly("Bearer token-a", "Bearer token-b");
+    }
+
+    @Test void
+    givenExpiredToken_whenGet_thenNotCached()
+    {
+        Jwt token = token("token-a", Instant.now().minusSeconds(1));
+        release.countDown();
+
+        userInfoCache.get(token).block(Duration.ofSeconds(5));
+        userInfoCache.get(token).block(Duration.ofSeconds(5));
+
+        assertThat(authorizations).hasSize(2);
+    }
+}